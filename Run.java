@@ -1,4 +1,6 @@
+import imagelab.BatchRunner;
 import imagelab.ImageLab;
+import java.util.Arrays;
 /**
  * ImageLab is a framework for student exploration of image processing.
  * copyright (C) 2016,2019 by Aaron Gordon & Jody Paul
@@ -30,9 +32,15 @@ public final class Run {
     private Run() { }
     /**
      * Main method that runs the ImageLab application.
+     * With <CODE>--batch</CODE> as the first argument the remaining
+     * arguments are passed to {@link BatchRunner} instead.
      * @param args arguments for the ImageLab application
      */
     public static void main(final String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         ImageLab.main(args);
     }
 }
@@ -0,0 +1,76 @@
+package filters;
+
+import imagelab.ImageFilter;
+import imagelab.ImgProvider;
+import imagelab.IntegralImage;
+import imagelab.PlaneView;
+
+/**
+ * An imageLab filter that turns the image black and white with a
+ * threshold that adapts to the brightness and contrast around each
+ * pixel (Sauvola's method), which copes with uneven lighting in
+ * scanned documents.  Window statistics come from an integral image,
+ * so large windows cost no more than small ones.
+ */
+public class AdaptiveThreshold implements ImageFilter {
+
+  /** Pixels on each side of the center of the window. */
+  private static final int RADIUS = 25;
+  /** Weight of the local contrast in the threshold. */
+  private static final double K = 0.34;
+  /** Largest possible standard deviation of gray values. */
+  private static final double RANGE = 128.0;
+  /** Gray value of white. */
+  private static final short WHITE = 255;
+
+  /**
+   * The filtered image.
+   */
+  private ImgProvider filteredImage;
+
+  /**
+   * The filter itself.
+   *
+   * @param ip the image to be filtered.
+   */
+  public void filter(final ImgProvider ip) {
+    PlaneView gray = ip.getBWView();
+    IntegralImage ii = new IntegralImage(gray, true);
+    int width = ii.getWidth();
+    int height = ii.getHeight();
+    short[][] im = new short[height][width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        double mean = ii.mean(x, y, RADIUS);
+        double sd = Math.sqrt(ii.variance(x, y, RADIUS));
+        double threshold = mean * (1 + K * (sd / RANGE - 1));
+        if (gray.get(y, x) > threshold) {
+          im[y][x] = WHITE;
+        }
+      } //for x
+    } //for y
+
+    filteredImage = new ImgProvider();
+    filteredImage.setBWImage(im);
+    filteredImage.showPix("Adaptive Threshold");
+  } //filter
+
+  /**
+   * Retrieve the filtered image.
+   *
+   * @return the filtered image.
+   */
+  public ImgProvider getImgProvider() {
+    return filteredImage;
+  } //getImgProvider
+
+  /**
+   * Retrieve the name of the filter to add to the menu.
+   *
+   * @return the filter's menu item label
+   */
+  public String getMenuLabel() {
+    return "Adaptive Threshold";
+  } //getMenuLabel
+
+}
@@ -0,0 +1,84 @@
+package filters;
+
+import imagelab.ImageFilter;
+import imagelab.ImageStatistics;
+import imagelab.ImgProvider;
+import imagelab.PixelBuffer;
+import imagelab.PointOps;
+import imagelab.StatelessFilter;
+
+/**
+ * An imageLab filter that stretches each color channel so that its
+ * darkest values become 0 and its brightest 255, ignoring the most
+ * extreme 0.5% at each end.
+ */
+public class AutoLevels implements ImageFilter, StatelessFilter {
+
+  /** Percentage of values clipped at each end. */
+  private static final double CLIP = 0.5;
+  /** Percent in a whole. */
+  private static final double PERCENT = 100.0;
+  /** Largest channel value. */
+  private static final int MAX_VALUE = 255;
+  /** Number of channel values. */
+  private static final int LEVELS = 256;
+
+  /**
+   * The filtered image.
+   */
+  private ImgProvider filteredImage;
+
+  /**
+   * The filter itself.
+   *
+   * @param ip the image to be filtered (not changed).
+   * @return the filtered image.
+   */
+  public ImgProvider apply(final ImgProvider ip) {
+    ImageStatistics stats = ip.getStatistics();
+    int[][] table = new int[PixelBuffer.CHANNELS][LEVELS];
+    for (int c = 0; c < PixelBuffer.CHANNELS; c++) {
+      int low = stats.getPercentile(c, CLIP);
+      int high = stats.getPercentile(c, PERCENT - CLIP);
+      for (int v = 0; v < LEVELS; v++) {
+        if (c == PixelBuffer.ALPHA || high <= low) {
+          table[c][v] = v;
+        } else {
+          int s = (v - low) * MAX_VALUE / (high - low);
+          table[c][v] = Math.max(0, Math.min(MAX_VALUE, s));
+        }
+      } //for v
+    } //for c
+
+    return new ImgProvider(ip.getCore().map(PointOps.table(table)));
+  } //apply
+
+  /**
+   * Filter the image and display the result.
+   *
+   * @param ip the image to be filtered.
+   */
+  public void filter(final ImgProvider ip) {
+    filteredImage = apply(ip);
+    filteredImage.showPix("Auto Levels");
+  } //filter
+
+  /**
+   * Retrieve the filtered image.
+   *
+   * @return the filtered image.
+   */
+  public ImgProvider getImgProvider() {
+    return filteredImage;
+  } //getImgProvider
+
+  /**
+   * Retrieve the name of the filter to add to the menu.
+   *
+   * @return the filter's menu item label
+   */
+  public String getMenuLabel() {
+    return "Auto Levels";
+  } //getMenuLabel
+
+}
@@ -0,0 +1,99 @@
+package filters;
+
+import imagelab.BandMapper;
+import imagelab.ImageFilter;
+import imagelab.ImgProvider;
+import imagelab.IntegralImage;
+import imagelab.PixelBuffer;
+import imagelab.PlaneView;
+import imagelab.StatelessFilter;
+
+/**
+ * An imageLab filter that replaces each pixel by the mean of the
+ * square around it, using integral images so that the cost does not
+ * depend on the size of the square.  Large tiled images are blurred
+ * a band of rows at a time.
+ */
+public class BoxBlur implements ImageFilter, StatelessFilter {
+
+  /** Pixels on each side of the center of the square. */
+  private static final int RADIUS = 7;
+
+  /**
+   * The filtered image.
+   */
+  private ImgProvider filteredImage;
+
+  /**
+   * The filter itself.
+   *
+   * @param ip the image to be filtered (not changed).
+   * @return the filtered image.
+   */
+  public ImgProvider apply(final ImgProvider ip) {
+    return new ImgProvider(ip.getCore().mapBands(RADIUS, new BandMapper() {
+      public void map(final int[] src, final int[] dst,
+                      final int width, final int rows) {
+        blur(src, dst, width, rows);
+      }
+    }));
+  } //apply
+
+  /**
+   * Blur a block of rows, treating it as a whole image.
+   *
+   * @param src the packed pixels (not changed).
+   * @param out where to put the blurred pixels.
+   * @param width pixels in each row.
+   * @param height number of rows.
+   */
+  private static void blur(final int[] src, final int[] out,
+                           final int width, final int height) {
+    PixelBuffer planes = new PixelBuffer(width, height);
+    planes.unpack(src);
+    IntegralImage red =
+        new IntegralImage(new PlaneView(planes, PixelBuffer.RED));
+    IntegralImage green =
+        new IntegralImage(new PlaneView(planes, PixelBuffer.GREEN));
+    IntegralImage blue =
+        new IntegralImage(new PlaneView(planes, PixelBuffer.BLUE));
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int spot = y * width + x;
+        out[spot] = (src[spot] & PixelBuffer.OPAQUE)
+            | (red.roundedMean(x, y, RADIUS) << PixelBuffer.RED_SHIFT)
+            | (green.roundedMean(x, y, RADIUS) << PixelBuffer.GREEN_SHIFT)
+            | blue.roundedMean(x, y, RADIUS);
+      } //for x
+    } //for y
+  } //blur
+
+  /**
+   * Filter the image and display the result.
+   *
+   * @param ip the image to be filtered.
+   */
+  public void filter(final ImgProvider ip) {
+    filteredImage = apply(ip);
+    filteredImage.showPix("Box Blur");
+  } //filter
+
+  /**
+   * Retrieve the filtered image.
+   *
+   * @return the filtered image.
+   */
+  public ImgProvider getImgProvider() {
+    return filteredImage;
+  } //getImgProvider
+
+  /**
+   * Retrieve the name of the filter to add to the menu.
+   *
+   * @return the filter's menu item label
+   */
+  public String getMenuLabel() {
+    return "Box Blur";
+  } //getMenuLabel
+
+}
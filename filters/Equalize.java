@@ -0,0 +1,81 @@
+package filters;
+
+import imagelab.ImageFilter;
+import imagelab.ImageStatistics;
+import imagelab.ImgProvider;
+import imagelab.PixelBuffer;
+import imagelab.PointOps;
+import imagelab.StatelessFilter;
+
+/**
+ * An imageLab filter that equalizes the histogram of each color
+ * channel, spreading the values so that each level is about equally
+ * common.
+ */
+public class Equalize implements ImageFilter, StatelessFilter {
+
+  /** Largest channel value. */
+  private static final int MAX_VALUE = 255;
+  /** Number of channel values. */
+  private static final int LEVELS = 256;
+
+  /**
+   * The filtered image.
+   */
+  private ImgProvider filteredImage;
+
+  /**
+   * The filter itself.
+   *
+   * @param ip the image to be filtered (not changed).
+   * @return the filtered image.
+   */
+  public ImgProvider apply(final ImgProvider ip) {
+    ImageStatistics stats = ip.getStatistics();
+    long total = stats.getCount();
+    int[][] table = new int[PixelBuffer.CHANNELS][LEVELS];
+    for (int c = 0; c < PixelBuffer.CHANNELS; c++) {
+      long[] cdf = stats.getCumulative(c);
+      long first = cdf[stats.getMin(c)];
+      for (int v = 0; v < LEVELS; v++) {
+        if (c == PixelBuffer.ALPHA || total == first) {
+          table[c][v] = v;
+        } else {
+          long s = Math.max(0, cdf[v] - first) * MAX_VALUE / (total - first);
+          table[c][v] = (int) s;
+        }
+      } //for v
+    } //for c
+
+    return new ImgProvider(ip.getCore().map(PointOps.table(table)));
+  } //apply
+
+  /**
+   * Filter the image and display the result.
+   *
+   * @param ip the image to be filtered.
+   */
+  public void filter(final ImgProvider ip) {
+    filteredImage = apply(ip);
+    filteredImage.showPix("Equalized");
+  } //filter
+
+  /**
+   * Retrieve the filtered image.
+   *
+   * @return the filtered image.
+   */
+  public ImgProvider getImgProvider() {
+    return filteredImage;
+  } //getImgProvider
+
+  /**
+   * Retrieve the name of the filter to add to the menu.
+   *
+   * @return the filter's menu item label
+   */
+  public String getMenuLabel() {
+    return "Equalize";
+  } //getMenuLabel
+
+}
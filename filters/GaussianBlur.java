@@ -0,0 +1,21 @@
+package filters;
+
+import imagelab.Convolution;
+import imagelab.ConvolutionKernel;
+
+/**
+ * An imageLab filter that blurs the image with a 15x15 Gaussian.
+ */
+public class GaussianBlur extends Convolution {
+
+  /** Standard deviation of the blur, in pixels. */
+  private static final double SIGMA = 7.0 / 3.0;
+
+  /**
+   * Create the filter.
+   */
+  public GaussianBlur() {
+    super(ConvolutionKernel.gaussian(SIGMA), "Gaussian Blur");
+  }
+
+}
@@ -1,12 +1,19 @@
 package filters;
 
+import imagelab.HaloTile;
 import imagelab.ImageFilter;
 import imagelab.ImgProvider;
+import imagelab.ParallelFilter;
+import imagelab.RowBand;
+import imagelab.StatelessFilter;
+import imagelab.StreamingFilter;
+import imagelab.Transforms;
 
 /**
  * An imageLab filter that flips the image horizontally.
  */
-public class HFlip implements ImageFilter {
+public class HFlip
+    implements ImageFilter, StatelessFilter, StreamingFilter, ParallelFilter {
 
   /**
    * The filtered image.
@@ -16,26 +23,92 @@ public class HFlip implements ImageFilter {
   /**
    * The filter itself.
    *
+   * @param ip the image to be filtered (not changed).
+   * @return the filtered image.
+   */
+  public ImgProvider apply(final ImgProvider ip) {
+    return new ImgProvider(
+        ip.getCore().transform(Transforms.FLIP_HORIZONTAL));
+  } //apply
+
+  /**
+   * Filter the image and display the result.
+   *
    * @param ip the image to be filtered.
    */
   public void filter(final ImgProvider ip) {
-    short tmp;
-    short[][] im = ip.getBWImage();
-    int height = im.length;
-    int width = im[0].length;
-    for (int r = 0; r < height; r++) {
-      for (int c = 0, x = width - 1; c < x; c++, x--) {
-        tmp = im[r][c];
-        im[r][c] = im[r][x];
-        im[r][x] = tmp;
-      } //for c
-    } //for r;
-
-    filteredImage = new ImgProvider();
-    filteredImage.setBWImage(im);
+    filteredImage = apply(ip);
     filteredImage.showPix("Flipped Horizontally");
   } //filter
 
+  /**
+   * Each row depends only on itself.
+   *
+   * @return 0
+   */
+  public int getNeighborhood() {
+    return 0;
+  } //getNeighborhood
+
+  /**
+   * Flip one band of rows.
+   *
+   * @param in the rows to filter
+   * @param out the rows to fill
+   */
+  public void filterBand(final RowBand in, final RowBand out) {
+    int[] src = in.getData();
+    int[] dst = out.getData();
+    int width = in.getWidth();
+    int last = in.getFirstRow() + in.getRows();
+    for (int row = in.getFirstRow(); row < last; row++) {
+      int from = in.offsetOf(row);
+      int to = out.offsetOf(row) + width - 1;
+      for (int col = 0; col < width; col++) {
+        dst[to - col] = src[from + col];
+      } //for col
+    } //for row
+  } //filterBand
+
+  /**
+   * Each row is flipped on its own, so bands of rows can be
+   * flipped in parallel.
+   *
+   * @return ROW_PARALLEL
+   */
+  public int getParallelism() {
+    return ROW_PARALLEL;
+  } //getParallelism
+
+  /**
+   * Each pixel depends only on the pixel mirroring it in the same row.
+   *
+   * @return 0
+   */
+  public int getRadius() {
+    return 0;
+  } //getRadius
+
+  /**
+   * Flip one band of whole rows.
+   *
+   * @param in the rows to filter
+   * @param out the rows to fill
+   */
+  public void filterTile(final HaloTile in, final HaloTile out) {
+    int[] src = in.getData();
+    int[] dst = out.getData();
+    int width = in.getWidth();
+    int last = in.getY() + in.getHeight();
+    for (int row = in.getY(); row < last; row++) {
+      int from = in.index(0, row);
+      int to = out.index(0, row) + width - 1;
+      for (int col = 0; col < width; col++) {
+        dst[to - col] = src[from + col];
+      } //for col
+    } //for row
+  } //filterTile
+
   /**
    * Retrieve the filtered image.
    *
@@ -51,7 +124,7 @@ public class HFlip implements ImageFilter {
    * @return the filter's menu item label
    */
   public String getMenuLabel() {
-    return "HFlip(BW)";
+    return "HFlip";
   } //getMenuLabel
 
 }
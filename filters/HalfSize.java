@@ -0,0 +1,59 @@
+package filters;
+
+import imagelab.ImageFilter;
+import imagelab.ImgProvider;
+import imagelab.Resampler;
+import imagelab.StatelessFilter;
+
+/**
+ * An imageLab filter that shrinks the image to half its width and
+ * height with Lanczos resampling.
+ */
+public class HalfSize implements ImageFilter, StatelessFilter {
+
+  /**
+   * The filtered image.
+   */
+  private ImgProvider filteredImage;
+
+  /**
+   * The filter itself.
+   *
+   * @param ip the image to be filtered (not changed).
+   * @return the filtered image.
+   */
+  public ImgProvider apply(final ImgProvider ip) {
+    int w = Math.max(1, (ip.getWidth() + 1) / 2);
+    int h = Math.max(1, (ip.getHeight() + 1) / 2);
+    return ip.resize(w, h, Resampler.LANCZOS);
+  } //apply
+
+  /**
+   * Filter the image and display the result.
+   *
+   * @param ip the image to be filtered.
+   */
+  public void filter(final ImgProvider ip) {
+    filteredImage = apply(ip);
+    filteredImage.showPix("Half Size");
+  } //filter
+
+  /**
+   * Retrieve the filtered image.
+   *
+   * @return the filtered image.
+   */
+  public ImgProvider getImgProvider() {
+    return filteredImage;
+  } //getImgProvider
+
+  /**
+   * Retrieve the name of the filter to add to the menu.
+   *
+   * @return the filter's menu item label
+   */
+  public String getMenuLabel() {
+    return "Half Size";
+  } //getMenuLabel
+
+}
@@ -0,0 +1,51 @@
+package filters;
+
+import imagelab.ChannelOp;
+import imagelab.PixelBuffer;
+import imagelab.PointFilter;
+
+/**
+ * An imageLab filter that makes a negative of the image.
+ * Alpha is left unchanged.
+ */
+public class Invert extends PointFilter implements ChannelOp {
+
+  /** Bits of the red, green and blue channels of a packed pixel. */
+  private static final int RGB = 0x00FFFFFF;
+  /** Value of a channel at full intensity. */
+  private static final int MAX_VALUE = 255;
+
+  /**
+   * Invert the color channels of one pixel.
+   *
+   * @param p the packed ARGB pixel
+   * @return the inverted pixel
+   */
+  public int apply(final int p) {
+    return p ^ RGB;
+  } //apply
+
+  /**
+   * Invert one channel.
+   *
+   * @param channel the channel
+   * @param value its value
+   * @return the inverted value, or value itself for alpha
+   */
+  public int applyChannel(final int channel, final int value) {
+    if (channel == PixelBuffer.ALPHA) {
+      return value;
+    }
+    return MAX_VALUE - value;
+  } //applyChannel
+
+  /**
+   * Retrieve the name of the filter to add to the menu.
+   *
+   * @return the filter's menu item label
+   */
+  public String getMenuLabel() {
+    return "Invert";
+  } //getMenuLabel
+
+}
@@ -0,0 +1,60 @@
+package filters;
+
+import imagelab.ImageFilter;
+import imagelab.ImgProvider;
+import imagelab.IntegralImage;
+
+/**
+ * An imageLab filter that shows the local mean brightness around each
+ * pixel, computed from an integral image.
+ */
+public class LocalMean implements ImageFilter {
+
+  /** Pixels on each side of the center of the window. */
+  private static final int RADIUS = 7;
+
+  /**
+   * The filtered image.
+   */
+  private ImgProvider filteredImage;
+
+  /**
+   * The filter itself.
+   *
+   * @param ip the image to be filtered.
+   */
+  public void filter(final ImgProvider ip) {
+    IntegralImage ii = new IntegralImage(ip.getBWView());
+    int width = ii.getWidth();
+    int height = ii.getHeight();
+    short[][] im = new short[height][width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        im[y][x] = (short) ii.roundedMean(x, y, RADIUS);
+      } //for x
+    } //for y
+
+    filteredImage = new ImgProvider();
+    filteredImage.setBWImage(im);
+    filteredImage.showPix("Local Mean");
+  } //filter
+
+  /**
+   * Retrieve the filtered image.
+   *
+   * @return the filtered image.
+   */
+  public ImgProvider getImgProvider() {
+    return filteredImage;
+  } //getImgProvider
+
+  /**
+   * Retrieve the name of the filter to add to the menu.
+   *
+   * @return the filter's menu item label
+   */
+  public String getMenuLabel() {
+    return "Local Mean";
+  } //getMenuLabel
+
+}
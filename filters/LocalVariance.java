@@ -0,0 +1,66 @@
+package filters;
+
+import imagelab.ImageFilter;
+import imagelab.ImgProvider;
+import imagelab.IntegralImage;
+
+/**
+ * An imageLab filter that shows how much the brightness varies around
+ * each pixel (its local standard deviation), computed from an
+ * integral image.  Flat areas are dark and edges and texture bright.
+ */
+public class LocalVariance implements ImageFilter {
+
+  /** Pixels on each side of the center of the window. */
+  private static final int RADIUS = 7;
+  /** Gray levels per unit of standard deviation (at most 127.5). */
+  private static final double SCALE = 2.0;
+  /** Largest gray value. */
+  private static final int MAX_VALUE = 255;
+
+  /**
+   * The filtered image.
+   */
+  private ImgProvider filteredImage;
+
+  /**
+   * The filter itself.
+   *
+   * @param ip the image to be filtered.
+   */
+  public void filter(final ImgProvider ip) {
+    IntegralImage ii = new IntegralImage(ip.getBWView(), true);
+    int width = ii.getWidth();
+    int height = ii.getHeight();
+    short[][] im = new short[height][width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        double sd = Math.sqrt(ii.variance(x, y, RADIUS));
+        im[y][x] = (short) Math.min(MAX_VALUE, Math.round(SCALE * sd));
+      } //for x
+    } //for y
+
+    filteredImage = new ImgProvider();
+    filteredImage.setBWImage(im);
+    filteredImage.showPix("Local Variance");
+  } //filter
+
+  /**
+   * Retrieve the filtered image.
+   *
+   * @return the filtered image.
+   */
+  public ImgProvider getImgProvider() {
+    return filteredImage;
+  } //getImgProvider
+
+  /**
+   * Retrieve the name of the filter to add to the menu.
+   *
+   * @return the filter's menu item label
+   */
+  public String getMenuLabel() {
+    return "Local Variance";
+  } //getMenuLabel
+
+}
@@ -1,40 +1,41 @@
 package filters;
 
-import imagelab.ImageFilter;
-import imagelab.ImgProvider;
+import imagelab.BulkPointOp;
+import imagelab.Kernels;
+import imagelab.PixelBuffer;
+import imagelab.PointFilter;
 
 /**
  * An imageLab filter that swaps the red and blue values of each pixel.
  */
-public class RBSwap implements ImageFilter {
+public class RBSwap extends PointFilter implements BulkPointOp {
 
-  /**
-   * The filtered image.
-   */
-  private ImgProvider filteredImage;
 
   /**
-   * The filter itself.
+   * Swap red and blue in one pixel.
    *
-   * @param ip the image to be filtered.
+   * @param p the packed ARGB pixel
+   * @return the pixel with red and blue exchanged
    */
-  public void filter(final ImgProvider ip) {
-    short[][] red = ip.getRed();
-    short[][] blue = ip.getBlue();
-
-    filteredImage = new ImgProvider();
-    filteredImage.setColors(blue, ip.getGreen(), red, ip.getAlpha());
-    filteredImage.showPix("Red <=> Blue");
-  } //filter
+  public int apply(final int p) {
+    return (p & PixelBuffer.ALPHA_GREEN)
+        | ((p >> PixelBuffer.RED_SHIFT) & PixelBuffer.MASK)
+        | ((p & PixelBuffer.MASK) << PixelBuffer.RED_SHIFT);
+  } //apply
 
   /**
-   * Retrieve the filtered image.
+   * Swap red and blue in a run of pixels.
    *
-   * @return the filtered image.
+   * @param src the input pixels
+   * @param from index of the first input pixel
+   * @param dst the output pixels
+   * @param to index of the first output pixel
+   * @param count number of pixels
    */
-  public ImgProvider getImgProvider() {
-    return filteredImage;
-  } //getImgProvider
+  public void apply(final int[] src, final int from,
+                    final int[] dst, final int to, final int count) {
+    Kernels.get().swapRedBlue(src, from, dst, to, count);
+  } //apply
 
   /**
    * Retrieve the name of the filter to add to the menu.
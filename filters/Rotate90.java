@@ -0,0 +1,57 @@
+package filters;
+
+import imagelab.ImageFilter;
+import imagelab.ImgProvider;
+import imagelab.StatelessFilter;
+import imagelab.Transforms;
+
+/**
+ * An imageLab filter that turns the image a quarter turn clockwise.
+ */
+public class Rotate90 implements ImageFilter, StatelessFilter {
+
+  /**
+   * The filtered image.
+   */
+  private ImgProvider filteredImage;
+
+  /**
+   * The filter itself.
+   *
+   * @param ip the image to be filtered (not changed).
+   * @return the filtered image.
+   */
+  public ImgProvider apply(final ImgProvider ip) {
+    return new ImgProvider(
+        ip.getCore().transform(Transforms.ROTATE_90));
+  } //apply
+
+  /**
+   * Filter the image and display the result.
+   *
+   * @param ip the image to be filtered.
+   */
+  public void filter(final ImgProvider ip) {
+    filteredImage = apply(ip);
+    filteredImage.showPix("Rotated 90");
+  } //filter
+
+  /**
+   * Retrieve the filtered image.
+   *
+   * @return the filtered image.
+   */
+  public ImgProvider getImgProvider() {
+    return filteredImage;
+  } //getImgProvider
+
+  /**
+   * Retrieve the name of the filter to add to the menu.
+   *
+   * @return the filter's menu item label
+   */
+  public String getMenuLabel() {
+    return "Rotate 90";
+  } //getMenuLabel
+
+}
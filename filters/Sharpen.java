@@ -0,0 +1,29 @@
+package filters;
+
+import imagelab.Convolution;
+import imagelab.ConvolutionKernel;
+
+/**
+ * An imageLab filter that sharpens the image with a 3x3
+ * Laplacian kernel.
+ */
+public class Sharpen extends Convolution {
+
+  /** Size of the kernel. */
+  private static final int SIZE = 3;
+
+  /** The weights, row by row. */
+  private static final double[] WEIGHTS = {
+    0, -1, 0,
+    -1, 5, -1,
+    0, -1, 0,
+  };
+
+  /**
+   * Create the filter.
+   */
+  public Sharpen() {
+    super(new ConvolutionKernel(SIZE, SIZE, WEIGHTS), "Sharpen");
+  }
+
+}
@@ -0,0 +1,24 @@
+package imagelab;
+
+import java.io.IOException;
+
+/**
+ * Receives an image a band of rows at a time.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public interface BandConsumer {
+    /**
+     * Accept one band of packed ARGB pixels.
+     * The array may be reused for the next band, so it must
+     * not be kept after this method returns.
+     * @param firstRow image row of the first row in the band
+     * @param rows number of rows in the band
+     * @param width number of pixels in each row
+     * @param pix the pixels, row by row, <CODE>width</CODE> per row
+     * @throws IOException if the band cannot be stored
+     */
+    void consume(int firstRow, int rows, int width, int[] pix)
+        throws IOException;
+}
@@ -0,0 +1,171 @@
+package imagelab;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Writes an image file from bands of rows.
+ * Formats whose writer can replace pixels in an empty image
+ * (such as TIFF) are encoded band by band.  Other formats are collected
+ * into a memory-mapped {@link TiledImage} and written from it when the
+ * encoder is closed, so either way memory use does not depend on the
+ * image height.  Alpha is kept by the formats that have it (PNG and
+ * TIFF); other formats are written as opaque RGB.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class BandEncoder implements BandConsumer, Closeable {
+    /** The image writer. */
+    private final ImageWriter writer;
+    /** The output stream. */
+    private final ImageOutputStream out;
+    /** Width of the image. */
+    private final int width;
+    /** Height of the image. */
+    private final int height;
+    /** true if bands are written as they arrive. */
+    private final boolean streaming;
+    /** true if alpha is written. */
+    private final boolean alpha;
+    /** Holds the whole image when the format cannot be streamed. */
+    private TiledImage whole;
+
+    /**
+     * Create an encoder.
+     * @param file the file to write
+     * @param format the ImageIO format name, such as "tiff" or "png"
+     * @param w width of the image
+     * @param h height of the image
+     * @throws IOException if the file cannot be created or there is
+     *         no writer for the format
+     */
+    public BandEncoder(final File file, final String format,
+                       final int w, final int h) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(
+            format);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for format " + format);
+        }
+        writer = writers.next();
+        width = w;
+        height = h;
+        alpha = keepsAlpha(format);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot replace " + file);
+        }
+        out = ImageIO.createImageOutputStream(file);
+        if (out == null) {
+            throw new IOException("Cannot create " + file);
+        }
+        writer.setOutput(out);
+        boolean empty = writer.canWriteEmpty();
+        if (empty) {
+            writer.prepareWriteEmpty(null,
+                ImageTypeSpecifier.createFromBufferedImageType(bandType()),
+                w, h, null, null, null);
+            empty = writer.canReplacePixels(0);
+            if (!empty) {
+                writer.abort();
+                writer.reset();
+                writer.setOutput(out);
+            }
+        }
+        streaming = empty;
+        if (!streaming) {
+            try {
+                whole = new TiledImage(w, h);
+            } catch (IOException | RuntimeException e) {
+                writer.dispose();
+                out.close();
+                throw e;
+            }
+        }
+    } //constructor
+
+    /**
+     * Tell whether a format keeps alpha when written by this encoder
+     * or by {@link ImageCore#save(File, String)}.
+     * @param format the ImageIO format name
+     * @return true for PNG and TIFF
+     */
+    static boolean keepsAlpha(final String format) {
+        String fmt = format.toLowerCase(Locale.ROOT);
+        return fmt.equals("png") || fmt.equals("tiff") || fmt.equals("tif");
+    }
+
+    /**
+     * Retrieve the BufferedImage type of the bands written.
+     * @return TYPE_INT_ARGB if alpha is kept, else TYPE_INT_RGB
+     */
+    private int bandType() {
+        if (alpha) {
+            return BufferedImage.TYPE_INT_ARGB;
+        }
+        return BufferedImage.TYPE_INT_RGB;
+    }
+
+    /**
+     * Tell whether this encoder writes bands as they arrive.
+     * @return true if memory use is independent of the image height
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Write (or collect) one band.
+     * @param firstRow image row of the first row in the band
+     * @param rows number of rows in the band
+     * @param bandWidth number of pixels in each row
+     * @param pix the pixels
+     * @throws IOException if the band cannot be written
+     */
+    public void consume(final int firstRow, final int rows,
+                        final int bandWidth, final int[] pix)
+        throws IOException {
+        if (!streaming) {
+            whole.consume(firstRow, rows, bandWidth, pix);
+            return;
+        }
+        BufferedImage band = new BufferedImage(bandWidth, rows, bandType());
+        band.setRGB(0, 0, bandWidth, rows, pix, 0, bandWidth);
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setDestinationOffset(new Point(0, firstRow));
+        writer.prepareReplacePixels(0,
+            new Rectangle(0, firstRow, bandWidth, rows));
+        writer.replacePixels(band.getRaster(), param);
+        writer.endReplacePixels();
+    } //consume
+
+    /**
+     * Finish the file.
+     * @throws IOException if the file cannot be written
+     */
+    public void close() throws IOException {
+        try {
+            if (streaming) {
+                writer.endWriteEmpty();
+            } else {
+                writer.write(new TiledRenderedImage(whole, alpha));
+            }
+        } finally {
+            writer.dispose();
+            out.close();
+            if (whole != null) {
+                whole.close();
+            }
+        }
+    } //close
+} //BandEncoder
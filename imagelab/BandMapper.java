@@ -0,0 +1,25 @@
+package imagelab;
+
+/**
+ * Computes a band of full-width rows of a new image from the same rows
+ * of the source image and a margin of rows above and below them.
+ * {@link ImageCore#mapBands(int, BandMapper)} uses it to run filters
+ * over a {@link TiledImage} a band at a time.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public interface BandMapper {
+    /**
+     * Compute a band.  src holds whole rows of the image; it begins
+     * margin rows above the band and ends margin rows below it, or at
+     * the top or bottom of the image if that comes first, so src can
+     * be treated as an image of its own.  Only the rows of dst that
+     * match the band are kept.
+     * @param src the source rows (not changed)
+     * @param dst where to put the result for every row of src
+     * @param width pixels in each row
+     * @param rows number of rows in src and dst
+     */
+    void map(int[] src, int[] dst, int width, int rows);
+}
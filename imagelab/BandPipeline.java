@@ -0,0 +1,145 @@
+package imagelab;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a chain of {@link StreamingFilter}s over an image file (or an
+ * image already in memory) a band of rows at a time: each band is
+ * decoded, passed through every filter and handed to a sink (for
+ * example a {@link BandEncoder}) before the next band is decoded.
+ * Memory use is proportional to the image width times the band
+ * height plus the filters' neighborhoods.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class BandPipeline {
+    /** Default number of rows per band. */
+    public static final int DEFAULT_BAND_HEIGHT = 64;
+
+    /** The filters, in the order they are applied. */
+    private final List<StreamingFilter> chain;
+    /** Number of rows per band. */
+    private int bandHeight = DEFAULT_BAND_HEIGHT;
+
+    /**
+     * Create a pipeline.
+     * @param filters the filters, in the order they are applied
+     */
+    public BandPipeline(final StreamingFilter... filters) {
+        this(Arrays.asList(filters));
+    }
+
+    /**
+     * Create a pipeline.
+     * @param filters the filters, in the order they are applied
+     */
+    public BandPipeline(final List<StreamingFilter> filters) {
+        chain = new ArrayList<StreamingFilter>(filters);
+    }
+
+    /**
+     * Set the number of rows per band.
+     * @param rows rows per band
+     */
+    public void setBandHeight(final int rows) {
+        if (rows < 1) {
+            throw new IllegalArgumentException(
+                "BandPipeline: band height must be at least 1, not " + rows);
+        }
+        bandHeight = rows;
+    }
+
+    /**
+     * Filter an image file into another image file.
+     * @param input the image to read
+     * @param output the image to write
+     * @param format the ImageIO format name of the output, such as "tiff"
+     * @throws IOException if either file cannot be processed
+     */
+    public void run(final File input, final File output, final String format)
+        throws IOException {
+        Dimension size = ImageDecoder.size(input);
+        try (BandEncoder encoder = new BandEncoder(
+                output, format, size.width, size.height)) {
+            run(input, null, 1, encoder);
+        }
+    } //run
+
+    /**
+     * Filter part of an image file, passing the result to a sink.
+     * @param input the image to read
+     * @param region the part of the image to read; null for all of it
+     * @param subsample keep one pixel in every subsample columns and rows
+     * @param sink receives the filtered bands from top to bottom
+     * @return the size of the filtered image
+     * @throws IOException if the file cannot be read or the sink fails
+     */
+    public Dimension run(final File input, final Rectangle region,
+                         final int subsample, final BandConsumer sink)
+        throws IOException {
+        Rectangle src = new Rectangle(ImageDecoder.size(input));
+        if (region != null) {
+            src = src.intersection(region);
+        }
+        int width  = (src.width + subsample - 1) / subsample;
+        int height = (src.height + subsample - 1) / subsample;
+        return ImageDecoder.decodeBands(
+            input, src, subsample, bandHeight, head(width, height, sink));
+    } //run
+
+    /**
+     * Filter an image held in memory, passing the result to a sink.
+     * @param input the image (not changed)
+     * @param sink receives the filtered bands from top to bottom
+     * @return the size of the filtered image
+     * @throws IOException if the sink fails
+     */
+    public Dimension run(final ImageCore input, final BandConsumer sink)
+        throws IOException {
+        input.ensureLoaded();
+        input.requireInMemory();
+        int width = input.getWidth();
+        int height = input.getHeight();
+        BandConsumer head = head(width, height, sink);
+        int[] pix = input.getPix();
+        int[] band = new int[Math.min(height, bandHeight) * width];
+        Progress progress = Progress.current();
+        if (progress != null) {
+            progress.addTotal((long) width * height);
+        }
+        for (int row = 0; row < height; row += bandHeight) {
+            int rows = Math.min(bandHeight, height - row);
+            if (progress != null) {
+                progress.check();
+                progress.addDone((long) rows * width);
+            }
+            System.arraycopy(pix, row * width, band, 0, rows * width);
+            head.consume(row, rows, width, band);
+        }
+        return new Dimension(width, height);
+    } //run
+
+    /**
+     * Connect the stages of the pipeline.
+     * @param width width of the image
+     * @param height height of the image
+     * @param sink receives the output of the last stage
+     * @return the consumer for the first stage's input
+     */
+    private BandConsumer head(final int width, final int height,
+                              final BandConsumer sink) {
+        BandConsumer head = sink;
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            head = new BandStage(chain.get(i), head, width, height,
+                bandHeight);
+        }
+        return head;
+    } //head
+} //BandPipeline
@@ -0,0 +1,95 @@
+package imagelab;
+
+import java.io.IOException;
+
+/**
+ * Runs one {@link StreamingFilter} of a {@link BandPipeline}.
+ * Incoming rows are kept in a ring buffer just large enough for one
+ * band plus the filter's neighborhood; as soon as every input row an
+ * output band depends on has arrived, the band is filtered and passed on.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+class BandStage implements BandConsumer {
+    /** The filter. */
+    private final StreamingFilter filter;
+    /** Receives the filtered bands. */
+    private final BandConsumer next;
+    /** Width of the image. */
+    private final int width;
+    /** Height of the image. */
+    private final int height;
+    /** The filter's neighborhood radius. */
+    private final int radius;
+    /** Largest number of rows in an incoming or outgoing band. */
+    private final int bandHeight;
+    /** Rows held by the ring buffer. */
+    private final int ringRows;
+    /** Ring buffer of input rows; row y is at (y % ringRows) * width. */
+    private final int[] ring;
+    /** Output band buffer. */
+    private final int[] outPix;
+    /** Number of input rows received. */
+    private int received;
+    /** Number of output rows passed on. */
+    private int emitted;
+
+    /**
+     * Create a stage.
+     * @param f the filter
+     * @param to receives the filtered bands
+     * @param w width of the image
+     * @param h height of the image
+     * @param band largest number of rows in an incoming band
+     */
+    BandStage(final StreamingFilter f, final BandConsumer to,
+              final int w, final int h, final int band) {
+        filter = f;
+        next = to;
+        width = w;
+        height = h;
+        radius = Math.max(0, f.getNeighborhood());
+        bandHeight = band;
+        ringRows = Math.min(h, band + 2 * radius);
+        ring = new int[ringRows * w];
+        outPix = new int[band * w];
+    }
+
+    /**
+     * Accept a band of input rows and pass on every output row
+     * that can now be computed.
+     * @param firstRow image row of the first row in the band
+     * @param rows number of rows in the band
+     * @param bandWidth number of pixels in each row
+     * @param pix the pixels
+     * @throws IOException if a later stage fails
+     */
+    public void consume(final int firstRow, final int rows,
+                        final int bandWidth, final int[] pix)
+        throws IOException {
+        if (firstRow != received || bandWidth != width || rows > bandHeight) {
+            throw new IllegalStateException("BandStage: expected rows from "
+                + received + " of width " + width + ", got " + rows
+                + " from " + firstRow + " of width " + bandWidth);
+        }
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(pix, r * width,
+                ring, ((firstRow + r) % ringRows) * width, width);
+        }
+        received += rows;
+        int ready = received - radius;
+        if (received == height) {
+            ready = height;
+        }
+        while (emitted < ready) {
+            int count = Math.min(bandHeight, ready - emitted);
+            RowBand in = new RowBand(ring, width, height,
+                emitted, count, ringRows);
+            RowBand out = new RowBand(outPix, width, height, emitted, count);
+            filter.filterBand(in, out);
+            next.consume(emitted, count, width, outPix);
+            emitted += count;
+        }
+    } //consume
+} //BandStage
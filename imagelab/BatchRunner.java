@@ -0,0 +1,616 @@
+package imagelab;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+/**
+ * BatchRunner applies a chain of filters to many image files without
+ * the ImageLab user interface.
+ * Files pass through three stages (decode, filter and encode), each run
+ * by its own pool of threads.  The stages are joined by bounded queues,
+ * so a slow stage holds back the ones in front of it and the number of
+ * images in memory at once stays bounded however many files there are.
+ * <p>
+ * Usage: <CODE>java Run --batch -f Filter1,Filter2 -o outDir
+ * [options] input ...</CODE> where each input is a file, a directory
+ * or a glob such as <CODE>photos/*.jpg</CODE>.  Options are
+ * <CODE>--format name</CODE>, <CODE>--decoders n</CODE>,
+ * <CODE>--workers n</CODE>, <CODE>--encoders n</CODE> and
+ * <CODE>--queue n</CODE>.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class BatchRunner {
+    /** Nanoseconds per second. */
+    private static final double NANOS = 1e9;
+    /** Nanoseconds per millisecond. */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /** Marks the end of the files on a queue. */
+    private static final Item END = new Item(null, null);
+
+    /** The filters to apply, shared by all the filtering threads. */
+    private final FilterChain chain;
+    /** Directory to write the results to. */
+    private final File outDir;
+    /** ImageIO format name of the results. */
+    private final String format;
+    /** Number of decoding threads. */
+    private int decoders;
+    /** Number of filtering threads. */
+    private int workers;
+    /** Number of encoding threads. */
+    private int encoders;
+    /** Capacity of each queue between stages. */
+    private int queueSize;
+
+    /** Statistics of the decode stage. */
+    private Stage decode;
+    /** Statistics of the filter stage. */
+    private Stage filter;
+    /** Statistics of the encode stage. */
+    private Stage encode;
+    /** Wall-clock time of the last run in nanoseconds. */
+    private long elapsed;
+
+    /**
+     * Create a batch runner that uses one thread per processor in
+     * each stage.
+     * @param filters the filters to apply, in order
+     * @param dir directory to write the results to
+     * @param fmt ImageIO format name of the results, such as "png"
+     */
+    public BatchRunner(final List<Class<? extends ImageFilter>> filters,
+                       final File dir, final String fmt) {
+        chain = new FilterChain();
+        for (Class<? extends ImageFilter> cl : filters) {
+            chain.then(cl);
+        }
+        outDir = dir;
+        format = fmt;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        decoders = cpus;
+        workers = cpus;
+        encoders = cpus;
+        queueSize = cpus;
+    }
+
+    /**
+     * Set the number of threads in each stage.
+     * @param dec decoding threads
+     * @param work filtering threads
+     * @param enc encoding threads
+     */
+    public void setThreads(final int dec, final int work, final int enc) {
+        if (dec < 1 || work < 1 || enc < 1) {
+            throw new IllegalArgumentException(
+                "BatchRunner: each stage needs at least one thread");
+        }
+        decoders = dec;
+        workers = work;
+        encoders = enc;
+    }
+
+    /**
+     * Set the capacity of the queues between stages.
+     * At most <CODE>2 * size</CODE> images wait between stages.
+     * @param size images held by each queue
+     */
+    public void setQueueSize(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException(
+                "BatchRunner: queue size must be positive");
+        }
+        queueSize = size;
+    }
+
+    /**
+     * Run every file through the filter chain.
+     * Files that fail in any stage are reported and skipped.
+     * @param files the image files to process
+     * @return the number of images written
+     * @throws IllegalArgumentException if the output directory cannot
+     *         be made or two files would have the same output file
+     * @throws InterruptedException if interrupted while waiting for
+     *         the stages to finish
+     */
+    public int run(final List<File> files) throws InterruptedException {
+        checkOutputs(files);
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IllegalArgumentException(
+                "BatchRunner: cannot create " + outDir);
+        }
+        final BlockingQueue<Item> decoded =
+            new ArrayBlockingQueue<Item>(queueSize);
+        final BlockingQueue<Item> filtered =
+            new ArrayBlockingQueue<Item>(queueSize);
+        final AtomicInteger next = new AtomicInteger();
+        decode = new Stage("decode", decoders);
+        filter = new Stage("filter", workers);
+        encode = new Stage("encode", encoders);
+        long start = System.nanoTime();
+
+        Thread[] dec = decode.start(new Runnable() {
+            public void run() {
+                int k;
+                while ((k = next.getAndIncrement()) < files.size()) {
+                    File f = files.get(k);
+                    long t0 = System.nanoTime();
+                    Item item = decodeFile(f);
+                    decode.done(item != null, System.nanoTime() - t0);
+                    if (item != null && !offer(decoded, item)) {
+                        return;
+                    }
+                }
+            }
+        });
+        Thread[] work = filter.start(new Runnable() {
+            public void run() {
+                Item item;
+                while ((item = take(decoded)) != END) {
+                    long t0 = System.nanoTime();
+                    Item result = filterImage(item);
+                    filter.done(result != null, System.nanoTime() - t0);
+                    if (result != null && !offer(filtered, result)) {
+                        return;
+                    }
+                }
+            }
+        });
+        Thread[] enc = encode.start(new Runnable() {
+            public void run() {
+                Item item;
+                while ((item = take(filtered)) != END) {
+                    long t0 = System.nanoTime();
+                    boolean ok = encodeImage(item);
+                    encode.done(ok, System.nanoTime() - t0);
+                }
+            }
+        });
+
+        join(dec);
+        endOf(decoded, workers);
+        join(work);
+        endOf(filtered, encoders);
+        join(enc);
+        elapsed = System.nanoTime() - start;
+        return encode.getCount();
+    } //run
+
+    /**
+     * Read an image file.  Like the other stages it catches every
+     * Throwable, so that an image too large for the heap fails alone
+     * instead of ending the stage's thread and stalling the batch.
+     * @param f the file
+     * @return the decoded image, or null if it cannot be read
+     */
+    private Item decodeFile(final File f) {
+        ImageCore core = new ImageCore(f.getPath());
+        try {
+            core.load();
+            return new Item(f, core);
+        } catch (Throwable e) {
+            System.err.println("BatchRunner: " + f + ": " + e);
+            return null;
+        }
+    } //decodeFile
+
+    /**
+     * Apply the filter chain to an image.  The one chain is shared by
+     * every filtering thread; its stages run as StatelessFilters.
+     * The tiles of a tiled input are released once it is filtered.
+     * @param item the decoded image
+     * @return the filtered image, or null if a filter failed
+     */
+    private Item filterImage(final Item item) {
+        ImageCore result = null;
+        try {
+            result = chain.run(item.core);
+            return new Item(item.source, result);
+        } catch (Throwable e) {
+            System.err.println("BatchRunner: " + item.source + ": " + e);
+            return null;
+        } finally {
+            if (result != item.core) {
+                item.core.dropTiles();
+            }
+        }
+    } //filterImage
+
+    /**
+     * Write a filtered image to the output directory and release its
+     * tiles, if any.
+     * @param item the filtered image
+     * @return true if the image was written
+     */
+    private boolean encodeImage(final Item item) {
+        File out = outputFile(item.source);
+        try {
+            item.core.save(out, format);
+            return true;
+        } catch (Throwable e) {
+            System.err.println("BatchRunner: " + out + ": " + e);
+            return false;
+        } finally {
+            item.core.dropTiles();
+        }
+    } //encodeImage
+
+    /**
+     * Name of the result for an input file: the same base name in the
+     * output directory with the extension of the output format.
+     * @param source the input file
+     * @return the output file
+     */
+    private File outputFile(final File source) {
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        String ext = format.toLowerCase(Locale.ROOT);
+        if (ext.equals("jpeg")) {
+            ext = "jpg";
+        }
+        return new File(outDir, name + "." + ext);
+    } //outputFile
+
+    /**
+     * Fail if two input files would be written to the same output
+     * file, such as a.jpg and a.png, or img.jpg from two directories.
+     * @param files the image files to process
+     * @throws IllegalArgumentException naming the first such pair
+     */
+    private void checkOutputs(final List<File> files) {
+        Map<File, File> writers = new HashMap<File, File>();
+        for (File f : files) {
+            File out = outputFile(f).getAbsoluteFile();
+            File other = writers.put(out, f);
+            if (other != null) {
+                throw new IllegalArgumentException("BatchRunner: " + other
+                    + " and " + f + " would both be written to " + out);
+            }
+        }
+    } //checkOutputs
+
+    /**
+     * Put an image on a queue, waiting while the queue is full.
+     * @param q the queue
+     * @param item the image
+     * @return false if the thread was interrupted while waiting
+     */
+    private static boolean offer(final BlockingQueue<Item> q,
+                                 final Item item) {
+        try {
+            q.put(item);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Take the next image from a queue, waiting while it is empty.
+     * @param q the queue
+     * @return the image, or END if interrupted while waiting
+     */
+    private static Item take(final BlockingQueue<Item> q) {
+        try {
+            return q.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return END;
+        }
+    }
+
+    /**
+     * Tell each thread of the next stage that no more images will come.
+     * @param q the queue feeding the stage
+     * @param threads number of threads in the stage
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void endOf(final BlockingQueue<Item> q,
+                              final int threads)
+        throws InterruptedException {
+        for (int k = 0; k < threads; k++) {
+            q.put(END);
+        }
+    }
+
+    /**
+     * Wait for the threads of a stage to finish.
+     * @param threads the threads
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void join(final Thread[] threads)
+        throws InterruptedException {
+        for (Thread t : threads) {
+            t.join();
+        }
+    }
+
+    /**
+     * Print the number of images and images per second of each stage.
+     * A stage's rate is how fast its threads process images while they
+     * are busy; the slowest stage limits the whole batch.
+     */
+    public void printSummary() {
+        double secs = elapsed / NANOS;
+        for (Stage s : new Stage[] {decode, filter, encode}) {
+            System.out.println(s);
+        }
+        System.out.printf(Locale.ROOT,
+            "total   %6d images in %.1f s, %.1f images/s%n",
+            encode.getCount(), secs,
+            secs > 0 ? encode.getCount() / secs : 0.0);
+    } //printSummary
+
+    /**
+     * Tell whether any image failed in the last run.
+     * @return true if some image was not written
+     */
+    public boolean hadFailures() {
+        return decode.failed.get() + filter.failed.get()
+            + encode.failed.get() > 0;
+    }
+
+    /**
+     * List the image files named by a file, directory or glob.
+     * A directory stands for the files in it that ImageIO can read.
+     * @param spec the file, directory or glob
+     * @return the files, sorted by name
+     */
+    public static List<File> expand(final String spec) {
+        List<File> found = new ArrayList<File>();
+        File f = new File(spec);
+        if (f.isFile()) {
+            found.add(f);
+            return found;
+        }
+        File dir;
+        PathMatcher match;
+        if (f.isDirectory()) {
+            dir = f;
+            match = null;
+        } else {
+            dir = f.getAbsoluteFile().getParentFile();
+            match = FileSystems.getDefault().getPathMatcher(
+                "glob:" + f.getName());
+        }
+        File[] fil = dir == null ? null : dir.listFiles();
+        if (fil == null) {
+            return found;
+        }
+        Arrays.sort(fil);
+        List<String> suffixes = Arrays.asList(ImageIO.getReaderFileSuffixes());
+        for (File c : fil) {
+            String name = c.getName();
+            if (!c.isFile()) {
+                continue;
+            }
+            if (match != null) {
+                if (match.matches(Paths.get(name))) {
+                    found.add(c);
+                }
+            } else {
+                int dot = name.lastIndexOf('.');
+                if (dot > 0 && suffixes.contains(
+                        name.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+                    found.add(c);
+                }
+            }
+        }
+        return found;
+    } //expand
+
+    /**
+     * Run a batch from the command line.
+     * @param args see the class description
+     */
+    public static void main(final String[] args) {
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        List<Class<? extends ImageFilter>> filters =
+            new ArrayList<Class<? extends ImageFilter>>();
+        List<File> files = new ArrayList<File>();
+        String out = null;
+        String fmt = "png";
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int[] threads = {cpus, cpus, cpus};
+        int queue = cpus;
+        try {
+            for (int k = 0; k < args.length; k++) {
+                String a = args[k];
+                if (a.equals("-f") || a.equals("--filters")) {
+                    for (String name : args[++k].split(",")) {
+                        filters.add(lookup(name.trim()));
+                    }
+                } else if (a.equals("-o") || a.equals("--out")) {
+                    out = args[++k];
+                } else if (a.equals("--format")) {
+                    fmt = args[++k];
+                } else if (a.equals("--decoders")) {
+                    threads[0] = Integer.parseInt(args[++k]);
+                } else if (a.equals("--workers")) {
+                    threads[1] = Integer.parseInt(args[++k]);
+                } else if (a.equals("--encoders")) {
+                    threads[2] = Integer.parseInt(args[++k]);
+                } else if (a.equals("--queue")) {
+                    queue = Integer.parseInt(args[++k]);
+                } else {
+                    List<File> more = expand(a);
+                    if (more.isEmpty()) {
+                        System.err.println("BatchRunner: no images match "
+                            + a);
+                    }
+                    files.addAll(more);
+                }
+            } //for k
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            usage(e.getMessage());
+            return;
+        }
+        if (out == null || filters.isEmpty() || files.isEmpty()) {
+            usage(null);
+            return;
+        }
+        BatchRunner batch = new BatchRunner(filters, new File(out), fmt);
+        try {
+            batch.setThreads(threads[0], threads[1], threads[2]);
+            batch.setQueueSize(queue);
+            batch.run(files);
+        } catch (IllegalArgumentException e) {
+            usage(e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("BatchRunner: interrupted");
+            System.exit(1);
+        }
+        batch.printSummary();
+        if (batch.hadFailures()) {
+            System.exit(1);
+        }
+    } //main
+
+    /**
+     * Find a filter class by name.
+     * @param name the class name, with or without the filters package
+     * @return the filter class
+     * @throws IllegalArgumentException if there is no such filter
+     */
+    private static Class<? extends ImageFilter> lookup(final String name) {
+        Class<? extends ImageFilter> cl = null;
+        try {
+            cl = FilterLoader.forName(name);
+        } catch (ClassNotFoundException e) {
+            cl = null;
+        }
+        if (cl == null) {
+            StringBuilder known = new StringBuilder();
+            for (Class<? extends ImageFilter> c
+                     : FilterLoader.discover(ImageLab.FILTER_DIR)) {
+                known.append(' ').append(c.getSimpleName());
+            }
+            throw new IllegalArgumentException("no filter " + name
+                + "; available:" + known);
+        }
+        return cl;
+    } //lookup
+
+    /**
+     * Print how to use the batch runner and set a failing exit status.
+     * @param problem what was wrong with the arguments, or null
+     */
+    private static void usage(final String problem) {
+        if (problem != null) {
+            System.err.println("BatchRunner: " + problem);
+        }
+        System.err.println("usage: java Run --batch -f Filter1,Filter2"
+            + " -o outDir [--format png] [--decoders n] [--workers n]"
+            + " [--encoders n] [--queue n] input ...");
+        System.exit(2);
+    }
+
+    /** An image on its way through the stages. */
+    private static final class Item {
+        /** The file the image was read from. */
+        private final File source;
+        /** The pixels. */
+        private final ImageCore core;
+
+        /**
+         * Create an item.
+         * @param f the file the image was read from
+         * @param ic the pixels
+         */
+        Item(final File f, final ImageCore ic) {
+            source = f;
+            core = ic;
+        }
+    } //Item
+
+    /** The threads and statistics of one stage. */
+    private static final class Stage {
+        /** Name used for threads and in the summary. */
+        private final String name;
+        /** Number of threads. */
+        private final int threads;
+        /** Images processed successfully. */
+        private final AtomicInteger count = new AtomicInteger();
+        /** Images that failed. */
+        private final AtomicInteger failed = new AtomicInteger();
+        /** Total time the threads spent working, in nanoseconds. */
+        private final AtomicLong busy = new AtomicLong();
+
+        /**
+         * Create a stage.
+         * @param n the name
+         * @param t number of threads
+         */
+        Stage(final String n, final int t) {
+            name = n;
+            threads = t;
+        }
+
+        /**
+         * Start the threads of this stage.
+         * @param body what each thread runs
+         * @return the threads
+         */
+        Thread[] start(final Runnable body) {
+            Thread[] all = new Thread[threads];
+            for (int k = 0; k < threads; k++) {
+                all[k] = new Thread(body, "batch-" + name + "-" + (k + 1));
+                all[k].start();
+            }
+            return all;
+        }
+
+        /**
+         * Record one image.
+         * @param ok true if the image was processed successfully
+         * @param nanos time taken
+         */
+        void done(final boolean ok, final long nanos) {
+            (ok ? count : failed).incrementAndGet();
+            busy.addAndGet(nanos);
+        }
+
+        /**
+         * Number of images processed successfully.
+         * @return the count
+         */
+        int getCount() {
+            return count.get();
+        }
+
+        @Override
+        public String toString() {
+            int n = count.get() + failed.get();
+            double perThread = busy.get() / NANOS / threads;
+            return String.format(Locale.ROOT,
+                "%-7s %6d images %4d failed %8.1f images/s"
+                + " (%d threads, %.1f ms/image)",
+                name, count.get(), failed.get(),
+                perThread > 0 ? n / perThread : 0.0, threads,
+                n > 0 ? busy.get() / NANOS_PER_MILLI / n : 0.0);
+        }
+    } //Stage
+} //BatchRunner
@@ -0,0 +1,22 @@
+package imagelab;
+
+/**
+ * A point operation with its own loop over a run of pixels, for
+ * operations that can do better than one {@link #apply(int)} call per
+ * pixel (for example with the {@link PixelKernels}).
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public interface BulkPointOp extends PointOp {
+    /**
+     * Apply the operation to a run of pixels.
+     * The source and destination may be the same array.
+     * @param src the input pixels
+     * @param from index of the first input pixel
+     * @param dst the output pixels
+     * @param to index of the first output pixel
+     * @param count number of pixels
+     */
+    void apply(int[] src, int from, int[] dst, int to, int count);
+}
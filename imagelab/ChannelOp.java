@@ -0,0 +1,21 @@
+package imagelab;
+
+/**
+ * A point operation that treats each channel separately: the output
+ * value of a channel depends only on the input value of the same
+ * channel.  Such operations are pre-computed by {@link PointOps} into
+ * one 256-entry lookup table per channel.
+ * {@link #apply(int)} must agree with applyChannel on every channel.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public interface ChannelOp extends PointOp {
+    /**
+     * Compute the output value of one channel.
+     * @param channel PixelBuffer.RED, GREEN, BLUE or ALPHA
+     * @param value the input value of the channel (0 to 255)
+     * @return the output value of the channel (0 to 255)
+     */
+    int applyChannel(int channel, int value);
+}
@@ -0,0 +1,294 @@
+package imagelab;
+
+/**
+ * An ImageFilter that convolves every channel (including alpha) of an
+ * image with a {@link ConvolutionKernel}.
+ * Separable kernels are applied as a horizontal pass followed by a
+ * vertical pass, so a 15x15 Gaussian costs 30 multiplies per channel
+ * instead of 225.  All arithmetic is in integer fixed point.  The
+ * image is filtered in tiles on all processors by the
+ * {@link TileExecutor}, whose halos repeat the edge pixels, so the
+ * inner loops have no border tests.
+ * Filters in the filters directory extend this class with a
+ * no-argument constructor that picks the kernel.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class Convolution
+    implements ImageFilter, StatelessFilter, ParallelFilter {
+    /** Fraction bits of the horizontal (or only) pass weights. */
+    private static final int WEIGHT_BITS = 12;
+    /** Fraction bits dropped between the two passes. */
+    private static final int PASS_SHIFT = 8;
+    /** Fraction bits of the vertical pass weights. */
+    private static final int COLUMN_BITS = 12;
+    /** Value of a channel at full intensity. */
+    private static final int MAX_VALUE = 255;
+
+    /** Per-thread buffers for the result of the horizontal pass. */
+    private static final ThreadLocal<int[][]> SCRATCH =
+        new ThreadLocal<int[][]>();
+
+    /** The kernel. */
+    private final ConvolutionKernel kernel;
+    /** Label for the menu and the result window. */
+    private final String label;
+    /** Horizontal radius of the kernel. */
+    private final int rx;
+    /** Vertical radius of the kernel. */
+    private final int ry;
+    /** Fixed-point row weights, or all weights if not separable. */
+    private final int[] rowWeights;
+    /** Fixed-point column weights, or null if not separable. */
+    private final int[] columnWeights;
+    /** The filtered image. */
+    private ImgProvider filteredImage;
+
+    /**
+     * Create a convolution filter.
+     * @param k the kernel
+     * @param name label for the menu and the result window
+     */
+    public Convolution(final ConvolutionKernel k, final String name) {
+        kernel = k;
+        label = name;
+        rx = k.getWidth() / 2;
+        ry = k.getHeight() / 2;
+        if (k.isSeparable()) {
+            rowWeights = ConvolutionKernel.toFixed(k.getRow(), WEIGHT_BITS);
+            columnWeights =
+                ConvolutionKernel.toFixed(k.getColumn(), COLUMN_BITS);
+        } else {
+            rowWeights =
+                ConvolutionKernel.toFixed(k.getWeights(), WEIGHT_BITS);
+            columnWeights = null;
+        }
+    }
+
+    /**
+     * Retrieve the kernel.
+     * @return the kernel
+     */
+    public ConvolutionKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * Convolve the image.
+     * @param ip the image to be filtered (not changed)
+     * @return the filtered image
+     */
+    public ImgProvider apply(final ImgProvider ip) {
+        return new ImgProvider(
+            TileExecutor.getDefault().apply(this, ip.getCore()));
+    }
+
+    /**
+     * Convolve the image and display the result.
+     * @param ip the image to be filtered
+     */
+    public void filter(final ImgProvider ip) {
+        filteredImage = apply(ip);
+        filteredImage.showPix(label);
+    } //filter
+
+    /**
+     * Any rectangle of the output can be computed on its own.
+     * @return TILE_PARALLEL
+     */
+    public int getParallelism() {
+        return TILE_PARALLEL;
+    }
+
+    /**
+     * Half the kernel size.
+     * @return the larger of the kernel's horizontal and vertical radii
+     */
+    public int getRadius() {
+        return Math.max(rx, ry);
+    }
+
+    /**
+     * Convolve one tile.
+     * @param in the input tile and its halo
+     * @param out the output tile
+     */
+    public void filterTile(final HaloTile in, final HaloTile out) {
+        if (columnWeights != null) {
+            separable(in, out);
+        } else {
+            direct(in, out);
+        }
+    }
+
+    /**
+     * Convolve a tile in two passes.  The horizontal pass keeps
+     * PASS_SHIFT fewer fraction bits than it computes, so that the
+     * vertical pass cannot overflow for any reasonable kernel.
+     * @param in the input tile and its halo
+     * @param out the output tile
+     */
+    private void separable(final HaloTile in, final HaloTile out) {
+        int w = in.getWidth();
+        int h = in.getHeight();
+        int rows = h + 2 * ry;
+        int[][] tmp = scratch(w * rows);
+        int[] ta = tmp[0];
+        int[] tr = tmp[1];
+        int[] tg = tmp[2];
+        int[] tb = tmp[3];
+        int[] src = in.getData();
+        int[] hw = rowWeights;
+        int taps = hw.length;
+        int half = 1 << (PASS_SHIFT - 1);
+        for (int r = 0; r < rows; r++) {
+            int start = in.index(in.getX() - rx, in.getY() - ry + r);
+            int to = r * w;
+            for (int col = 0; col < w; col++) {
+                int sa = 0;
+                int sr = 0;
+                int sg = 0;
+                int sb = 0;
+                int from = start + col;
+                for (int k = 0; k < taps; k++) {
+                    int p = src[from + k];
+                    int wt = hw[k];
+                    sa += wt * (p >>> PixelBuffer.ALPHA_SHIFT);
+                    sr += wt * ((p >> PixelBuffer.RED_SHIFT)
+                                & PixelBuffer.MASK);
+                    sg += wt * ((p >> PixelBuffer.GREEN_SHIFT)
+                                & PixelBuffer.MASK);
+                    sb += wt * (p & PixelBuffer.MASK);
+                }
+                ta[to + col] = (sa + half) >> PASS_SHIFT;
+                tr[to + col] = (sr + half) >> PASS_SHIFT;
+                tg[to + col] = (sg + half) >> PASS_SHIFT;
+                tb[to + col] = (sb + half) >> PASS_SHIFT;
+            } //for col
+        } //for r
+
+        int[] vw = columnWeights;
+        int vtaps = vw.length;
+        int shift = WEIGHT_BITS - PASS_SHIFT + COLUMN_BITS;
+        int round = 1 << (shift - 1);
+        int[] dst = out.getData();
+        for (int r = 0; r < h; r++) {
+            int to = out.index(out.getX(), out.getY() + r);
+            for (int col = 0; col < w; col++) {
+                int sa = round;
+                int sr = round;
+                int sg = round;
+                int sb = round;
+                int from = r * w + col;
+                for (int k = 0; k < vtaps; k++) {
+                    int wt = vw[k];
+                    sa += wt * ta[from];
+                    sr += wt * tr[from];
+                    sg += wt * tg[from];
+                    sb += wt * tb[from];
+                    from += w;
+                }
+                dst[to + col] = pack(sa >> shift, sr >> shift,
+                                     sg >> shift, sb >> shift);
+            } //for col
+        } //for r
+    } //separable
+
+    /**
+     * Convolve a tile with the full grid of weights.
+     * @param in the input tile and its halo
+     * @param out the output tile
+     */
+    private void direct(final HaloTile in, final HaloTile out) {
+        int w = in.getWidth();
+        int h = in.getHeight();
+        int kw = 2 * rx + 1;
+        int kh = 2 * ry + 1;
+        int stride = in.getStride();
+        int[] src = in.getData();
+        int[] dst = out.getData();
+        int[] wts = rowWeights;
+        int round = 1 << (WEIGHT_BITS - 1);
+        for (int r = 0; r < h; r++) {
+            int start = in.index(in.getX() - rx, in.getY() + r - ry);
+            int to = out.index(out.getX(), out.getY() + r);
+            for (int col = 0; col < w; col++) {
+                int sa = round;
+                int sr = round;
+                int sg = round;
+                int sb = round;
+                int k = 0;
+                for (int ky = 0; ky < kh; ky++) {
+                    int from = start + ky * stride + col;
+                    for (int kx = 0; kx < kw; kx++) {
+                        int p = src[from + kx];
+                        int wt = wts[k++];
+                        sa += wt * (p >>> PixelBuffer.ALPHA_SHIFT);
+                        sr += wt * ((p >> PixelBuffer.RED_SHIFT)
+                                    & PixelBuffer.MASK);
+                        sg += wt * ((p >> PixelBuffer.GREEN_SHIFT)
+                                    & PixelBuffer.MASK);
+                        sb += wt * (p & PixelBuffer.MASK);
+                    }
+                }
+                dst[to + col] = pack(sa >> WEIGHT_BITS, sr >> WEIGHT_BITS,
+                                     sg >> WEIGHT_BITS, sb >> WEIGHT_BITS);
+            } //for col
+        } //for r
+    } //direct
+
+    /**
+     * Clamp four channel values to 0 to 255 and pack them.
+     * @param a alpha
+     * @param r red
+     * @param g green
+     * @param b blue
+     * @return the packed ARGB pixel
+     */
+    private static int pack(final int a, final int r, final int g,
+                            final int b) {
+        return (clamp(a) << PixelBuffer.ALPHA_SHIFT)
+            | (clamp(r) << PixelBuffer.RED_SHIFT)
+            | (clamp(g) << PixelBuffer.GREEN_SHIFT) | clamp(b);
+    }
+
+    /**
+     * Limit a channel value to 0 to 255.
+     * @param v the value
+     * @return the nearest value from 0 to 255
+     */
+    private static int clamp(final int v) {
+        return Math.max(0, Math.min(MAX_VALUE, v));
+    }
+
+    /**
+     * Retrieve this thread's buffers for the horizontal pass.
+     * @param size values needed per channel
+     * @return four buffers (alpha, red, green, blue) of at least size
+     */
+    private static int[][] scratch(final int size) {
+        int[][] tmp = SCRATCH.get();
+        if (tmp == null || tmp[0].length < size) {
+            tmp = new int[PixelBuffer.CHANNELS][size];
+            SCRATCH.set(tmp);
+        }
+        return tmp;
+    }
+
+    /**
+     * Retrieve the filtered image.
+     * @return the filtered image
+     */
+    public ImgProvider getImgProvider() {
+        return filteredImage;
+    }
+
+    /**
+     * Retrieve the label given when the filter was created.
+     * @return the filter's menu item label
+     */
+    public String getMenuLabel() {
+        return label;
+    }
+} //Convolution
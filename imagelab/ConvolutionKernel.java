@@ -0,0 +1,233 @@
+package imagelab;
+
+import java.util.Arrays;
+
+/**
+ * The weights of a convolution: an odd width by odd height grid of
+ * numbers centered on the pixel being computed.  Weights are applied
+ * as laid out (row 0 is above the pixel, column 0 to its left).
+ * A kernel that is the product of a column and a row of weights
+ * (such as a Gaussian or a box) is detected as separable, so that it
+ * can be applied as two one-dimensional passes.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public final class ConvolutionKernel {
+    /** Relative error allowed when testing for separability. */
+    private static final double TOLERANCE = 1e-9;
+    /** Gaussian radius in standard deviations. */
+    private static final double GAUSSIAN_SPREAD = 3.0;
+
+    /** Number of columns. */
+    private final int width;
+    /** Number of rows. */
+    private final int height;
+    /** The weights, row by row. */
+    private final double[] weights;
+    /** Weights of the horizontal pass, or null if not separable. */
+    private final double[] row;
+    /** Weights of the vertical pass, or null if not separable. */
+    private final double[] column;
+
+    /**
+     * Create a kernel.
+     * @param w number of columns (odd)
+     * @param h number of rows (odd)
+     * @param wts the weights, row by row
+     */
+    public ConvolutionKernel(final int w, final int h, final double[] wts) {
+        if (w < 1 || h < 1 || w % 2 == 0 || h % 2 == 0
+            || wts.length != w * h) {
+            throw new IllegalArgumentException(
+                "ConvolutionKernel: need an odd-sized grid of weights, not "
+                + w + "x" + h + " with " + wts.length + " weights");
+        }
+        width = w;
+        height = h;
+        weights = wts.clone();
+        double[][] factors = factor();
+        if (factors == null) {
+            row = null;
+            column = null;
+        } else {
+            row = factors[0];
+            column = factors[1];
+        }
+    }
+
+    /**
+     * Create a separable kernel from its two passes.
+     * @param rowWeights weights of the horizontal pass (odd length)
+     * @param columnWeights weights of the vertical pass (odd length)
+     * @return the kernel
+     */
+    public static ConvolutionKernel separable(final double[] rowWeights,
+                                              final double[] columnWeights) {
+        double[] wts = new double[rowWeights.length * columnWeights.length];
+        for (int r = 0; r < columnWeights.length; r++) {
+            for (int c = 0; c < rowWeights.length; c++) {
+                wts[r * rowWeights.length + c] =
+                    columnWeights[r] * rowWeights[c];
+            }
+        }
+        return new ConvolutionKernel(
+            rowWeights.length, columnWeights.length, wts);
+    } //separable
+
+    /**
+     * Create a normalized Gaussian blur kernel reaching three standard
+     * deviations from the center.
+     * @param sigma the standard deviation in pixels
+     * @return the kernel
+     */
+    public static ConvolutionKernel gaussian(final double sigma) {
+        if (!(sigma > 0)) {
+            throw new IllegalArgumentException(
+                "ConvolutionKernel: sigma must be positive");
+        }
+        int radius = (int) Math.ceil(GAUSSIAN_SPREAD * sigma);
+        double[] g = new double[2 * radius + 1];
+        double sum = 0;
+        for (int k = -radius; k <= radius; k++) {
+            g[k + radius] = Math.exp(-(k * k) / (2 * sigma * sigma));
+            sum += g[k + radius];
+        }
+        for (int k = 0; k < g.length; k++) {
+            g[k] /= sum;
+        }
+        return separable(g, g);
+    } //gaussian
+
+    /**
+     * Create a normalized box (mean) kernel.
+     * @param radius pixels on each side of the center
+     * @return the kernel
+     */
+    public static ConvolutionKernel box(final int radius) {
+        double[] b = new double[2 * radius + 1];
+        Arrays.fill(b, 1.0 / b.length);
+        return separable(b, b);
+    } //box
+
+    /**
+     * Split the weights into a column times a row, if possible.
+     * @return {row, column}, or null if the kernel is not separable
+     */
+    private double[][] factor() {
+        int pivot = 0;
+        for (int k = 1; k < weights.length; k++) {
+            if (Math.abs(weights[k]) > Math.abs(weights[pivot])) {
+                pivot = k;
+            }
+        }
+        double big = weights[pivot];
+        if (big == 0) {
+            return null;
+        }
+        int pr = pivot / width;
+        int pc = pivot % width;
+        double[] r = new double[width];
+        double[] c = new double[height];
+        for (int k = 0; k < width; k++) {
+            r[k] = weights[pr * width + k] / big;
+        }
+        for (int k = 0; k < height; k++) {
+            c[k] = weights[k * width + pc];
+        }
+        double limit = TOLERANCE * Math.abs(big);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (Math.abs(c[y] * r[x] - weights[y * width + x]) > limit) {
+                    return null;
+                }
+            }
+        }
+        return new double[][] {r, c};
+    } //factor
+
+    /**
+     * Retrieve the number of columns.
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Retrieve the number of rows.
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Retrieve one weight.
+     * @param col the column
+     * @param r the row
+     * @return the weight
+     */
+    public double get(final int col, final int r) {
+        return weights[r * width + col];
+    }
+
+    /**
+     * Tell whether the kernel is a column times a row.
+     * @return true if the kernel can be applied as two passes
+     */
+    public boolean isSeparable() {
+        return row != null;
+    }
+
+    /**
+     * Retrieve the weights of the horizontal pass.
+     * @return a copy of the weights, or null if not separable
+     */
+    public double[] getRow() {
+        return row == null ? null : row.clone();
+    }
+
+    /**
+     * Retrieve the weights of the vertical pass.
+     * @return a copy of the weights, or null if not separable
+     */
+    public double[] getColumn() {
+        return column == null ? null : column.clone();
+    }
+
+    /**
+     * Retrieve all the weights.
+     * @return a copy of the weights, row by row
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Convert weights to fixed point.  The rounding error is added to
+     * the largest weight, so that the fixed-point weights add up to
+     * the rounded sum of the real ones (a normalized blur stays
+     * normalized).
+     * @param wts the weights
+     * @param bits number of fraction bits
+     * @return the weights times 2 to the bits, as integers
+     */
+    static int[] toFixed(final double[] wts, final int bits) {
+        double scale = 1 << bits;
+        int[] fixed = new int[wts.length];
+        double sum = 0;
+        int fixedSum = 0;
+        int big = 0;
+        for (int k = 0; k < wts.length; k++) {
+            fixed[k] = (int) Math.round(wts[k] * scale);
+            sum += wts[k];
+            fixedSum += fixed[k];
+            if (Math.abs(wts[k]) > Math.abs(wts[big])) {
+                big = k;
+            }
+        }
+        fixed[big] += (int) Math.round(sum * scale) - fixedSum;
+        return fixed;
+    } //toFixed
+} //ConvolutionKernel
@@ -1,7 +1,8 @@
 package imagelab;
 import java.awt.Color;
-import java.awt.Image;
-import java.awt.image.MemoryImageSource;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import javax.swing.JComponent;
 import javax.swing.JMenuBar;
 
 /**
@@ -13,10 +14,8 @@ import javax.swing.JMenuBar;
 public class DisplayImage extends ILFrame {
     /** Serialization version. */
     private static final long serialVersionUID = 11L;
-    /** The image of this frame. */
-    private Image img;
     /** The display panel of this frame. */
-    private DisPanel pane;
+    private JComponent pane;
 
     /** Initial x-coordinate for window placement. */
     private static final int XINIT = 10;
@@ -39,9 +38,6 @@ public class DisplayImage extends ILFrame {
     /** Value used to create Color objects. */
     public static final int RGB_VALUE = 255;
 
-    /** Value used to sleep the thread. */
-    public static final int SLEEP_PERIOD = 50;
-
 
     /**
      * This constructor takes the image object to display
@@ -64,6 +60,19 @@ public class DisplayImage extends ILFrame {
      */
     public DisplayImage(
         final ImgProvider imp, final String title, final boolean slow) {
+        this(imp, title, new PyramidPanel(imp));
+    } //constructor
+
+    /**
+     * This constructor takes the image object to display,
+     * a string to use as the title of the window, and the
+     * panel that shows the image.
+     * @param imp the image object to display
+     * @param title the window title
+     * @param panel the panel to show in the window
+     */
+    protected DisplayImage(
+        final ImgProvider imp, final String title, final JComponent panel) {
         //System.out.println("Constructing new DisplayImage.
         //xspot,yspot = " + xspot + "," + yspot);
         if (imp == null) {
@@ -73,27 +82,14 @@ public class DisplayImage extends ILFrame {
         setUndecorated(false);
         setBackground(new Color(RGB_VALUE, RGB_VALUE, RGB_VALUE));
         setImgProvider(imp);
-        int[] pix = imp.getPix();
-        int[] showpix = pix;
-        int pixheight = imp.getPixHeight();
-        int pixwidth  = imp.getPixWidth();
-        img = getToolkit().createImage(
-                new MemoryImageSource(
-                    pixwidth, pixheight, showpix, 0, pixwidth));
-        pane        = new DisPanel(img);
+        pane        = panel;
         getContentPane().add(pane, "Center");
-        int width;
-        int height;
-        while (-1 == (width = img.getWidth(null))) {
-            try {
-                    Thread.sleep(SLEEP_PERIOD);
-                } catch (Exception e) { }
-        }
-        while (-1 == (height = img.getHeight(null))) {
-            try {
-                    Thread.sleep(SLEEP_PERIOD);
-                } catch (Exception e) { }
-        }
+        // Large images get a window that fits the screen
+        Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment()
+            .getMaximumWindowBounds();
+        int width = Math.min(imp.getPixWidth(), screen.width - XINIT);
+        int height = Math.min(imp.getPixHeight(),
+                              screen.height - YINIT - EXTRA_HEIGHT);
         // Cascade subsequent windows
         xspot = ((xspot + width  + XDELTA) <= XMAX) ? xspot + XDELTA : XINIT;
         yspot = ((yspot + height + YDELTA + EXTRA_HEIGHT) <= YMAX)
@@ -101,11 +97,18 @@ public class DisplayImage extends ILFrame {
         setBounds(xspot, yspot, width, height + EXTRA_HEIGHT);
         WindowCloser wc = new WindowCloser(this);
         this.addWindowListener(wc);
-        JMenuBar myMenuBar = new JMenuBar();
-        myMenuBar.add(ImageLab.newFileMenu(this));
-        myMenuBar.add(ImageLab.newFilterMenu());
-        setJMenuBar(myMenuBar);
+        ImageLab lab = imp.getLab();
+        if (lab != null) {
+            JMenuBar myMenuBar = new JMenuBar();
+            myMenuBar.add(lab.newFileMenu(this));
+            myMenuBar.add(lab.newFilterMenu());
+            setJMenuBar(myMenuBar);
+        }
         setVisible(true);
+        if (pane instanceof PyramidPanel
+            && (width < imp.getPixWidth() || height < imp.getPixHeight())) {
+            ((PyramidPanel) pane).fit();
+        }
     }
 
 } //class
@@ -19,8 +19,6 @@ public class DynDisplayImage extends DisplayImage   {
     private DynaPanel pane;
     /** Singleton object. */
     private DynDisplayImage singleton;
-    /** Value used to sleep the thread. */
-    public static final int SLEEP_PERIOD = 50;
 
     /**
      * This constructor takes the image object to display
@@ -29,7 +27,7 @@ public class DynDisplayImage extends DisplayImage   {
      * @param title the window title
      */
     public DynDisplayImage(final ImgProvider imp, final String title) {
-        super(imp, title);
+        this(imp, title, new DynaPanel(imp));
     }
 
     /**
@@ -43,7 +41,42 @@ public class DynDisplayImage extends DisplayImage   {
      */
     public DynDisplayImage(
         final ImgProvider imp, final String title, final boolean slow) {
-        super(imp, title, slow);
+        this(imp, title, new DynaPanel(imp));
+    }
+
+    /**
+     * This constructor takes the image object to display,
+     * a string to use as the title of the window, and the
+     * DynaPanel that shows it.
+     * @param imp the image object to display
+     * @param title the window title
+     * @param panel the panel showing the image
+     */
+    private DynDisplayImage(
+        final ImgProvider imp, final String title, final DynaPanel panel) {
+        super(imp, title, panel);
+        img         = imp.getImage();
+        pane        = panel;
+    }
+
+    /**
+     * Show another image in a new DynaPanel.
+     * @param imp the image object to display
+     */
+    private void usePanel(final ImgProvider imp) {
+        getContentPane().removeAll();
+        img         = imp.getImage();
+        pane        = new DynaPanel(imp);
+        getContentPane().add(pane, "Center");
+        validate();
+    }
+
+    /**
+     * Retrieve the panel showing the image.
+     * @return the panel, whose rowsChanged method repaints new rows
+     */
+    public DynaPanel getDynaPanel() {
+        return pane;
     }
 
     /**
@@ -66,24 +99,9 @@ public class DynDisplayImage extends DisplayImage   {
     public void changeImage(final ImgProvider imp, final String title) {
         setTitle(title);
         setImgProvider(imp);
-        img         = imp.getImage();
-        pane        = new DynaPanel(imp);
-        getContentPane().add(pane, "Center");
-        int width;
-        int height;
-        while (-1 == (width = img.getWidth(null))) {
-            //System.out.println("DynDisplayImage:constructor - first while");
-            try {
-                Thread.sleep(SLEEP_PERIOD);
-                } catch (Exception e) { }
-            }
-
-        while (-1 == (height = img.getHeight(null))) {
-            //System.out.println("DynDisplayImage:constructor - second while");
-            try {
-                Thread.sleep(SLEEP_PERIOD);
-                } catch (Exception e) { }
-            }
+        usePanel(imp);
+        int width = imp.getPixWidth();
+        int height = imp.getPixHeight();
         setBounds(0, 0, width, height + TITLE_HEIGHT);
         repaint();
         setVisible(true);
@@ -1,13 +1,18 @@
 package imagelab;
 
 import javax.swing.JPanel;
+import java.awt.Dimension;
 import java.awt.Image;
 
 import java.awt.Graphics;
 import java.awt.Color;
+import java.awt.Rectangle;
 
 /**
  * DynaPanel is a class to allow for dynamically displaying images.
+ * The image is drawn at 1:1 and may be filled in while it is shown:
+ * call {@link #rowsChanged(int, int)} as rows of its pixels are set,
+ * and only those rows are repainted.
  * For use as a singleton, ignore the constructor and use getDynPan()
  * to retrieve the singleton object each time.
  * @author Dr. Jody Paul
@@ -51,7 +56,6 @@ public class DynaPanel extends JPanel implements ILPanel {
     public DynaPanel() {
         super(true);
         panelImage = null;
-        System.out.println("DynaPanel: default panelImage = " + panelImage);
    }
 
     /**
@@ -61,7 +65,6 @@ public class DynaPanel extends JPanel implements ILPanel {
     public DynaPanel(final Image img) {
         super(true);
         panelImage = img;
-        System.out.println("DynaPanel: panelImage = " + panelImage);
     }
 
     /**
@@ -72,8 +75,8 @@ public class DynaPanel extends JPanel implements ILPanel {
         super(true);
         int width  = imp.getWidth();
         int height = imp.getHeight();
+        setPreferredSize(new Dimension(width, height));
         panelImage = imp.getImage();
-        System.out.println("DynaPanel: panelImage = " + panelImage);
     }
 
     /**
@@ -81,7 +84,6 @@ public class DynaPanel extends JPanel implements ILPanel {
      * @param image the image object to be drawn on the canvas
      */
     public void newImage(final Image image) {
-        System.out.println("DynaPanel:draw(i): image = " + image);
         panelImage = image;
     }
 
@@ -110,10 +112,28 @@ public class DynaPanel extends JPanel implements ILPanel {
     }
 
     /**
-     * Dynamic (re-)paint.
+     * Note that rows of the image have changed, and repaint just them.
+     * May be called from any thread.
+     * @param firstRow the first row that changed
+     * @param rows number of rows that changed
+     */
+    public void rowsChanged(final int firstRow, final int rows) {
+        repaint(0, firstRow, getWidth(), rows);
+    }
+
+    /**
+     * Dynamic (re-)paint of the part of the image that needs it.
      * @param g Grahpic where repaint the image
      */
     public void paint(final Graphics g) {
-        g.drawImage(panelImage, 0, 0, this);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            g.drawImage(panelImage, 0, 0, this);
+            return;
+        }
+        int x1 = clip.x + clip.width;
+        int y1 = clip.y + clip.height;
+        g.drawImage(panelImage, clip.x, clip.y, x1, y1,
+                    clip.x, clip.y, x1, y1, this);
     }
 }
@@ -0,0 +1,344 @@
+package imagelab;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A FilterChain runs a sequence of ImageFilters as a single filter.
+ * Only the final result (and any stages marked with {@link #tap(String)})
+ * is displayed.  Stages that are also {@link StreamingFilter}s work
+ * directly on packed pixel arrays, passing them from stage to stage
+ * and reusing two buffers for the whole chain instead of building an
+ * ImgProvider and its color planes for every stage.  Consecutive
+ * stages that are {@link PointOp}s are fused into a single pass, and
+ * {@link ParallelFilter}s are spread over all processors.
+ * Other stages run as {@link StatelessFilter}s with display turned off,
+ * through a {@link LegacyFilter} if need be, so that no stage's result
+ * is kept in a field.  A chain may therefore be run by several threads
+ * at once, as long as the chain is not changed while it runs.
+ * Tiled images are filtered stage by stage, a band of tiles at a time.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class FilterChain implements ImageFilter, StatelessFilter {
+    /** The stages, in order. */
+    private final List<ImageFilter> stages = new ArrayList<ImageFilter>();
+    /** The stages as StatelessFilters, in order. */
+    private final List<StatelessFilter> stateless =
+        new ArrayList<StatelessFilter>();
+    /** Window title to show after each stage, or null for none. */
+    private final List<String> taps = new ArrayList<String>();
+    /** The result of the last run. */
+    private ImgProvider filteredImage;
+
+    /** Create an empty chain, which leaves images unchanged. */
+    public FilterChain() {
+    }
+
+    /**
+     * Create a chain of filters.
+     * @param filters the stages, in order
+     */
+    public FilterChain(final List<? extends ImageFilter> filters) {
+        for (ImageFilter f : filters) {
+            then(f);
+        }
+    }
+
+    /**
+     * Add a stage to the end of the chain.
+     * @param f the filter
+     * @return this chain
+     */
+    public FilterChain then(final ImageFilter f) {
+        if (f == null) {
+            throw new IllegalArgumentException("FilterChain: null filter");
+        }
+        stages.add(f);
+        stateless.add(FilterLoader.toStateless(f));
+        taps.add(null);
+        return this;
+    }
+
+    /**
+     * Add a stage made from a filter class.  Unlike a filter instance
+     * added with {@link #then(ImageFilter)}, which runs a call at a
+     * time, a filter that is not a StatelessFilter gets a new instance
+     * for every image, so threads sharing the chain run it at once.
+     * @param cl the filter class
+     * @return this chain
+     * @throws IllegalArgumentException if the class cannot be
+     *         instantiated
+     */
+    public FilterChain then(final Class<? extends ImageFilter> cl) {
+        ImageFilter f = FilterLoader.instantiate(cl);
+        stages.add(f);
+        stateless.add(FilterLoader.toStateless(f, true));
+        taps.add(null);
+        return this;
+    }
+
+    /**
+     * Display the result of the last stage added so far when the
+     * chain is run.
+     * @param title the title of the window
+     * @return this chain
+     */
+    public FilterChain tap(final String title) {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("FilterChain: nothing to tap");
+        }
+        taps.set(taps.size() - 1, title);
+        return this;
+    }
+
+    /**
+     * Retrieve the number of stages.
+     * @return the number of filters in the chain
+     */
+    public int size() {
+        return stages.size();
+    }
+
+    /**
+     * Run the chain over an image without displaying the result.
+     * Tapped stages are still displayed.
+     * The input image is not changed.
+     * @param in the image to filter
+     * @return the filtered image
+     */
+    public ImageCore run(final ImageCore in) {
+        in.ensureLoaded();
+        if (in.isTiled()) {
+            return runTiled(in);
+        }
+        int[] cur;
+        int w;
+        int h;
+        if (stages.isEmpty()) {
+            cur = null;
+            w = 0;
+            h = 0;
+        } else {
+            cur = in.getPix();
+            w = in.getWidth();
+            h = in.getHeight();
+        }
+        ImageCore core = in;
+        boolean owned = false;  //true if the chain may overwrite cur
+        int[] spare = null;     //a buffer free for reuse
+        boolean wasQuiet = ImgProvider.setQuiet(true);
+        try {
+            for (int k = 0; k < stages.size(); k++) {
+                Progress.checkCurrent();
+                ImageFilter f = stages.get(k);
+                if (f instanceof PointOp && cur != null) {
+                    int end = fusable(k);
+                    int[] out = spare != null ? spare : new int[w * h];
+                    PointOps.applyParallel(PointOps.fuse(pointOps(k, end)),
+                        cur, out, w, h);
+                    k = end - 1;
+                    spare = owned ? cur : null;
+                    cur = out;
+                    owned = true;
+                    core = null;
+                } else if (f instanceof ParallelFilter && cur != null) {
+                    int[] out = spare != null ? spare : new int[w * h];
+                    TileExecutor.getDefault().run(
+                        (ParallelFilter) f, cur, out, w, h);
+                    spare = owned ? cur : null;
+                    cur = out;
+                    owned = true;
+                    core = null;
+                } else if (f instanceof StreamingFilter && cur != null) {
+                    int[] out = spare != null ? spare : new int[w * h];
+                    ((StreamingFilter) f).filterBand(
+                        new RowBand(cur, w, h, 0, h),
+                        new RowBand(out, w, h, 0, h));
+                    spare = owned ? cur : null;
+                    cur = out;
+                    owned = true;
+                    core = null;
+                } else {
+                    if (core == null) {
+                        core = new ImageCore();
+                        core.setPixels(cur, w, h);
+                    }
+                    int[] before = cur;
+                    core = filterOne(stateless.get(k), core);
+                    spare = null;
+                    if (core.isTiled()) {
+                        cur = null;
+                    } else {
+                        cur = core.getPix();
+                        w = core.getWidth();
+                        h = core.getHeight();
+                        owned = cur != in.getPix()
+                            && (cur != before || owned);
+                    }
+                }
+                String title = taps.get(k);
+                if (title != null) {
+                    if (core == null) {
+                        core = new ImageCore();
+                        core.setPixels(cur, w, h);
+                    }
+                    owned = false;  //the window keeps showing these pixels
+                    ImgProvider.setQuiet(wasQuiet);
+                    new ImgProvider(core).showPix(title);
+                    ImgProvider.setQuiet(true);
+                }
+            } //for k
+        } finally {
+            ImgProvider.setQuiet(wasQuiet);
+        }
+        if (core == null) {
+            core = new ImageCore();
+            core.setPixels(cur, w, h);
+        }
+        return core;
+    } //run
+
+    /**
+     * Run the chain over a tiled image a stage at a time.  Point
+     * operations and parallel and streaming filters work through the
+     * tiles a band at a time; other filters need the whole image and
+     * fail if it is too large for the heap.  The tiles of each
+     * intermediate result are released once the next stage is done.
+     * @param in the image to filter (not changed)
+     * @return the filtered image
+     */
+    private ImageCore runTiled(final ImageCore in) {
+        ImageCore core = in;
+        ImageCore result = null;
+        boolean wasQuiet = ImgProvider.setQuiet(true);
+        try {
+            for (int k = 0; k < stages.size(); k++) {
+                Progress.checkCurrent();
+                ImageFilter f = stages.get(k);
+                ImageCore next;
+                if (f instanceof PointOp) {
+                    int end = fusable(k);
+                    next = core.map(PointOps.fuse(pointOps(k, end)));
+                    k = end - 1;
+                } else if (f instanceof ParallelFilter) {
+                    next = TileExecutor.getDefault().apply(
+                        (ParallelFilter) f, core);
+                } else if (f instanceof StreamingFilter) {
+                    next = core.apply((StreamingFilter) f);
+                } else {
+                    next = filterOne(stateless.get(k), core);
+                }
+                if (core != in && next != core) {
+                    core.dropTiles();
+                }
+                core = next;
+                String title = taps.get(k);
+                if (title != null) {
+                    ImgProvider.setQuiet(wasQuiet);
+                    new ImgProvider(core).showPix(title);
+                    ImgProvider.setQuiet(true);
+                }
+            } //for k
+            result = core;
+        } finally {
+            ImgProvider.setQuiet(wasQuiet);
+            if (result == null && core != in) {
+                core.dropTiles();
+            }
+        }
+        return result;
+    } //runTiled
+
+    /**
+     * Find the end of the run of point operations starting at a stage.
+     * A tapped stage ends the run, since its result must be shown.
+     * @param first the first stage of the run, a PointOp
+     * @return one past the last stage of the run
+     */
+    private int fusable(final int first) {
+        int end = first + 1;
+        while (end < stages.size() && stages.get(end) instanceof PointOp
+               && taps.get(end - 1) == null) {
+            end++;
+        }
+        return end;
+    } //fusable
+
+    /**
+     * Retrieve a run of stages as point operations.
+     * @param first the first stage
+     * @param end one past the last stage
+     * @return the stages
+     */
+    private List<PointOp> pointOps(final int first, final int end) {
+        List<PointOp> ops = new ArrayList<PointOp>();
+        for (int k = first; k < end; k++) {
+            ops.add((PointOp) stages.get(k));
+        }
+        return ops;
+    } //pointOps
+
+    /**
+     * Run one filter on a whole image.
+     * @param f the filter
+     * @param core its input
+     * @return its result
+     */
+    private static ImageCore filterOne(final StatelessFilter f,
+                                       final ImageCore core) {
+        ImgProvider result = f.apply(new ImgProvider(core));
+        if (result == null) {
+            throw new IllegalStateException(
+                "FilterChain: " + f.getMenuLabel() + " produced no image");
+        }
+        return result.getCore();
+    } //filterOne
+
+    /**
+     * Run the chain without displaying anything, tapped stages included.
+     * @param ip the image to be filtered (not changed)
+     * @return the filtered image
+     */
+    public ImgProvider apply(final ImgProvider ip) {
+        boolean wasQuiet = ImgProvider.setQuiet(true);
+        try {
+            return new ImgProvider(run(ip.getCore()));
+        } finally {
+            ImgProvider.setQuiet(wasQuiet);
+        }
+    } //apply
+
+    /**
+     * Run the chain and display the final result.
+     * @param ip the image to be filtered
+     */
+    public void filter(final ImgProvider ip) {
+        filteredImage = new ImgProvider(run(ip.getCore()));
+        filteredImage.showPix(getMenuLabel());
+    } //filter
+
+    /**
+     * Retrieve the result of the last run.
+     * @return the filtered image
+     */
+    public ImgProvider getImgProvider() {
+        return filteredImage;
+    }
+
+    /**
+     * Retrieve the labels of the stages joined by arrows.
+     * @return the chain's menu item label
+     */
+    public String getMenuLabel() {
+        StringBuilder label = new StringBuilder();
+        for (ImageFilter f : stages) {
+            if (label.length() > 0) {
+                label.append(" > ");
+            }
+            label.append(f.getMenuLabel());
+        }
+        return label.toString();
+    } //getMenuLabel
+} //FilterChain
@@ -0,0 +1,134 @@
+package imagelab;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the ImageFilter classes available to ImageLab.
+ * A filter is a class in the <CODE>filters</CODE> package, compiled into
+ * the filter directory, that implements {@link ImageFilter}.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public final class FilterLoader {
+    /** Package that filter classes belong to. */
+    public static final String FILTER_PACKAGE = "filters";
+
+    /** Private constructor to avoid instantiation. */
+    private FilterLoader() { }
+
+    /**
+     * Find the filter classes compiled into a directory.
+     * @param filterDir the directory holding the .class files
+     * @return the filter classes, in file name order
+     */
+    public static List<Class<? extends ImageFilter>> discover(
+        final String filterDir) {
+        List<Class<? extends ImageFilter>> found =
+            new ArrayList<Class<? extends ImageFilter>>();
+        File[] fil = new File(filterDir).listFiles();
+        if (fil == null) {
+            System.err.println("FilterLoader: no filter directory "
+                + filterDir);
+            return found;
+        }
+        Arrays.sort(fil);
+        for (int k = 0; k < fil.length; k++) {
+            String clName = fil[k].getName();
+            if (!clName.endsWith(".class") || clName.indexOf('$') >= 0) {
+                continue;
+            }
+            clName = clName.substring(0, clName.lastIndexOf("."));
+            try {
+                Class<? extends ImageFilter> cl = forName(clName);
+                if (cl != null) {
+                    found.add(cl);
+                }
+            } catch (ClassNotFoundException | LinkageError e) {
+                System.err.println("FilterLoader: cannot load " + clName);
+                System.err.println(">>> " + e);
+            }
+        } //for k
+        return found;
+    } //discover
+
+    /**
+     * Look up a filter class by name.
+     * @param name a class name; names without a package are looked
+     *        up in the filters package
+     * @return the filter class, or null if the class does not
+     *         implement ImageFilter
+     * @throws ClassNotFoundException if there is no such class
+     */
+    public static Class<? extends ImageFilter> forName(final String name)
+        throws ClassNotFoundException {
+        String clName = name;
+        if (clName.indexOf('.') < 0) {
+            clName = FILTER_PACKAGE + "." + clName;
+        }
+        Class<?> cl = Class.forName(clName);
+        if (!ImageFilter.class.isAssignableFrom(cl)) {
+            return null;
+        }
+        return cl.asSubclass(ImageFilter.class);
+    } //forName
+
+    /**
+     * Create a new instance of a filter class.
+     * @param cl the filter class
+     * @return a new filter
+     * @throws IllegalArgumentException if the class cannot be instantiated
+     */
+    public static ImageFilter instantiate(
+        final Class<? extends ImageFilter> cl) {
+        try {
+            return cl.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(
+                "FilterLoader: cannot create " + cl.getName(), e);
+        }
+    } //instantiate
+
+    /**
+     * View a filter as a StatelessFilter.
+     * @param f the filter
+     * @return f itself if it is a StatelessFilter, else a LegacyFilter
+     *         running it a call at a time
+     */
+    public static StatelessFilter toStateless(final ImageFilter f) {
+        return toStateless(f, false);
+    }
+
+    /**
+     * Make a filter from its class and view it as a StatelessFilter.
+     * Since nothing has been set up on the filter, a LegacyFilter
+     * runs a new instance for every call.
+     * @param cl the filter class
+     * @return the filter itself if it is a StatelessFilter, else a
+     *         LegacyFilter running instances of it
+     * @throws IllegalArgumentException if the class cannot be
+     *         instantiated
+     */
+    public static StatelessFilter toStateless(
+        final Class<? extends ImageFilter> cl) {
+        return toStateless(instantiate(cl), true);
+    }
+
+    /**
+     * View a filter as a StatelessFilter.
+     * @param f the filter
+     * @param fresh true if FilterLoader made f, so a LegacyFilter
+     *        may run new instances instead of f itself
+     * @return f itself if it is a StatelessFilter, else a LegacyFilter
+     */
+    static StatelessFilter toStateless(final ImageFilter f,
+                                       final boolean fresh) {
+        if (f instanceof StatelessFilter) {
+            return (StatelessFilter) f;
+        }
+        return new LegacyFilter(f, fresh);
+    } //toStateless
+} //FilterLoader
@@ -0,0 +1,203 @@
+package imagelab;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+
+/**
+ * One run of a filter on a background thread, so that the user
+ * interface stays responsive while it works.
+ * Tasks run on a small pool of worker threads shared by all tasks.
+ * While a task runs, its {@link Progress} is current on the worker,
+ * so the tile and band executors report what they have done and stop
+ * early when the task is cancelled.  Filters that do not use them
+ * cannot be stopped part way, but a cancelled task's result is
+ * discarded.
+ * The filter is a {@link StatelessFilter}, so one filter may run in
+ * several tasks at once.
+ * It runs quietly (opening no windows); when it finishes the
+ * task's listener is called on the event dispatch thread, which can
+ * then display the result.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class FilterTask implements Runnable {
+    /** Waiting to run. */
+    public static final int PENDING = 0;
+    /** Running. */
+    public static final int RUNNING = 1;
+    /** Finished with a result. */
+    public static final int DONE = 2;
+    /** Stopped by cancel. */
+    public static final int CANCELLED = 3;
+    /** Stopped by an exception. */
+    public static final int FAILED = 4;
+
+    /** Number of filters that may run at once. */
+    private static final int WORKERS = 2;
+
+    /** The worker threads. */
+    private static final ExecutorService POOL =
+        Executors.newFixedThreadPool(WORKERS, new ThreadFactory() {
+            private final AtomicInteger made = new AtomicInteger();
+
+            public Thread newThread(final Runnable r) {
+                Thread t = new Thread(r,
+                    "ImageLab filter " + made.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+    /** Told when a task ends. */
+    public interface Listener {
+        /**
+         * Called on the event dispatch thread when a task has finished,
+         * been cancelled or failed.
+         * @param task the task
+         */
+        void finished(FilterTask task);
+    }
+
+    /** The filter. */
+    private final StatelessFilter filter;
+    /** The image to filter. */
+    private final ImgProvider source;
+    /** Told when the task ends, or null. */
+    private final Listener listener;
+    /** Progress and cancellation. */
+    private final Progress progress = new Progress();
+    /** PENDING, RUNNING, DONE, CANCELLED or FAILED. */
+    private volatile int state = PENDING;
+    /** The filtered image, once DONE. */
+    private volatile ImgProvider result;
+    /** What went wrong, once FAILED. */
+    private volatile Throwable failure;
+
+    /**
+     * Create a task.  It does nothing until run or submitted.
+     * @param f the filter
+     * @param ip the image to filter
+     * @param l told when the task ends, or null
+     */
+    public FilterTask(final StatelessFilter f, final ImgProvider ip,
+                      final Listener l) {
+        filter = f;
+        source = ip;
+        listener = l;
+    }
+
+    /**
+     * Create a task and start it on a worker thread.
+     * @param f the filter
+     * @param ip the image to filter
+     * @param l told when the task ends, or null
+     * @return the task
+     */
+    public static FilterTask submit(final StatelessFilter f,
+                                    final ImgProvider ip, final Listener l) {
+        FilterTask task = new FilterTask(f, ip, l);
+        POOL.execute(task);
+        return task;
+    }
+
+    /** Run the filter on the current thread. */
+    public void run() {
+        if (progress.isCancelled()) {
+            end(CANCELLED);
+            return;
+        }
+        state = RUNNING;
+        Progress was = Progress.setCurrent(progress);
+        boolean wasQuiet = ImgProvider.setQuiet(true);
+        int outcome;
+        try {
+            result = filter.apply(source);
+            outcome = progress.isCancelled() ? CANCELLED : DONE;
+        } catch (CancellationException ce) {
+            outcome = CANCELLED;
+        } catch (Throwable t) {
+            failure = t;
+            outcome = FAILED;
+        } finally {
+            ImgProvider.setQuiet(wasQuiet);
+            Progress.setCurrent(was);
+        }
+        end(outcome);
+    } //run
+
+    /**
+     * Record how the task ended and tell the listener.
+     * @param outcome DONE, CANCELLED or FAILED
+     */
+    private void end(final int outcome) {
+        if (outcome != DONE) {
+            result = null;
+        }
+        state = outcome;
+        if (listener != null) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    listener.finished(FilterTask.this);
+                }
+            });
+        }
+    } //end
+
+    /** Ask the task to stop as soon as it can. */
+    public void cancel() {
+        progress.cancel();
+    }
+
+    /**
+     * Retrieve the progress of the task.
+     * @return the progress
+     */
+    public Progress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Retrieve the state of the task.
+     * @return PENDING, RUNNING, DONE, CANCELLED or FAILED
+     */
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * Tell whether the task has ended.
+     * @return true if DONE, CANCELLED or FAILED
+     */
+    public boolean isFinished() {
+        return state >= DONE;
+    }
+
+    /**
+     * Retrieve the filter.
+     * @return the filter
+     */
+    public StatelessFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Retrieve the filtered image.
+     * @return the result, or null unless the task is DONE
+     */
+    public ImgProvider getResult() {
+        return result;
+    }
+
+    /**
+     * Retrieve what went wrong.
+     * @return the exception, or null unless the task FAILED
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+} //FilterTask
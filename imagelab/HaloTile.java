@@ -0,0 +1,183 @@
+package imagelab;
+
+/**
+ * A rectangle of packed ARGB pixels given to a {@link ParallelFilter},
+ * together with a halo of pixels around it.
+ * Pixels are addressed by image column and row; the halo reaches
+ * <CODE>radius</CODE> pixels beyond each edge of the rectangle.
+ * Outside the image the halo repeats the nearest edge pixel, so
+ * filters need no border tests.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class HaloTile {
+    /** The pixels. */
+    private final int[] data;
+    /** Index in data of pixel (x, y). */
+    private final int origin;
+    /** Number of pixels between the starts of consecutive rows. */
+    private final int stride;
+    /** Image column of the rectangle's left edge. */
+    private final int x;
+    /** Image row of the rectangle's top edge. */
+    private final int y;
+    /** Width of the rectangle. */
+    private final int width;
+    /** Height of the rectangle. */
+    private final int height;
+    /** Width of the halo. */
+    private final int radius;
+
+    /**
+     * Create a tile over an array of pixels.
+     * @param pix the pixels
+     * @param start index in pix of the rectangle's top left pixel
+     * @param rowStride pixels between the starts of consecutive rows
+     * @param left image column of the rectangle's left edge
+     * @param top image row of the rectangle's top edge
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @param r width of the halo
+     */
+    HaloTile(final int[] pix, final int start, final int rowStride,
+             final int left, final int top, final int w, final int h,
+             final int r) {
+        data = pix;
+        origin = start;
+        stride = rowStride;
+        x = left;
+        y = top;
+        width = w;
+        height = h;
+        radius = r;
+    }
+
+    /**
+     * Copy a rectangle of an image and its halo into a buffer,
+     * repeating edge pixels outside the image.
+     * @param src the image pixels
+     * @param imgWidth width of the image
+     * @param imgHeight height of the image
+     * @param left image column of the rectangle's left edge
+     * @param top image row of the rectangle's top edge
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @param r width of the halo
+     * @param buf buffer of at least (w + 2r) * (h + 2r) pixels
+     * @return the tile, held in buf
+     */
+    static HaloTile copyOf(final int[] src, final int imgWidth,
+                           final int imgHeight, final int left,
+                           final int top, final int w, final int h,
+                           final int r, final int[] buf) {
+        int rowStride = w + 2 * r;
+        int first = Math.max(left - r, 0);          //first column inside
+        int last = Math.min(left + w + r, imgWidth); //one past the last
+        int leftPad = first - (left - r);
+        int rightPad = (left + w + r) - last;
+        int to = 0;
+        for (int row = top - r; row < top + h + r; row++) {
+            int base = Math.min(Math.max(row, 0), imgHeight - 1) * imgWidth;
+            int edge = src[base];
+            for (int k = 0; k < leftPad; k++) {
+                buf[to++] = edge;
+            }
+            System.arraycopy(src, base + first, buf, to, last - first);
+            to += last - first;
+            edge = src[base + imgWidth - 1];
+            for (int k = 0; k < rightPad; k++) {
+                buf[to++] = edge;
+            }
+        }
+        return new HaloTile(buf, r * rowStride + r, rowStride,
+                            left, top, w, h, r);
+    } //copyOf
+
+    /**
+     * Retrieve the backing array (not a copy).
+     * Use {@link #index(int, int)} to locate a pixel.
+     * @return the pixels
+     */
+    public int[] getData() {
+        return data;
+    }
+
+    /**
+     * Position of a pixel in the backing array.
+     * @param col image column, within the rectangle or its halo
+     * @param row image row, within the rectangle or its halo
+     * @return index of the pixel
+     */
+    public int index(final int col, final int row) {
+        return origin + (row - y) * stride + (col - x);
+    }
+
+    /**
+     * Retrieve a pixel.
+     * @param col image column, within the rectangle or its halo
+     * @param row image row, within the rectangle or its halo
+     * @return the packed ARGB pixel
+     */
+    public int get(final int col, final int row) {
+        return data[index(col, row)];
+    }
+
+    /**
+     * Store a pixel.
+     * @param col image column, within the rectangle
+     * @param row image row, within the rectangle
+     * @param argb the packed ARGB pixel
+     */
+    public void set(final int col, final int row, final int argb) {
+        data[index(col, row)] = argb;
+    }
+
+    /**
+     * Retrieve the number of pixels between the starts of rows.
+     * @return the row stride
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Retrieve the image column of the rectangle's left edge.
+     * @return the column
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Retrieve the image row of the rectangle's top edge.
+     * @return the row
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Retrieve the width of the rectangle.
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Retrieve the height of the rectangle.
+     * @return height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Retrieve the width of the halo.
+     * @return the radius
+     */
+    public int getRadius() {
+        return radius;
+    }
+} //HaloTile
@@ -0,0 +1,760 @@
+package imagelab;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+
+/**
+ * ImageCore holds the pixels of a single image and does the loading,
+ * plane management, filtering and saving for it.  It never uses the
+ * AWT Toolkit or Swing and never sleeps, so it can be used on servers
+ * running with <CODE>java.awt.headless=true</CODE>.
+ * {@link ImgProvider} layers the ImageLab user interface on top of it.
+ * <p>
+ * Several threads may read one ImageCore at once: loading and the
+ * planes, gray values and statistics derived from pix on first use
+ * are filled under the ImageCore's lock.  Changing the pixels while
+ * other threads read them is not safe.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class ImageCore {
+    /** Value of an 8-bit channel at full intensity. */
+    private static final int MAX_VALUE = 255;
+    /** Estimated heap bytes needed per pixel of an in-memory image. */
+    private static final int BYTES_PER_PIXEL = 16;
+
+    /** Images with more pixels than this are read into a TiledImage. */
+    private static long tiledThreshold =
+        Runtime.getRuntime().maxMemory() / BYTES_PER_PIXEL;
+
+    /** Holder for the filename of the file that contains the image. */
+    private String imgName;
+    /** true if this ImageCore currently holds an image; false otherwise. */
+    private boolean isLoaded;
+    /** Image height in pixels. */
+    private int pixheight;
+    /** Image width in pixels. */
+    private int pixwidth;
+    /** Holder for the pixels from the image. */
+    private int[] pix;
+    /**
+     * Holder for the color and alpha components of the image.
+     * Planes are unpacked from pix only when first requested.
+     */
+    private PixelBuffer planes;
+    /** planeValid[c] is true if channel c of planes matches pix. */
+    private boolean[] planeValid = new boolean[PixelBuffer.CHANNELS];
+    /** Gray values derived from pix, one byte per pixel. */
+    private byte[] luma;
+    /** true if luma matches pix. */
+    private boolean lumaValid;
+    /** Part of the image file to load; null for all of it. */
+    private Rectangle region;
+    /** Load one pixel in every subsample columns and rows. */
+    private int subsample = 1;
+    /** Largest width and height to load, 0 for no limit. */
+    private int previewMax = 0;
+    /** Pixels of an image too large for the heap, or null. */
+    private TiledImage tiles;
+    /** Statistics of pix, or null if not yet computed. */
+    private ImageStatistics statistics;
+    /** BufferedImage sharing pix, or null. */
+    private BufferedImage view;
+    /** Number of times the pixels have been replaced or changed. */
+    private int modCount;
+
+    /** No-argument constructor.  Sets name to empty string. */
+    public ImageCore() {
+        this("");
+    }
+
+    /**
+     * Constructor that accepts a filename.
+     * The file is not read until the pixels are needed.
+     * @param name The name of the file containing the image
+     */
+    public ImageCore(final String name) {
+        imgName = name;
+        isLoaded = false;
+    }
+
+    /**
+     * Retrieve the name of the file the image is read from.
+     * @return the filename (empty if the image was built in memory)
+     */
+    public String getFileName() {
+        return imgName;
+    }
+
+    /**
+     * Tell whether this ImageCore holds an image.
+     * @return true if the image has been read in or set
+     */
+    public boolean isLoaded() {
+        return isLoaded;
+    }
+
+    /** Returns the pixels of the image (not a copy).
+     * @return packed ARGB pixels, row by row
+     */
+    public int[] getPix() {
+        return pix;
+    }
+
+    /**
+     * Retrieve the number of times the pixels have been replaced or
+     * reported changed, so that anything derived from them can tell
+     * whether it is out of date.
+     * @return the modification count
+     */
+    public synchronized int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Retrieve the image's width.
+     * @return image's width
+     */
+    public int getWidth() {
+        return pixwidth;
+    }
+
+    /**
+     * Retrieve the image's height.
+     * @return image's height
+     */
+    public int getHeight() {
+        return pixheight;
+    }
+
+    /**
+     * Read in the image from its file.
+     * Images larger than the tiled threshold are read into a
+     * memory-mapped TiledImage instead of the pixel array.
+     * @throws IOException if the image file cannot be read or decoded
+     */
+    public void load() throws IOException {
+        File file = new File(imgName);
+        Dimension full = ImageDecoder.size(file);
+        if (region != null) {
+            full = region.intersection(new Rectangle(full)).getSize();
+        }
+        int factor = loadSubsampling(full);
+        if (isTooLarge(full, factor)) {
+            loadTiled(file, factor);
+            return;
+        }
+        BufferedImage decoded = ImageDecoder.decode(file, region, factor);
+        setPixels(ImageDecoder.pixelsOf(decoded),
+            decoded.getWidth(), decoded.getHeight());
+    } //load
+
+    /**
+     * Work out the subsampling that load() uses.
+     * @param full size of the image, or of its region
+     * @return the subsampling factor, including any needed to fit
+     *         the preview size
+     */
+    int loadSubsampling(final Dimension full) {
+        int factor = subsample;
+        if (previewMax > 0) {
+            factor = Math.max(factor, ImageDecoder.subsamplingToFit(
+                full, previewMax, previewMax));
+        }
+        return factor;
+    } //loadSubsampling
+
+    /**
+     * Tell whether an image is loaded into tiles rather than pix.
+     * @param full size of the image, or of its region
+     * @param factor the subsampling factor
+     * @return true if the subsampled image exceeds the tiled threshold
+     */
+    static boolean isTooLarge(final Dimension full, final int factor) {
+        long loaded = (long) ((full.width + factor - 1) / factor)
+            * ((full.height + factor - 1) / factor);
+        return loaded > tiledThreshold;
+    } //isTooLarge
+
+    /**
+     * Read in the image unless it is already present.
+     * @throws UncheckedIOException if the image file cannot be
+     *         read or decoded
+     */
+    synchronized void ensureLoaded() {
+        if (isLoaded) {
+            return;
+        }
+        try {
+            load();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(
+                "ImageCore: cannot read " + imgName, ioe);
+        }
+    } //ensureLoaded
+
+    /**
+     * Read the image into a memory-mapped TiledImage instead of pix.
+     * @param file the image file
+     * @param factor subsampling factor
+     * @throws IOException if the file cannot be read or decoded
+     */
+    private void loadTiled(final File file, final int factor)
+        throws IOException {
+        setTiledImage(TiledImage.load(file, region, factor));
+    } //loadTiled
+
+    /**
+     * Use the given tiled image as this image.  The ImageCore takes
+     * it over and closes it when the pixels are replaced.
+     * @param t the tiled image
+     */
+    public synchronized void setTiledImage(final TiledImage t) {
+        if (t != tiles) {
+            dropTiles();
+        }
+        tiles = t;
+        pix = null;
+        planes = null;
+        luma = null;
+        pixwidth = t.getWidth();
+        pixheight = t.getHeight();
+        isLoaded = true;
+        pixelsChanged();
+    } //setTiledImage
+
+    /**
+     * Tell whether this image is held in a memory-mapped TiledImage.
+     * Tiled images have no pixel array; use {@link #getTiledImage()}.
+     * @return true if the image is tiled
+     */
+    public boolean isTiled() {
+        return tiles != null;
+    }
+
+    /**
+     * Retrieve the tiles of an image too large to hold on the heap.
+     * @return the tiled image, or null if the image is held in pix
+     */
+    public TiledImage getTiledImage() {
+        return tiles;
+    }
+
+    /**
+     * Set the number of pixels above which images are read into a
+     * memory-mapped TiledImage instead of a pixel array.
+     * @param pixels the largest number of pixels to hold on the heap
+     */
+    public static void setTiledThreshold(final long pixels) {
+        tiledThreshold = pixels;
+    }
+
+    /**
+     * Cut out x columns and y rows from the NW corner of the image.
+     * Takes effect the next time the image is read in.
+     * @param x the number of columns to remove
+     * @param y the number of rows to remove
+     */
+    public void setTrim(final int x, final int y) {
+        setRegion(new Rectangle(x, y, Integer.MAX_VALUE, Integer.MAX_VALUE));
+    } //setTrim
+
+    /**
+     * Load only part of the image file.  Pixels outside the
+     * region are never decoded.
+     * Takes effect the next time the image is read in.
+     * @param r the part of the image to load, clipped to the
+     *        image's bounds; null to load all of it
+     */
+    public void setRegion(final Rectangle r) {
+        if (r == null) {
+            region = null;
+        } else {
+            region = new Rectangle(r);
+        }
+    } //setRegion
+
+    /**
+     * Retrieve the part of the image file that is loaded.
+     * @return a copy of the region, or null for the whole image
+     */
+    public Rectangle getRegion() {
+        if (region == null) {
+            return null;
+        }
+        return new Rectangle(region);
+    } //getRegion
+
+    /**
+     * Load only every n-th column and row of the image file.
+     * Takes effect the next time the image is read in.
+     * @param n subsampling factor, 1 to load every pixel
+     */
+    public void setSubsampling(final int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException(
+                "ImageCore: subsampling must be at least 1, not " + n);
+        }
+        subsample = n;
+    } //setSubsampling
+
+    /**
+     * Retrieve the subsampling factor used when loading.
+     * @return the factor, 1 if every pixel is loaded
+     */
+    public int getSubsampling() {
+        return subsample;
+    }
+
+    /**
+     * Load a reduced version of the image (or of its region) that
+     * fits in a max x max square, using the smallest subsampling
+     * factor that does so.
+     * Takes effect the next time the image is read in.
+     * @param max the largest width and height to load; 0 for no limit
+     */
+    public void setPreviewSize(final int max) {
+        previewMax = Math.max(0, max);
+    } //setPreviewSize
+
+    /**
+     * Use the given packed ARGB pixels as this image (no copy).
+     * @param argb the pixels, row by row
+     * @param w width in pixels
+     * @param h height in pixels
+     */
+    public synchronized void setPixels(final int[] argb, final int w,
+                                       final int h) {
+        if (argb.length < w * h) {
+            throw new IllegalArgumentException(
+                "ImageCore: " + argb.length + " pixels cannot fill "
+                + w + "x" + h);
+        }
+        dropTiles();
+        pix = argb;
+        pixwidth = w;
+        pixheight = h;
+        pixelsChanged();
+        isLoaded = true;
+    } //setPixels
+
+    /**
+     * Release the tiles of a tiled image, such as an intermediate
+     * result that is no longer needed.  The image is then empty.
+     */
+    synchronized void dropTiles() {
+        if (tiles == null) {
+            return;
+        }
+        try {
+            tiles.close();
+        } catch (IOException ioe) {
+            System.err.println("ImageCore: could not release tiles: " + ioe);
+        }
+        if (pix == null) {
+            pixwidth = 0;
+            pixheight = 0;
+        }
+        tiles = null;
+    } //dropTiles
+
+    /**
+     * Note that the pixels returned by {@link #getPix()} have been
+     * modified in place, so every derived plane must be recomputed.
+     */
+    public synchronized void pixelsChanged() {
+        Arrays.fill(planeValid, false);
+        lumaValid = false;
+        statistics = null;
+        modCount++;
+    } //pixelsChanged
+
+    /** Note that every plane has been set and pix packed from them. */
+    private synchronized void planesSet() {
+        Arrays.fill(planeValid, true);
+        lumaValid = false;
+        statistics = null;
+        modCount++;
+    } //planesSet
+
+    /**
+     * Fail if the image is not held in pix.
+     * @throws IllegalStateException if the image is tiled
+     */
+    void requireInMemory() {
+        if (tiles != null) {
+            throw new IllegalStateException("ImageCore: " + imgName
+                + " is too large for the heap and this operation needs"
+                + " it all at once; use getTiledImage()");
+        }
+    } //requireInMemory
+
+    /**
+     * Create a B&W image based on the parameter.
+     * @param localImg 2D array of black-and-white pixel values (0-255)
+     */
+    public void setBWImage(final short[][] localImg) {
+        PixelKernels k = Kernels.get();
+        dropTiles();
+        pixheight = localImg.length;
+        pixwidth  = localImg[0].length;
+        pix = new int[pixheight * pixwidth];
+        for (int row = 0; row < pixheight; row++) {
+            k.packGray(localImg[row], 0, pix, row * pixwidth, pixwidth);
+        } //for row
+        pixelsChanged();
+        isLoaded = true;
+    } //setBWImage
+
+    /**
+     * Return the image in black and white.
+     * @return 2D array of pixel grey-values (0 to 255)
+     */
+    public short[][] getBWImage() {
+        byte[] gray = toBW();   //compute the black and white plane if needed
+
+        //copy from byte []gray to short [][]b
+        short[][] b = new short[pixheight][pixwidth];
+        int spot = 0;
+        for (int r = 0; r < pixheight; r++) {
+            short[] line = b[r];
+            for (int c = 0; c < pixwidth; c++) {
+                line[c] = (short) (gray[spot++] & MAX_VALUE);
+            } //for c
+        } //for r
+        return b;
+    } //getBWImage
+
+    /**
+     * Retrieve a read-only view of the image in black and white.
+     * The gray values are computed once and kept until the
+     * pixels change; the color data is not affected.
+     * @return a view of the gray plane (0 to 255)
+     */
+    public PlaneView getBWView() {
+        return new PlaneView(toBW(), 0, pixwidth, pixwidth, pixheight);
+    } //getBWView
+
+    /**
+     * Compute the gray scale (black and white) plane from pix,
+     * unless it is already up to date.  pix is not modified.
+     * @return the gray values
+     */
+    private synchronized byte[] toBW() {
+        ensureLoaded();
+        if (lumaValid) {
+            return luma;
+        }
+        requireInMemory();
+        if (luma == null || luma.length != pix.length) {
+            luma = new byte[pix.length];
+        }
+        Luminance.compute(pix, 0, pix.length, luma);
+        lumaValid = true;
+        return luma;
+    } //toBW
+
+    /**
+     * Retrieve the planes with the given channel up to date,
+     * unpacking it from pix if it has not been requested since
+     * pix last changed.
+     * @param channel PixelBuffer.RED, GREEN, BLUE or ALPHA
+     * @return the planes, or null if there is no image
+     */
+    private synchronized PixelBuffer plane(final int channel) {
+        requireInMemory();
+        if (pix == null) {
+            return planes;
+        }
+        if (planes == null
+            || planes.getWidth() != pixwidth
+            || planes.getHeight() != pixheight) {
+            planes = new PixelBuffer(pixwidth, pixheight);
+            Arrays.fill(planeValid, false);
+        }
+        if (!planeValid[channel]) {
+            planes.unpack(pix, channel);
+            planeValid[channel] = true;
+        }
+        return planes;
+    } //plane
+
+    /**
+     * Set the RGB and Alpha components for this image.
+     * @param rd 2D array that represents the image's red component
+     * @param g  2D array that represents the image's green component
+     * @param b  2D array that represents the image's blue component
+     * @param al 2D array that represents the image's alpha channel
+     */
+    public void setColors(
+        final short[][] rd,
+        final short[][] g,
+        final short[][] b,
+        final short[][] al) {
+        dropTiles();
+        pixheight = rd.length;
+        pixwidth  = rd[0].length;
+        planes  = new PixelBuffer(pixwidth, pixheight);
+        planes.setPlane(PixelBuffer.RED, rd);
+        planes.setPlane(PixelBuffer.GREEN, g);
+        planes.setPlane(PixelBuffer.BLUE, b);
+        planes.setPlane(PixelBuffer.ALPHA, al);
+        pix     = new int[pixwidth * pixheight];
+        planes.pack(pix);
+        planesSet();
+        isLoaded = true;
+    } //setColors
+
+    /**
+     * Retrieve the color and alpha planes of this image.
+     * The buffer is shared, not copied; after modifying it
+     * call {@link #setPixelBuffer(PixelBuffer)} so that the
+     * packed pixels are brought up to date.
+     * @return the image's pixel buffer
+     */
+    public synchronized PixelBuffer getPixelBuffer() {
+        ensureLoaded();
+        for (int c = 0; c < PixelBuffer.CHANNELS; c++) {
+            plane(c);
+        }
+        return planes;
+    } //getPixelBuffer
+
+    /**
+     * Use the given buffer as the color and alpha planes of this image.
+     * The buffer is adopted without copying.
+     * @param pb the new pixel buffer
+     */
+    public void setPixelBuffer(final PixelBuffer pb) {
+        dropTiles();
+        planes    = pb;
+        pixheight = pb.getHeight();
+        pixwidth  = pb.getWidth();
+        if (pix == null || pix.length != pixwidth * pixheight) {
+            pix = new int[pixwidth * pixheight];
+        }
+        planes.pack(pix);
+        planesSet();
+        isLoaded = true;
+    } //setPixelBuffer
+
+    /**
+     * Retrieve one of the image's components as a new 2D array.
+     * @param channel PixelBuffer.RED, GREEN, BLUE or ALPHA
+     * @return A 2D array of values from 0 to 255.
+     */
+    public short[][] getPlane(final int channel) {
+        ensureLoaded();
+        return plane(channel).toPlane(channel);
+    } //getPlane
+
+    /**
+     * Retrieve a read-only view of one of the image's planes.
+     * No copy is made.
+     * @param channel PixelBuffer.RED, GREEN, BLUE or ALPHA
+     * @return a view of the plane
+     */
+    public PlaneView getPlaneView(final int channel) {
+        ensureLoaded();
+        return new PlaneView(plane(channel), channel);
+    } //getPlaneView
+
+    /**
+     * Retrieve a writable copy-on-write view of one of the image's planes.
+     * The plane is copied only when it is first written to.
+     * @param channel PixelBuffer.RED, GREEN, BLUE or ALPHA
+     * @return a mutable plane
+     */
+    public MutablePlane getMutablePlane(final int channel) {
+        ensureLoaded();
+        return new MutablePlane(plane(channel), channel);
+    } //getMutablePlane
+
+    /**
+     * Run a streaming filter over the image: in one band if it is held
+     * in pix, a band of tiles at a time if it is tiled.
+     * @param filter the filter
+     * @return a new ImageCore holding the result
+     */
+    public ImageCore apply(final StreamingFilter filter) {
+        return mapBands(filter.getNeighborhood(), new BandMapper() {
+            public void map(final int[] src, final int[] dst,
+                            final int width, final int rows) {
+                filter.filterBand(new RowBand(src, width, rows, 0, rows),
+                                  new RowBand(dst, width, rows, 0, rows));
+            }
+        });
+    } //apply
+
+    /**
+     * Compute a new image from bands of rows of this one.  An image
+     * held in pix is passed to the mapper as a single band; a tiled
+     * image is worked through a band at a time
+     * (see {@link TiledImage#mapBands(int, BandMapper)}) and gives a
+     * tiled result.
+     * @param margin rows of context the mapper needs above and below
+     *        each band
+     * @param mapper computes each band
+     * @return a new ImageCore holding the result
+     * @throws UncheckedIOException if the tiles of the result cannot
+     *         be created
+     */
+    public ImageCore mapBands(final int margin, final BandMapper mapper) {
+        ensureLoaded();
+        ImageCore result = new ImageCore();
+        if (tiles == null) {
+            int[] out = new int[pixwidth * pixheight];
+            mapper.map(pix, out, pixwidth, pixheight);
+            result.setPixels(out, pixwidth, pixheight);
+            return result;
+        }
+        try {
+            result.setTiledImage(tiles.mapBands(margin, mapper));
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(
+                "ImageCore: cannot create tiles for the result", ioe);
+        }
+        return result;
+    } //mapBands
+
+    /**
+     * Retrieve the histograms and statistics of the image.
+     * They are computed on first use and kept until the pixels change
+     * (call {@link #pixelsChanged()} after modifying getPix() in place).
+     * @return the statistics
+     */
+    public synchronized ImageStatistics getStatistics() {
+        ensureLoaded();
+        if (statistics == null && tiles != null) {
+            statistics = new ImageStatistics(tiles);
+        } else if (statistics == null) {
+            statistics = new ImageStatistics(pix, pixwidth, pixheight);
+        }
+        return statistics;
+    } //getStatistics
+
+    /**
+     * Apply a point operation to every pixel in a single pass,
+     * spread over all processors.
+     * @param op the operation; ChannelOps are turned into lookup tables
+     * @return a new ImageCore holding the result
+     */
+    public ImageCore map(final PointOp op) {
+        return mapBands(0, new BandMapper() {
+            public void map(final int[] src, final int[] dst,
+                            final int width, final int rows) {
+                PointOps.applyParallel(op, src, dst, width, rows);
+            }
+        });
+    } //map
+
+    /**
+     * Resize the image.
+     * @param w width of the result
+     * @param h height of the result
+     * @param method Resampler.NEAREST, BILINEAR, BICUBIC or LANCZOS
+     * @return a new ImageCore holding the result
+     */
+    public ImageCore resize(final int w, final int h, final int method) {
+        return Resampler.resize(this, w, h, method);
+    }
+
+    /**
+     * Flip, turn or transpose the image.
+     * @param op Transforms.FLIP_HORIZONTAL, FLIP_VERTICAL, ROTATE_90,
+     *        ROTATE_180, ROTATE_270 or TRANSPOSE
+     * @return a new ImageCore holding the result
+     */
+    public ImageCore transform(final int op) {
+        return Transforms.transform(this, op);
+    }
+
+    /**
+     * Retrieve a BufferedImage that shares this image's pixels.
+     * Changes to either are seen by the other, so a window drawing it
+     * shows changes made in place as soon as it is repainted.  The
+     * same BufferedImage is returned until pix is replaced.
+     * @return a TYPE_INT_ARGB image backed by pix
+     */
+    public synchronized BufferedImage toBufferedImage() {
+        ensureLoaded();
+        requireInMemory();
+        BufferedImage bi = view;
+        if (bi == null || bi.getWidth() != pixwidth
+            || bi.getHeight() != pixheight
+            || ((DataBufferInt) bi.getRaster().getDataBuffer()).getData()
+                != pix) {
+            bi = wrap((DirectColorModel) ColorModel.getRGBdefault());
+            view = bi;
+        }
+        return bi;
+    } //toBufferedImage
+
+    /**
+     * Wrap pix in a BufferedImage with the given color model.
+     * @param cm a direct color model for packed ARGB or RGB pixels
+     * @return the image
+     */
+    private BufferedImage wrap(final DirectColorModel cm) {
+        DataBufferInt db = new DataBufferInt(pix, pixwidth * pixheight);
+        WritableRaster raster = Raster.createPackedRaster(
+            db, pixwidth, pixheight, pixwidth, cm.getMasks(), null);
+        return new BufferedImage(cm, raster, false, null);
+    } //wrap
+
+    /**
+     * Write the image to a file.
+     * Formats without alpha (such as JPEG) are written as opaque RGB.
+     * Tiled images are written a band of tiles at a time.
+     * @param file the file to write
+     * @param format the ImageIO format name, such as "jpeg" or "png"
+     * @throws IOException if the file cannot be written
+     */
+    public void save(final File file, final String format)
+        throws IOException {
+        ensureLoaded();
+        if (tiles != null) {
+            saveTiled(file, format);
+            return;
+        }
+        BufferedImage out;
+        if (BandEncoder.keepsAlpha(format)) {
+            out = toBufferedImage();
+        } else {
+            out = wrap(new DirectColorModel(PixelBuffer.RGB_BITS,
+                PixelBuffer.RED_MASK, PixelBuffer.GREEN_MASK,
+                PixelBuffer.BLUE_MASK));
+        }
+        if (!ImageIO.write(out, format, file)) {
+            throw new IOException("No image writer for format " + format);
+        }
+    } //save
+
+    /**
+     * Write a tiled image to a file, letting the writer read it from
+     * the tiles a band at a time.
+     * @param file the file to write
+     * @param format the ImageIO format name
+     * @throws IOException if the file cannot be written
+     */
+    private void saveTiled(final File file, final String format)
+        throws IOException {
+        TiledRenderedImage out =
+            new TiledRenderedImage(tiles, BandEncoder.keepsAlpha(format));
+        if (!ImageIO.write(out, format, file)) {
+            throw new IOException("No image writer for format " + format);
+        }
+    } //saveTiled
+} //ImageCore
@@ -0,0 +1,568 @@
+package imagelab;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import org.w3c.dom.Node;
+
+/**
+ * ImageDecoder reads image files with javax.imageio.
+ * Whenever the format allows it the decoder writes straight into a
+ * packed ARGB int raster, so the pixels can be used without a copy;
+ * other formats (e.g. palette images) are converted in a single pass.
+ * Decoding is synchronous: when a method returns, all pixels are present.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public final class ImageDecoder {
+    /** Number of bands of an RGB image without alpha. */
+    private static final int RGB_BANDS = 3;
+    /** Number of bands of an RGB image with alpha. */
+    private static final int ARGB_BANDS = 4;
+    /** Name of the PNG reader's native metadata format. */
+    private static final String PNG_METADATA = "javax_imageio_png_1.0";
+    /** Name of the JPEG reader's native metadata format. */
+    private static final String JPEG_METADATA =
+        "javax_imageio_jpeg_image_1.0";
+    /** Process attribute of a progressive JPEG's frame header. */
+    private static final String JPEG_PROGRESSIVE = "2";
+
+    /** Private constructor to avoid instantiation. */
+    private ImageDecoder() { }
+
+    /**
+     * Decode an image file, dropping <CODE>x</CODE> columns and
+     * <CODE>y</CODE> rows from its north-west corner.
+     * The result is backed by a DataBufferInt of packed ARGB pixels
+     * (see {@link #pixelsOf(BufferedImage)}).
+     * @param file the image file
+     * @param x the number of columns to remove
+     * @param y the number of rows to remove
+     * @return the decoded image
+     * @throws IOException if the file cannot be read or decoded
+     */
+    public static BufferedImage decode(
+        final File file, final int x, final int y) throws IOException {
+        return decode(file,
+            new Rectangle(x, y, Integer.MAX_VALUE, Integer.MAX_VALUE), 1);
+    } //decode
+
+    /**
+     * Decode part of an image file, optionally keeping only every
+     * <CODE>subsample</CODE>-th column and row.  The crop and the
+     * subsampling are done by the reader, so pixels outside the
+     * region or between the kept columns and rows are never stored.
+     * The result is backed by a DataBufferInt of packed ARGB pixels
+     * (see {@link #pixelsOf(BufferedImage)}).
+     * @param file the image file
+     * @param region the part of the image to decode, clipped to the
+     *        image's bounds; null for the whole image
+     * @param subsample keep one pixel in every subsample columns
+     *        and rows (1 keeps every pixel)
+     * @return the decoded image, about region.width / subsample wide
+     *         and region.height / subsample high
+     * @throws IOException if the file cannot be read or decoded
+     */
+    public static BufferedImage decode(
+        final File file, final Rectangle region, final int subsample)
+        throws IOException {
+        if (subsample < 1) {
+            throw new IllegalArgumentException(
+                "ImageDecoder: subsampling must be at least 1, not "
+                + subsample);
+        }
+        try (ImageInputStream in = open(file)) {
+            ImageReader reader = readerFor(in, file);
+            try {
+                Rectangle src = clip(reader, region, file);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(src);
+                param.setSourceSubsampling(subsample, subsample, 0, 0);
+                int width  = (src.width + subsample - 1) / subsample;
+                int height = (src.height + subsample - 1) / subsample;
+                return read(reader, param, width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    } //decode
+
+    /**
+     * Decode part of an image file a band of rows at a time, so that
+     * no more than one band of pixels is ever held in memory.
+     * Formats whose reader delivers the rows in order from the top
+     * (JPEG, and PNG that is not interlaced) are decoded in a single
+     * pass, the reader writing into a band-sized buffer that is handed
+     * to the consumer whenever it fills.  Other formats are read one
+     * band-sized region at a time, which is cheap for formats that can
+     * seek to a row or tile.
+     * @param file the image file
+     * @param region the part of the image to decode, clipped to the
+     *        image's bounds; null for the whole image
+     * @param subsample keep one pixel in every subsample columns and rows
+     * @param bandHeight number of (decoded) rows per band
+     * @param consumer receives each band in order from top to bottom
+     * @return the size of the decoded image
+     * @throws IOException if the file cannot be read or decoded,
+     *         or the consumer fails
+     */
+    public static Dimension decodeBands(
+        final File file, final Rectangle region, final int subsample,
+        final int bandHeight, final BandConsumer consumer)
+        throws IOException {
+        if (subsample < 1 || bandHeight < 1) {
+            throw new IllegalArgumentException(
+                "ImageDecoder: bad subsampling " + subsample
+                + " or band height " + bandHeight);
+        }
+        try (ImageInputStream in = open(file)) {
+            ImageReader reader = readerFor(in, file);
+            try {
+                Rectangle src = clip(reader, region, file);
+                int width  = (src.width + subsample - 1) / subsample;
+                int height = (src.height + subsample - 1) / subsample;
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(src);
+                param.setSourceSubsampling(subsample, subsample, 0, 0);
+                int bands = bandsOf(reader);
+                if ((long) width * height <= Integer.MAX_VALUE
+                    && readsInOrder(reader)
+                    && (bands == 1 || bands == RGB_BANDS
+                        || bands == ARGB_BANDS)) {
+                    BandBuffer buffer = new BandBuffer(width, height,
+                        bandHeight, bands, consumer);
+                    param.setDestination(buffer.image());
+                    try {
+                        reader.read(0, param);
+                        buffer.finish();
+                    } catch (UncheckedIOException uioe) {
+                        throw uioe.getCause();
+                    }
+                } else {
+                    decodeRegions(reader, src, subsample, bandHeight,
+                        consumer);
+                }
+                return new Dimension(width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    } //decodeBands
+
+    /**
+     * Decode an image one band-sized source region at a time.
+     * @param reader the reader, with its input set
+     * @param src the part of the image to decode
+     * @param subsample keep one pixel in every subsample columns and rows
+     * @param bandHeight number of (decoded) rows per band
+     * @param consumer receives each band in order from top to bottom
+     * @throws IOException if the file cannot be decoded, or the
+     *         consumer fails
+     */
+    private static void decodeRegions(
+        final ImageReader reader, final Rectangle src, final int subsample,
+        final int bandHeight, final BandConsumer consumer)
+        throws IOException {
+        int width  = (src.width + subsample - 1) / subsample;
+        int height = (src.height + subsample - 1) / subsample;
+        for (int row = 0; row < height; row += bandHeight) {
+            int rows = Math.min(bandHeight, height - row);
+            int top = src.y + row * subsample;
+            int srcRows = Math.min(
+                rows * subsample, src.y + src.height - top);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(
+                new Rectangle(src.x, top, src.width, srcRows));
+            param.setSourceSubsampling(subsample, subsample, 0, 0);
+            BufferedImage band = read(reader, param, width, rows);
+            consumer.consume(row, rows, width, pixelsOf(band));
+        }
+    } //decodeRegions
+
+    /**
+     * Tell whether a reader stores the rows of its first image once
+     * each, from the top down.
+     * @param reader the reader, with its input set
+     * @return true for JPEG that is not progressive and for PNG that
+     *         is not interlaced
+     * @throws IOException if the image header cannot be read
+     */
+    private static boolean readsInOrder(final ImageReader reader)
+        throws IOException {
+        String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+        IIOMetadata meta = reader.getImageMetadata(0);
+        if (meta == null) {
+            return false;
+        }
+        if (format.equals("jpeg") || format.equals("jpg")) {
+            Node sof = find(meta.getAsTree(JPEG_METADATA), "sof");
+            return sof != null
+                && !JPEG_PROGRESSIVE.equals(attribute(sof, "process"));
+        }
+        if (format.equals("png")) {
+            Node ihdr = find(meta.getAsTree(PNG_METADATA), "IHDR");
+            return ihdr != null
+                && "none".equals(attribute(ihdr, "interlaceMethod"));
+        }
+        return false;
+    } //readsInOrder
+
+    /**
+     * Find the first element with a given name in a metadata tree.
+     * @param node the root of the tree
+     * @param name the element name
+     * @return the element, or null if there is none
+     */
+    private static Node find(final Node node, final String name) {
+        if (node.getNodeName().equals(name)) {
+            return node;
+        }
+        for (Node n = node.getFirstChild(); n != null;
+             n = n.getNextSibling()) {
+            Node found = find(n, name);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    } //find
+
+    /**
+     * Retrieve an attribute of a metadata element.
+     * @param node the element
+     * @param name the attribute name
+     * @return its value, or null if it is not set
+     */
+    private static String attribute(final Node node, final String name) {
+        Node a = node.getAttributes().getNamedItem(name);
+        return a == null ? null : a.getNodeValue();
+    }
+
+    /**
+     * Read the width and height of an image file without decoding it.
+     * @param file the image file
+     * @return the size of the (first) image in the file
+     * @throws IOException if the file cannot be read
+     */
+    public static Dimension size(final File file) throws IOException {
+        try (ImageInputStream in = open(file)) {
+            ImageReader reader = readerFor(in, file);
+            try {
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    } //size
+
+    /**
+     * Smallest subsampling factor that makes an image fit in a box.
+     * @param full the size of the whole image
+     * @param maxWidth the largest acceptable width
+     * @param maxHeight the largest acceptable height
+     * @return a factor of 1 or more
+     */
+    public static int subsamplingToFit(
+        final Dimension full, final int maxWidth, final int maxHeight) {
+        int byWidth  = (full.width + maxWidth - 1) / maxWidth;
+        int byHeight = (full.height + maxHeight - 1) / maxHeight;
+        return Math.max(1, Math.max(byWidth, byHeight));
+    } //subsamplingToFit
+
+    /**
+     * Clip a requested region to the bounds of the reader's first image.
+     * @param reader the reader, with its input set
+     * @param region the requested region; null for the whole image
+     * @param file the image file (for error messages)
+     * @return the part of the image to decode
+     * @throws IOException if the region misses the image entirely
+     */
+    private static Rectangle clip(
+        final ImageReader reader, final Rectangle region, final File file)
+        throws IOException {
+        Rectangle bounds = new Rectangle(
+            0, 0, reader.getWidth(0), reader.getHeight(0));
+        Rectangle src = bounds;
+        if (region != null) {
+            src = bounds.intersection(region);
+        }
+        if (src.isEmpty()) {
+            throw new IOException("Region " + region
+                + " lies outside of " + file);
+        }
+        return src;
+    } //clip
+
+    /**
+     * Open an image file for reading.
+     * @param file the image file
+     * @return a stream positioned at the start of the file
+     * @throws IOException if the file cannot be opened
+     */
+    private static ImageInputStream open(final File file) throws IOException {
+        if (!file.canRead()) {
+            throw new IOException("Cannot read image file " + file);
+        }
+        ImageInputStream in = ImageIO.createImageInputStream(file);
+        if (in == null) {
+            throw new IOException("Cannot open image file " + file);
+        }
+        return in;
+    } //open
+
+    /**
+     * Find a reader for an image stream and attach it to the stream.
+     * @param in the image stream
+     * @param file the image file (for error messages)
+     * @return a reader with its input set
+     * @throws IOException if no reader understands the stream
+     */
+    private static ImageReader readerFor(
+        final ImageInputStream in, final File file) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            throw new IOException("Unsupported image format: " + file);
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(in, false, true);
+        return reader;
+    } //readerFor
+
+    /**
+     * Retrieve the packed ARGB pixels of a decoded image (not a copy).
+     * @param img an image returned by this class
+     * @return the image's pixels, one int per pixel, row by row
+     */
+    public static int[] pixelsOf(final BufferedImage img) {
+        return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Decode with the given parameters into an int-packed image.
+     * @param reader the reader, with its input set
+     * @param param the read parameters
+     * @param width width of the decoded image
+     * @param height height of the decoded image
+     * @return the decoded image
+     * @throws IOException if decoding fails
+     */
+    private static BufferedImage read(
+        final ImageReader reader, final ImageReadParam param,
+        final int width, final int height) throws IOException {
+        int bands = bandsOf(reader);
+        if (bands == RGB_BANDS || bands == ARGB_BANDS) {
+            int type = BufferedImage.TYPE_INT_RGB;
+            if (bands == ARGB_BANDS) {
+                type = BufferedImage.TYPE_INT_ARGB;
+            }
+            BufferedImage dest = new BufferedImage(width, height, type);
+            param.setDestination(dest);
+            try {
+                reader.read(0, param);
+                if (bands == RGB_BANDS) {
+                    int[] pix = pixelsOf(dest);
+                    for (int i = 0; i < pix.length; i++) {
+                        pix[i] |= PixelBuffer.OPAQUE;
+                    }
+                }
+                return dest;
+            } catch (IIOException | IllegalArgumentException
+                     | ClassCastException e) {
+                //reader cannot write into an int raster; convert instead
+                param.setDestination(null);
+            }
+        }
+        BufferedImage src = reader.read(0, param);
+        BufferedImage dest = new BufferedImage(
+            src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        src.getRGB(0, 0, src.getWidth(), src.getHeight(),
+            pixelsOf(dest), 0, src.getWidth());
+        return dest;
+    } //read
+
+    /**
+     * Number of bands the reader produces for the first image,
+     * or 0 if it produces palette images.
+     * @param reader the reader, with its input set
+     * @return the number of bands
+     * @throws IOException if the image header cannot be read
+     */
+    private static int bandsOf(final ImageReader reader) throws IOException {
+        ImageTypeSpecifier spec = reader.getRawImageType(0);
+        if (spec == null) {
+            Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+            if (!types.hasNext()) {
+                return 0;
+            }
+            spec = types.next();
+        }
+        if (spec.getColorModel() instanceof IndexColorModel) {
+            return 0;
+        }
+        return spec.getNumBands();
+    } //bandsOf
+
+    /**
+     * The pixels of a destination image that keeps only one band of
+     * rows.  The reader stores samples through setElem; as soon as it
+     * moves below the band, the band is handed to the consumer and the
+     * buffer moves down to hold the next one.
+     */
+    private static final class BandBuffer extends DataBuffer {
+        /** Width of the image. */
+        private final int width;
+        /** Height of the image. */
+        private final int height;
+        /** Number of bands the reader stores: 1, 3 or 4. */
+        private final int bands;
+        /** Receives the bands. */
+        private final BandConsumer consumer;
+        /** The current band: gray samples, or RGB or ARGB pixels. */
+        private final int[] band;
+        /** ARGB of each gray sample, as the gray color model gives it. */
+        private final int[] grayRGB = new int[PixelBuffer.MASK + 1];
+        /** Image row of the first row of the band. */
+        private int first;
+        /** Rows in the current band. */
+        private int rows;
+        /** Index in the image of the first element of the band. */
+        private int low;
+        /** Index in the image one past the last element of the band. */
+        private int high;
+
+        /**
+         * Create the buffer with the first band empty.
+         * @param w width of the image
+         * @param h height of the image
+         * @param bandHeight rows per band
+         * @param nBands 1 for gray, 3 for RGB or 4 for ARGB
+         * @param c receives the bands
+         */
+        BandBuffer(final int w, final int h, final int bandHeight,
+                   final int nBands, final BandConsumer c) {
+            super(nBands == 1 ? TYPE_BYTE : TYPE_INT, w * h);
+            width = w;
+            height = h;
+            bands = nBands;
+            consumer = c;
+            band = new int[w * Math.min(bandHeight, h)];
+            moveTo(0);
+        }
+
+        /**
+         * Make a destination image whose pixels are this buffer.
+         * @return the image
+         */
+        BufferedImage image() {
+            ColorModel cm;
+            SampleModel sm;
+            if (bands == 1) {
+                cm = new ComponentColorModel(
+                    ColorSpace.getInstance(ColorSpace.CS_GRAY), false,
+                    false, Transparency.OPAQUE, TYPE_BYTE);
+                for (int v = 0; v <= PixelBuffer.MASK; v++) {
+                    grayRGB[v] = cm.getRGB(new byte[] {(byte) v});
+                }
+                sm = new PixelInterleavedSampleModel(TYPE_BYTE, width,
+                    height, 1, width, new int[] {0});
+            } else {
+                DirectColorModel dcm = bands == ARGB_BANDS
+                    ? (DirectColorModel) ColorModel.getRGBdefault()
+                    : new DirectColorModel(PixelBuffer.RGB_BITS,
+                        PixelBuffer.RED_MASK, PixelBuffer.GREEN_MASK,
+                        PixelBuffer.BLUE_MASK);
+                cm = dcm;
+                sm = new SinglePixelPackedSampleModel(TYPE_INT, width,
+                    height, dcm.getMasks());
+            }
+            WritableRaster raster = Raster.createWritableRaster(sm, this,
+                                                                null);
+            return new BufferedImage(cm, raster, false, null);
+        } //image
+
+        /**
+         * Make the band start at a row, empty.
+         * @param row the image row
+         */
+        private void moveTo(final int row) {
+            first = row;
+            rows = Math.min(band.length / width, height - row);
+            low = row * width;
+            high = low + rows * width;
+            Arrays.fill(band, 0, rows * width, 0);
+        } //moveTo
+
+        /** Hand the band to the consumer and move to the next one. */
+        private void flush() {
+            if (bands == 1) {
+                for (int k = rows * width - 1; k >= 0; k--) {
+                    band[k] = grayRGB[band[k]];
+                }
+            } else if (bands == RGB_BANDS) {
+                for (int k = rows * width - 1; k >= 0; k--) {
+                    band[k] |= PixelBuffer.OPAQUE;
+                }
+            }
+            try {
+                consumer.consume(first, rows, width, band);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+            moveTo(first + rows);
+        } //flush
+
+        /** Hand over the rows not yet consumed. */
+        void finish() {
+            while (first < height) {
+                flush();
+            }
+        }
+
+        @Override
+        public int getElem(final int bank, final int i) {
+            if (i < low || i >= high) {
+                return 0;
+            }
+            return band[i - low];
+        }
+
+        @Override
+        public void setElem(final int bank, final int i, final int val) {
+            while (i >= high) {
+                flush();
+            }
+            if (i < low) {
+                throw new IllegalStateException(
+                    "ImageDecoder: reader went back to row " + i / width);
+            }
+            band[i - low] = bands == 1 ? val & PixelBuffer.MASK : val;
+        }
+    } //BandBuffer
+} //ImageDecoder
@@ -2,23 +2,28 @@ package imagelab;
 
 /* ImageLab.java */
 import java.awt.Container;
+import java.awt.Dimension;
 import java.awt.FileDialog;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import javax.swing.JFrame;
 import javax.swing.JButton;
+import javax.swing.JDialog;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
-import javax.swing.filechooser.FileSystemView;
+import javax.swing.JProgressBar;
+import javax.swing.Timer;
 import java.io.File;
-import java.util.List;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 /**
  *  ImageLab is a platform for image filter development.  ImageLab
  *  begins by building a menu of all available filters (those .class files
  *  that implement the {@see ImageFilter ImageFilter} interface).
+ *  The open images, the selected image and the filters belong to a
+ *  {@link Session}; each ImageLab is a window onto one Session.
  *  [TO DO: User interface to allow chosing directory to search for filters.
  *  [TO DO: User interface to allow displaying images a line or pixel at a time.
  *  @author Dr. Aaron Gordon
@@ -33,25 +38,16 @@ public class ImageLab {
     public static final String FILTER_DIR = "filters";
 
     /** The application's main frame. */
-    private static JFrame frame;
+    private final JFrame frame;
 
-    /** Holds all open images (ImgProvider objects). */
-    private static List<ImgProvider> images = new ArrayList<ImgProvider>();
+    /** The open images, the selected image and the filters. */
+    private final Session session;
 
     /** The directory that holds filter classes.  (TODO) */
-    private static String filterDir = FILTER_DIR;
-
-    /** Holds the actual filter objects. */
-    private static List<ImageFilter> filters;
-
-    /** The current image provider. */
-    private static ImgProvider impro;
-
-    /** A copy of <CODE>this</CODE>. */
-    private static ImageLab theLab;
+    private String filterDir = FILTER_DIR;
 
     /** Accessible menu bar for ImageLab. */
-    private static JMenuBar menubar;
+    private JMenuBar menubar;
 
     /** Bound x value. */
     private static final int BOUND_X = 400;
@@ -61,6 +57,14 @@ public class ImageLab {
     private static final int BOUND_WIDTH = 300;
     /** Bound height value. */
     private static final int BOUND_HEIGHT = 100;
+    /** Milliseconds a filter runs before its progress is shown. */
+    private static final int PROGRESS_DELAY = 300;
+    /** Milliseconds between updates of a progress bar. */
+    private static final int PROGRESS_PERIOD = 100;
+    /** Number of steps in a progress bar. */
+    private static final int PROGRESS_STEPS = 1000;
+    /** Images with more pixels than this are shown as they decode. */
+    private static final long PROGRESSIVE_PIXELS = 1L << 22;
 
     /**
      * Application entry point.
@@ -70,10 +74,18 @@ public class ImageLab {
         ImageLab ilab = new ImageLab();
     }
 
-    /** Constructor. */
+    /** Constructor that starts a new Session. */
     public ImageLab() {
-        theLab  = this;
-        filters = new ArrayList<ImageFilter>();
+        this(new Session());
+    }
+
+    /**
+     * Constructor that shows an existing Session.  The filters are
+     * looked for only if the Session has none.
+     * @param s the session
+     */
+    public ImageLab(final Session s) {
+        session = s;
         frame   = new JFrame(VERSION);
         Container cpane = frame.getContentPane();
 
@@ -99,10 +111,9 @@ public class ImageLab {
                     //System.out.println
                     //("The file's name is " + theDir + theFile);
                     improvider = new ImgProvider(theDir + theFile);
-                    improvider.setLab(theLab);
+                    improvider.setLab(ImageLab.this);
                     improvider.showImage(theDir + theFile);
-                    images.add(improvider);
-                    impro = improvider;
+                    session.setActive(improvider);
                 }
             }
         );
@@ -126,12 +137,20 @@ public class ImageLab {
         frame.setVisible(true);
     }
 
+    /**
+     * Retrieve the session shown by this ImageLab.
+     * @return the session
+     */
+    public Session getSession() {
+        return session;
+    }
+
     /** Sets the Image Provider object.
      *  @param imgProvider ImgProvider object
      */
 
-    public static void setImgProvider(final ImgProvider imgProvider) {
-        impro = imgProvider;
+    public void setImgProvider(final ImgProvider imgProvider) {
+        session.setActive(imgProvider);
     }
 
     /**
@@ -161,55 +180,24 @@ public class ImageLab {
         );
         JMenu filter = new JMenu("Filter");
         mbar.add(filter);
-        //Find filters and build corresponding menu items.
-        //Look at each .class file in filterDir.
-        //Do the classForName stuff and enter into filter menu.
-        //System.out.println("**********finding filters***********");
-        FileSystemView fsv = FileSystemView.getFileSystemView();
-        //File [] fil = fsv.getFiles(new File("."),true);
-        File[] fil = fsv.getFiles(new File(filterDir), true);
-        //System.out.println("Found " + fil.length + " possible filters");
-        String clName = " ";        //holds name of class
-        for (int k = 0; k < fil.length; k++) {
-            if (fil[k].getName().endsWith("class")) {
-                Class<?> cl;
-                ImageFilter ifilter;
+        //Find filters unless the session has them already.
+        if (session.getFilters().isEmpty()) {
+            for (Class<? extends ImageFilter> cl
+                     : FilterLoader.discover(filterDir)) {
                 try {
-                    clName = fil[k].getName();
-                    int spot = clName.lastIndexOf(".");
-                    //clName = clName.substring(0,spot);
-                    clName = "filters." + clName.substring(0, spot);
-                    //System.out.println("Trying: " + clName);
-                    cl = Class.forName(clName);
-                    //System.out.println("Class for name is: " + cl);
-                    Class<?>[] interfaces = cl.getInterfaces();
-                    //System.out.println("Number of interfaces is "
-                    //+ interfaces.length);
-                    boolean isFilter = false;
-                    for (int j = 0; j < interfaces.length; j++) {
-                        //System.out.println("------->>>>>>>>>>"
-                        // + interfaces[j].getName());
-                        isFilter |=
-                        interfaces[j].getName().equals("imagelab.ImageFilter");
-                    } //for ja
-                    if (isFilter) {
-                        ifilter = (ImageFilter) cl.getDeclaredConstructor()
-                        .newInstance();
-                        //System.out.println("This is the one: "
-                        //+ fil[k].getName());
-                        filters.add(ifilter);
-                        JMenuItem jmi = new JMenuItem(ifilter.getMenuLabel());
-                        filter.add(jmi);
-                        jmi.addActionListener(makeActionListener(
-                                (filters.get(filters.size() - 1))));
-                    } //if
+                    session.addFilter(FilterLoader.toStateless(cl));
                 } catch (Exception bigEx) {
-                    System.err.println("Error in buildMenus, k = " + k);
+                    System.err.println("Error in buildMenus, class " + cl);
                     System.err.println(">>> " + bigEx);
                 } //catch
-            } //if
-
-        } //for k
+            } //for cl
+        }
+        //Build corresponding menu items.
+        for (StatelessFilter ifilter : session.getFilters()) {
+            JMenuItem jmi = new JMenuItem(ifilter.getMenuLabel());
+            filter.add(jmi);
+            jmi.addActionListener(makeActionListener(ifilter));
+        }
 
         return mbar;
     } //buildMenus
@@ -220,7 +208,7 @@ public class ImageLab {
      * @param who DisplayImage
      * @return the new File menu
      */
-    public static JMenu newFileMenu(final DisplayImage who) {
+    public JMenu newFileMenu(final DisplayImage who) {
         JMenu fileMenu = new JMenu("File");
         //        JMenuItem open = new JMenuItem("Open",'O');
         //        fileMenu.add(open);
@@ -247,45 +235,129 @@ public class ImageLab {
      * Provides access to all filters.
      * @return the new Filter menu
      */
-    public static JMenu newFilterMenu() {
+    public JMenu newFilterMenu() {
         JMenu filterMenu = new JMenu("Filter");
-        for (int i = 0; i < filters.size(); i++) {
-            JMenuItem jmi = new JMenuItem(filters.get(i).getMenuLabel());
+        for (StatelessFilter f : session.getFilters()) {
+            JMenuItem jmi = new JMenuItem(f.getMenuLabel());
             filterMenu.add(jmi);
-            jmi.addActionListener(makeActionListener(filters.get(i)));
+            jmi.addActionListener(makeActionListener(f));
         }
         return filterMenu;
     }
 
     /**
-     * Builds a dedicated ActionListener for a specific ImageFilter.
-     * @param imf the ImageFilter for which to make the ActionListener
-     * @return dedicated ActionListener for a specific ImageFilter
+     * Builds a dedicated ActionListener for a specific filter.
+     * The filter runs on a background thread while a dialog shows its
+     * progress and offers to cancel it; its result is displayed and
+     * becomes the current image when it finishes.  A filter that is
+     * also a StreamingFilter instead shows its result a band of rows
+     * at a time as it is computed (see
+     * {@link ImgProvider#showProgressive(String, StreamingFilter...)}).
+     * Runs may overlap, since a StatelessFilter keeps nothing between
+     * them.  Pass an ImageFilter through
+     * {@link FilterLoader#toStateless(ImageFilter)}.
+     * @param sf the filter for which to make the ActionListener
+     * @return dedicated ActionListener for a specific filter
      */
-    public static ActionListener makeActionListener(final ImageFilter imf) {
-        final ImageFilter theFilter = imf;
+    public ActionListener makeActionListener(final StatelessFilter sf) {
+        final StatelessFilter theFilter = sf;
         final JFrame myframe = frame;
         return new ActionListener() {
             public void actionPerformed(final ActionEvent ev) {
+                ImgProvider impro = session.getActive();
                 if (impro == null) {
                     JOptionPane.showMessageDialog(
                         myframe, "You must first select an image");
                     return;
                 }
                 //System.out.println("Using impro number " + impro.getid());
-                theFilter.filter(impro);
-                impro = theFilter.getImgProvider();
-                impro.setLab(theLab);
-                images.add(impro);
+                if (theFilter instanceof StreamingFilter
+                    && !impro.getCore().isTiled()) {
+                    session.setActive(impro.showProgressive(
+                        theFilter.getMenuLabel(),
+                        (StreamingFilter) theFilter));
+                    return;
+                }
+                watch(FilterTask.submit(theFilter, impro,
+                                        new FilterTask.Listener() {
+                    public void finished(final FilterTask task) {
+                        showResult(task, myframe);
+                    }
+                }), myframe);
             }
         };
     } //makeActionListener
 
+    /**
+     * Display the result of a filter that has finished.
+     * @param task the finished task
+     * @param owner the frame for error messages
+     */
+    private void showResult(final FilterTask task, final JFrame owner) {
+        String label = task.getFilter().getMenuLabel();
+        if (task.getState() == FilterTask.FAILED) {
+            JOptionPane.showMessageDialog(owner, label + " failed\n- "
+                + task.getFailure());
+            return;
+        }
+        ImgProvider result = task.getResult();
+        if (result == null) {
+            return;                         //cancelled
+        }
+        result.setLab(this);
+        result.showPix(label);
+        session.setActive(result);
+    } //showResult
+
+    /**
+     * Show the progress of a filter in a dialog with a Cancel button.
+     * The dialog appears only if the filter is still running after
+     * PROGRESS_DELAY milliseconds, and closes when it finishes.
+     * @param task the running task
+     * @param owner the frame the dialog belongs to
+     */
+    private static void watch(final FilterTask task, final JFrame owner) {
+        final JDialog dialog = new JDialog(owner,
+            task.getFilter().getMenuLabel(), false);
+        final JProgressBar bar = new JProgressBar(0, PROGRESS_STEPS);
+        bar.setStringPainted(true);
+        JButton cancel = new JButton("Cancel");
+        cancel.addActionListener(new ActionListener() {
+            public void actionPerformed(final ActionEvent e) {
+                task.cancel();
+                dialog.dispose();
+            }
+        });
+        Container pane = dialog.getContentPane();
+        pane.setLayout(new java.awt.FlowLayout());
+        pane.add(bar);
+        pane.add(cancel);
+        dialog.pack();
+        final Timer timer = new Timer(PROGRESS_PERIOD, null);
+        timer.addActionListener(new ActionListener() {
+            public void actionPerformed(final ActionEvent e) {
+                if (task.isFinished()) {
+                    timer.stop();
+                    dialog.dispose();
+                    return;
+                }
+                bar.setValue((int) Math.round(
+                    task.getProgress().getFraction() * PROGRESS_STEPS));
+                if (!dialog.isVisible() && dialog.isDisplayable()) {
+                    dialog.setLocationRelativeTo(owner);
+                    dialog.setVisible(true);
+                }
+            }
+        });
+        timer.setInitialDelay(PROGRESS_DELAY);
+        timer.start();
+    } //watch
+
     /**
      * Create an ActionListener for opening an image file.
      * @return ActionListener for opening an image file
      */
-    public static ActionListener makeOpenListener() {
+    public ActionListener makeOpenListener() {
         return new ActionListener() {
             public void actionPerformed(final ActionEvent e) {
                 ImgProvider improvider; //an imgProvider to hold the image
@@ -294,45 +366,77 @@ public class ImageLab {
                 fd.setVisible(true);
                 String theFile = fd.getFile();
                 String theDir = fd.getDirectory();
+                if (theFile == null) {
+                    return;                     //dialog was cancelled
+                }
                 //System.out.println("The file's name is " + theDir + theFile);
                 improvider = new ImgProvider(theDir + theFile);
-                improvider.setLab(theLab);
-                improvider.showImage(theDir + theFile);
-                images.add(improvider);
-                impro = improvider;             //current image provider is set
+                improvider.setLab(ImageLab.this);
+                try {
+                    if (isLarge(theDir + theFile)) {
+                        //shown a band at a time as it is decoded
+                        improvider =
+                            improvider.showProgressive(theDir + theFile);
+                    } else {
+                        improvider.readinImage();
+                        improvider.showImage(theDir + theFile);
+                    }
+                } catch (UncheckedIOException ex) {
+                    JOptionPane.showMessageDialog(
+                        frame, "Could not open " + theFile + "\n- "
+                        + ex.getCause().getMessage());
+                    return;
+                }
+                session.setActive(improvider);  //current image provider is set
             } //actionPerformed
         };
     } // makeOpenListener
 
+    /**
+     * Tell whether an image file has more than PROGRESSIVE_PIXELS
+     * pixels, so that it is better shown as it is decoded.
+     * @param path the image file
+     * @return true for a large image
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    private static boolean isLarge(final String path) {
+        try {
+            Dimension d = ImageDecoder.size(new File(path));
+            return (long) d.width * d.height > PROGRESSIVE_PIXELS;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(
+                "ImageLab: cannot read " + path, ioe);
+        }
+    } //isLarge
+
     /**
      * Marks an image as the one in focus.
      * @param ip The ImgProvider responsible for the image
      */
     public void setActive(final ImgProvider ip) {
-        impro = ip;
-        //System.out.println("Setting impro to " + impro.getid());
+        session.setActive(ip);
+        //System.out.println("Setting impro to " + ip.getid());
     } //setActive
 
     /**
-     * Marks an image as no longer the focus.
+     * Marks an image whose window has closed as no longer the focus
+     * and removes it from the session.
      * @param ip The ImgProvider responsible for the image
      */
     public void setInactive(final ImgProvider ip) {
-        if (impro == ip) {
-            impro = null;
-        }
+        session.remove(ip);
     } //setInactive
 
     /**
      * Create an ActionListener for rendering an image in sound.
      * @return ActionListener for rendering an image in sound
      */
-    public static ActionListener makePlayListener() {
+    public ActionListener makePlayListener() {
         final JFrame myframe = frame;
         return new ActionListener() {
             public void actionPerformed(final ActionEvent e) {
                 //The imgProvider holding the image
-                ImgProvider improvider = impro;
+                ImgProvider improvider = session.getActive();
                 if (improvider == null) {
                     JOptionPane.showMessageDialog(
                         myframe, "First select the image to play");
@@ -347,12 +451,12 @@ public class ImageLab {
      * Create an ActionListener for saving an image to a file.
      * @return ActionListener for saving an image to a file
      */
-    public static ActionListener makeSaveListener() {
+    public ActionListener makeSaveListener() {
         final JFrame myframe = frame;
         return new ActionListener() {
             public void actionPerformed(final ActionEvent e) {
                 //an imgProvider to hold the image
-                ImgProvider improvider = impro;
+                ImgProvider improvider = session.getActive();
                 if (improvider == null) {
                     JOptionPane.showMessageDialog(
                         myframe, "Select the image to save");
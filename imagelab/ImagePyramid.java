@@ -0,0 +1,223 @@
+package imagelab;
+
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A mipmap pyramid of an image, cut into tiles for display.
+ * Level 0 is the image itself; each further level is half the width
+ * and height of the one before, down to a single pixel.  Levels are
+ * built only when first asked for, each from the nearest level above
+ * it that has been built, so showing a large image zoomed out costs
+ * a single pass over it.
+ * <p>
+ * Tiles are copied into BufferedImages of their own, which Java2D
+ * can keep in video memory (an image wrapping the whole pixel array
+ * cannot be), and kept in a least-recently-used cache of bounded
+ * size.  Obtain a pyramid from {@link ImgProvider#getPyramid()},
+ * which builds a new one when the pixels change.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public final class ImagePyramid {
+    /** Width and height of a tile, in pixels of its level. */
+    public static final int TILE_SIZE = 256;
+    /** Default number of tiles kept (64 MB of pixels). */
+    public static final int DEFAULT_CACHE_TILES = 256;
+    /** Bits to shift a level number within a tile key. */
+    private static final int LEVEL_SHIFT = 58;
+    /** Bits to shift a tile row within a tile key. */
+    private static final int ROW_SHIFT = 29;
+    /** Load factor of the tile cache map. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** The image. */
+    private final ImageCore base;
+    /** The pixel array of the image when the pyramid was made. */
+    private final int[] basePix;
+    /** The image's modification count when the pyramid was made. */
+    private final int baseCount;
+    /** Widths of the levels. */
+    private final int[] widths;
+    /** Heights of the levels. */
+    private final int[] heights;
+    /** The levels, null where not yet built; level 0 is the image. */
+    private final ImageCore[] levels;
+    /** Tiles, most recently used last. */
+    private final Map<Long, BufferedImage> cache;
+
+    /**
+     * Create the pyramid of an image with the default cache size.
+     * @param image the image, which must be held in memory
+     */
+    public ImagePyramid(final ImageCore image) {
+        this(image, DEFAULT_CACHE_TILES);
+    }
+
+    /**
+     * Create the pyramid of an image.
+     * @param image the image, which must be held in memory
+     * @param maxTiles most tiles to keep
+     */
+    public ImagePyramid(final ImageCore image, final int maxTiles) {
+        image.ensureLoaded();
+        image.requireInMemory();
+        base = image;
+        basePix = image.getPix();
+        baseCount = image.getModCount();
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int n = 1;
+        while (w > 1 || h > 1) {
+            w = (w + 1) / 2;
+            h = (h + 1) / 2;
+            n++;
+        }
+        widths = new int[n];
+        heights = new int[n];
+        widths[0] = image.getWidth();
+        heights[0] = image.getHeight();
+        for (int k = 1; k < n; k++) {
+            widths[k] = (widths[k - 1] + 1) / 2;
+            heights[k] = (heights[k - 1] + 1) / 2;
+        }
+        levels = new ImageCore[n];
+        levels[0] = image;
+        final int limit = Math.max(1, maxTiles);
+        cache = new LinkedHashMap<Long, BufferedImage>(
+            limit, LOAD_FACTOR, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<Long, BufferedImage> eldest) {
+                return size() > limit;
+            }
+        };
+    } //ImagePyramid
+
+    /**
+     * Tell whether this pyramid still matches its image, which it does
+     * not once the image has been given new pixels.  Changes made in
+     * place are detected once {@link ImageCore#pixelsChanged()} has
+     * been called.
+     * @return true if the image's pixels are the ones the pyramid
+     *         was made from
+     */
+    public boolean isCurrent() {
+        return base.getPix() == basePix && base.getModCount() == baseCount
+            && base.getWidth() == widths[0] && base.getHeight() == heights[0];
+    }
+
+    /**
+     * Retrieve the number of levels.
+     * @return the number of levels, including the image itself
+     */
+    public int getLevelCount() {
+        return widths.length;
+    }
+
+    /**
+     * Retrieve the width of a level.
+     * @param level the level
+     * @return width in pixels
+     */
+    public int getLevelWidth(final int level) {
+        return widths[level];
+    }
+
+    /**
+     * Retrieve the height of a level.
+     * @param level the level
+     * @return height in pixels
+     */
+    public int getLevelHeight(final int level) {
+        return heights[level];
+    }
+
+    /**
+     * Choose the level to draw at a given zoom: the smallest level that
+     * is still at least as detailed as the screen.
+     * @param zoom screen pixels per image pixel
+     * @return the level
+     */
+    public int levelFor(final double zoom) {
+        int level = 0;
+        double size = 1.0;
+        while (level + 1 < widths.length && size / 2 >= zoom) {
+            size /= 2;
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Retrieve a level, building it if need be.
+     * @param level the level
+     * @return the level's pixels
+     */
+    public synchronized ImageCore getLevel(final int level) {
+        if (levels[level] == null) {
+            int from = level - 1;
+            while (levels[from] == null) {
+                from--;
+            }
+            levels[level] = Resampler.resize(levels[from], widths[level],
+                                             heights[level],
+                                             Resampler.BILINEAR);
+        }
+        return levels[level];
+    }
+
+    /**
+     * Retrieve a tile, from the cache if it is there.  Tiles at the
+     * right and bottom edges may be smaller than TILE_SIZE.
+     * @param level the level
+     * @param tx column of the tile
+     * @param ty row of the tile
+     * @return the tile
+     */
+    public synchronized BufferedImage getTile(final int level, final int tx,
+                                              final int ty) {
+        Long key = ((long) level << LEVEL_SHIFT) | ((long) ty << ROW_SHIFT)
+            | tx;
+        BufferedImage tile = cache.get(key);
+        if (tile == null) {
+            tile = makeTile(getLevel(level), tx, ty);
+            cache.put(key, tile);
+        }
+        return tile;
+    } //getTile
+
+    /** Forget every cached tile. */
+    public synchronized void clearTiles() {
+        cache.clear();
+    }
+
+    /**
+     * Copy a tile out of a level.
+     * @param lv the level
+     * @param tx column of the tile
+     * @param ty row of the tile
+     * @return the tile
+     */
+    private static BufferedImage makeTile(final ImageCore lv, final int tx,
+                                          final int ty) {
+        int x0 = tx * TILE_SIZE;
+        int y0 = ty * TILE_SIZE;
+        int w = Math.min(TILE_SIZE, lv.getWidth() - x0);
+        int h = Math.min(TILE_SIZE, lv.getHeight() - y0);
+        int[] src = lv.getPix();
+        int[] rows = new int[w * h];
+        for (int r = 0; r < h; r++) {
+            System.arraycopy(src, (y0 + r) * lv.getWidth() + x0,
+                             rows, r * w, w);
+        }
+        BufferedImage tile = new BufferedImage(w, h,
+                                               BufferedImage.TYPE_INT_ARGB);
+        tile.getRaster().setDataElements(0, 0, w, h, rows);
+        return tile;
+    } //makeTile
+} //ImagePyramid
@@ -0,0 +1,287 @@
+package imagelab;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Histograms and summary statistics of an image, per channel.
+ * Everything is computed in a single pass over the packed pixels,
+ * split over the common ForkJoinPool: each piece of the image fills
+ * its own histograms, which are added together at the end.
+ * Obtain one from {@link ImageCore#getStatistics()}, which keeps it
+ * until the pixels change.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public final class ImageStatistics {
+    /** Channel number of the gray (BT.601 luminance) values. */
+    public static final int LUMA = PixelBuffer.CHANNELS;
+    /** Number of channels with statistics (the four planes and luma). */
+    public static final int CHANNELS = PixelBuffer.CHANNELS + 1;
+    /** Number of distinct 8-bit values. */
+    public static final int LEVELS = 256;
+
+    /** Fewest pixels worth giving a piece of their own. */
+    private static final int MIN_PIXELS = 1 << 16;
+    /** Percent in a whole. */
+    private static final double PERCENT = 100.0;
+
+    /** Width of the image. */
+    private final int width;
+    /** Height of the image. */
+    private final int height;
+    /** Histograms, indexed by channel then value. */
+    private final int[][] histograms;
+    /** Sums of each row, indexed by channel then row (no luma). */
+    private final int[][] rowSums;
+
+    /**
+     * Compute the statistics of an image.
+     * @param pix packed ARGB pixels, row by row
+     * @param w width of the image
+     * @param h height of the image
+     */
+    ImageStatistics(final int[] pix, final int w, final int h) {
+        width = w;
+        height = h;
+        rowSums = new int[PixelBuffer.CHANNELS][h];
+        if (w == 0 || h == 0) {
+            histograms = new int[CHANNELS][LEVELS];
+        } else {
+            histograms = ForkJoinPool.commonPool().invoke(
+                new Rows(pix, w, 0, h, rowSums));
+        }
+    }
+
+    /**
+     * Compute the statistics of a tiled image, a band of rows at a
+     * time; the histograms of the bands are added together.
+     * @param tiles the image
+     */
+    ImageStatistics(final TiledImage tiles) {
+        width = tiles.getWidth();
+        height = tiles.getHeight();
+        rowSums = new int[PixelBuffer.CHANNELS][height];
+        histograms = new int[CHANNELS][LEVELS];
+        int band = tiles.getBandHeight();
+        int[] pix = new int[width * band];
+        int[][] sums = new int[PixelBuffer.CHANNELS][band];
+        for (int top = 0; top < height; top += band) {
+            int count = Math.min(band, height - top);
+            for (int r = 0; r < count; r++) {
+                tiles.getRow(top + r, 0, width, pix, r * width);
+            }
+            int[][] hist = ForkJoinPool.commonPool().invoke(
+                new Rows(pix, width, 0, count, sums));
+            for (int c = 0; c < CHANNELS; c++) {
+                for (int v = 0; v < LEVELS; v++) {
+                    histograms[c][v] += hist[c][v];
+                }
+            }
+            for (int c = 0; c < PixelBuffer.CHANNELS; c++) {
+                System.arraycopy(sums[c], 0, rowSums[c], top, count);
+            }
+        }
+    }
+
+    /**
+     * Retrieve the number of pixels counted.
+     * @return width times height
+     */
+    public long getCount() {
+        return (long) width * height;
+    }
+
+    /**
+     * Retrieve the histogram of a channel.
+     * @param channel PixelBuffer.RED, GREEN, BLUE, ALPHA or LUMA
+     * @return a copy of the counts of each value from 0 to 255
+     */
+    public int[] getHistogram(final int channel) {
+        return histograms[channel].clone();
+    }
+
+    /**
+     * Smallest value of a channel.
+     * @param channel PixelBuffer.RED, GREEN, BLUE, ALPHA or LUMA
+     * @return the smallest value, or 0 for an empty image
+     */
+    public int getMin(final int channel) {
+        int[] hist = histograms[channel];
+        for (int v = 0; v < LEVELS; v++) {
+            if (hist[v] != 0) {
+                return v;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Largest value of a channel.
+     * @param channel PixelBuffer.RED, GREEN, BLUE, ALPHA or LUMA
+     * @return the largest value, or 0 for an empty image
+     */
+    public int getMax(final int channel) {
+        int[] hist = histograms[channel];
+        for (int v = PixelBuffer.MASK; v >= 0; v--) {
+            if (hist[v] != 0) {
+                return v;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Mean value of a channel.
+     * @param channel PixelBuffer.RED, GREEN, BLUE, ALPHA or LUMA
+     * @return the mean, or 0 for an empty image
+     */
+    public double getMean(final int channel) {
+        if (getCount() == 0) {
+            return 0;
+        }
+        int[] hist = histograms[channel];
+        long sum = 0;
+        for (int v = 0; v < LEVELS; v++) {
+            sum += (long) v * hist[v];
+        }
+        return (double) sum / getCount();
+    }
+
+    /**
+     * Value below which a given percentage of a channel's values lie.
+     * @param channel PixelBuffer.RED, GREEN, BLUE, ALPHA or LUMA
+     * @param percent from 0 to 100
+     * @return the smallest value v such that at least percent % of
+     *         the pixels have values up to v
+     */
+    public int getPercentile(final int channel, final double percent) {
+        if (percent < 0 || percent > PERCENT) {
+            throw new IllegalArgumentException(
+                "ImageStatistics: percentile " + percent + " not in 0-100");
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / PERCENT
+                                                 * getCount()));
+        int[] hist = histograms[channel];
+        long seen = 0;
+        for (int v = 0; v < LEVELS; v++) {
+            seen += hist[v];
+            if (seen >= rank) {
+                return v;
+            }
+        }
+        return getMax(channel);
+    } //getPercentile
+
+    /**
+     * Cumulative histogram of a channel.
+     * @param channel PixelBuffer.RED, GREEN, BLUE, ALPHA or LUMA
+     * @return entry v is the number of pixels with values up to v
+     */
+    public long[] getCumulative(final int channel) {
+        long[] cdf = new long[LEVELS];
+        long seen = 0;
+        for (int v = 0; v < LEVELS; v++) {
+            seen += histograms[channel][v];
+            cdf[v] = seen;
+        }
+        return cdf;
+    }
+
+    /**
+     * Sum of a channel's values in each row.
+     * @param channel PixelBuffer.RED, GREEN, BLUE or ALPHA
+     * @return a copy of the sums, one per row
+     */
+    public int[] getRowSums(final int channel) {
+        return rowSums[channel].clone();
+    }
+
+    /** Counts a band of rows, splitting it in two if it is large. */
+    private static final class Rows extends RecursiveTask<int[][]> {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+
+        /** The pixels. */
+        private final int[] pix;
+        /** Width of the image. */
+        private final int width;
+        /** First row of the band. */
+        private final int first;
+        /** One past the last row of the band. */
+        private final int end;
+        /** Where to store the row sums. */
+        private final int[][] sums;
+
+        /**
+         * Create a band.
+         * @param p the pixels
+         * @param w width of the image
+         * @param from first row of the band
+         * @param to one past the last row of the band
+         * @param rowSums where to store the row sums
+         */
+        Rows(final int[] p, final int w, final int from, final int to,
+             final int[][] rowSums) {
+            pix = p;
+            width = w;
+            first = from;
+            end = to;
+            sums = rowSums;
+        }
+
+        @Override
+        protected int[][] compute() {
+            int rows = end - first;
+            if (rows > 1 && (long) rows * width > MIN_PIXELS) {
+                int mid = first + rows / 2;
+                Rows top = new Rows(pix, width, first, mid, sums);
+                top.fork();
+                int[][] bottom =
+                    new Rows(pix, width, mid, end, sums).compute();
+                int[][] hist = top.join();
+                for (int c = 0; c < CHANNELS; c++) {
+                    for (int v = 0; v < LEVELS; v++) {
+                        hist[c][v] += bottom[c][v];
+                    }
+                }
+                return hist;
+            }
+            int[][] hist = new int[CHANNELS][LEVELS];
+            int[] hr = hist[PixelBuffer.RED];
+            int[] hg = hist[PixelBuffer.GREEN];
+            int[] hb = hist[PixelBuffer.BLUE];
+            int[] ha = hist[PixelBuffer.ALPHA];
+            int[] hl = hist[LUMA];
+            for (int row = first; row < end; row++) {
+                int sr = 0;
+                int sg = 0;
+                int sb = 0;
+                int sa = 0;
+                int base = row * width;
+                for (int col = 0; col < width; col++) {
+                    int p = pix[base + col];
+                    int r = (p >> PixelBuffer.RED_SHIFT) & PixelBuffer.MASK;
+                    int g = (p >> PixelBuffer.GREEN_SHIFT) & PixelBuffer.MASK;
+                    int b = p & PixelBuffer.MASK;
+                    int a = p >>> PixelBuffer.ALPHA_SHIFT;
+                    hr[r]++;
+                    hg[g]++;
+                    hb[b]++;
+                    ha[a]++;
+                    hl[Luminance.of(p)]++;
+                    sr += r;
+                    sg += g;
+                    sb += b;
+                    sa += a;
+                }
+                sums[PixelBuffer.RED][row] = sr;
+                sums[PixelBuffer.GREEN][row] = sg;
+                sums[PixelBuffer.BLUE][row] = sb;
+                sums[PixelBuffer.ALPHA][row] = sa;
+            } //for row
+            return hist;
+        } //compute
+    } //Rows
+} //ImageStatistics
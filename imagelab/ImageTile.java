@@ -0,0 +1,123 @@
+package imagelab;
+
+import java.nio.IntBuffer;
+
+/**
+ * One tile of a {@link TiledImage}: a rectangle of packed ARGB pixels
+ * held in a memory-mapped region of the image's backing file.
+ * Coordinates passed to the accessors are relative to the tile.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class ImageTile {
+    /** Image column of the tile's left edge. */
+    private final int x;
+    /** Image row of the tile's top edge. */
+    private final int y;
+    /** Width of the tile (smaller than the tile size at the right edge). */
+    private final int width;
+    /** Height of the tile (smaller than the tile size at the bottom). */
+    private final int height;
+    /** Number of pixels between the starts of consecutive rows. */
+    private final int stride;
+    /** The pixels. */
+    private final IntBuffer pixels;
+
+    /**
+     * Create a tile over a buffer of pixels.
+     * @param left image column of the tile's left edge
+     * @param top image row of the tile's top edge
+     * @param w width of the tile
+     * @param h height of the tile
+     * @param rowStride pixels between the starts of consecutive rows
+     * @param buf the pixels
+     */
+    ImageTile(final int left, final int top, final int w, final int h,
+              final int rowStride, final IntBuffer buf) {
+        x = left;
+        y = top;
+        width = w;
+        height = h;
+        stride = rowStride;
+        pixels = buf;
+    }
+
+    /**
+     * Retrieve the image column of the tile's left edge.
+     * @return the column
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Retrieve the image row of the tile's top edge.
+     * @return the row
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Retrieve the width of the tile.
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Retrieve the height of the tile.
+     * @return height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Retrieve a pixel.
+     * @param col column within the tile
+     * @param row row within the tile
+     * @return the packed ARGB pixel
+     */
+    public int get(final int col, final int row) {
+        return pixels.get(row * stride + col);
+    }
+
+    /**
+     * Store a pixel.
+     * @param col column within the tile
+     * @param row row within the tile
+     * @param argb the packed ARGB pixel
+     */
+    public void set(final int col, final int row, final int argb) {
+        pixels.put(row * stride + col, argb);
+    }
+
+    /**
+     * Copy part of a row of the tile into an array.
+     * @param row row within the tile
+     * @param col first column within the tile
+     * @param count number of pixels
+     * @param dst destination
+     * @param off position in dst of the first pixel
+     */
+    public void getRow(final int row, final int col, final int count,
+                       final int[] dst, final int off) {
+        pixels.get(row * stride + col, dst, off, count);
+    }
+
+    /**
+     * Copy pixels from an array into part of a row of the tile.
+     * @param row row within the tile
+     * @param col first column within the tile
+     * @param count number of pixels
+     * @param src source
+     * @param off position in src of the first pixel
+     */
+    public void setRow(final int row, final int col, final int count,
+                       final int[] src, final int off) {
+        pixels.put(row * stride + col, src, off, count);
+    }
+} //ImageTile
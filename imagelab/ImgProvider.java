@@ -8,20 +8,24 @@ import sound.Tune;
 
 import java.io.File;
 import java.io.IOException;
-import javax.imageio.ImageIO;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.JComponent;
 import javax.swing.JFileChooser;
+import javax.swing.SwingUtilities;
+import java.awt.Dimension;
+import java.awt.GraphicsEnvironment;
 import java.awt.Image;
-import java.awt.image.PixelGrabber;
-import java.awt.image.MemoryImageSource;
-import java.awt.image.BufferedImage;
+import java.awt.Rectangle;
 
 
 /**
  * ImgProvider is responsible for managing a single image
  * (loading, filtration, rendering, etc.).
+ * The pixels are held by an {@link ImageCore}; ImgProvider adds
+ * the ImageLab user interface (display, sound, save dialog).
  * @author Dr. Aaron Gordon
  * @author Dr. Jody Paul
  * @version 1.1
@@ -31,38 +35,28 @@ public class ImgProvider extends JComponent {
     private static final long serialVersionUID = 11L;
     /** Boolean all. */
     private static boolean all;
-    /** true if this ImgProvider currently holds an image; false otherwise. */
-    private boolean         isLoaded;
-    /** Image height in pixels. */
-    private int             pixheight;
-    /** Image width in pixels. */
-    private int             pixwidth;
-    /** The raw image. */
-    private Image           img;
-    /** Holders for the color and alpha components of the image. */
-    private short[][]      red, green, blue, alpha;
-    /** To retrieve pixels from the image. */
-    private PixelGrabber    grab;
-    /** Holder for the pixels from the image. */
-    private int[]          pix;
-    /** X-axis increment used for trimming the image. */
-    private int   xinc = 0;
-    /** Y-axis increment used for trimming the image. */
-    private int   yinc = 0;
-    /** Holder for the filename of the file that contains the image. */
-    private String imgName;
-    /** Used for assigning unique IDs to ImgProviders. Incremented when used. */
-    private static int count = 0;
+    /** The pixels of the image. */
+    private final ImageCore core;
+    /** The window most recently opened by showPix, or null. */
+    private transient DisplayImage window;
+    /** Mipmap pyramid for display, or null if not yet built. */
+    private transient ImagePyramid pyramid;
+    /** The last ID given to an ImgProvider, shared by all threads. */
+    private static final AtomicInteger LAST_ID = new AtomicInteger();
     /** Identification used to distinguish one ImgProvider from another. */
-    private int id;
-    /** ImageLab object. */
-    private ImageLab lab;
-    /** Sleep period 1000 ms. */
-    private static final int SLEEP_1000_MS = 1000;
-    /** Sleep period 300 ms. */
-    private static final int SLEEP_300_MS = 300;
-    /** Sleep period 100 ms. */
-    private static final int SLEEP_100_MS = 100;
+    private final int id;
+    /** The ImageLab whose windows show this image, or null. */
+    private transient ImageLab lab;
+    /** true on threads whose images should not be displayed. */
+    private static final ThreadLocal<Boolean> QUIET =
+        new ThreadLocal<Boolean>() {
+            @Override
+            protected Boolean initialValue() {
+                return Boolean.FALSE;
+            }
+        };
+    /** Width and height of the preview shown for a tiled image. */
+    private static final int TILED_PREVIEW_SIZE = 1024;
     /** Value used in the pitch settings. */
     private static final int PITCH_DIV = 256;
     /** Value used to create a Music object. */
@@ -91,14 +85,6 @@ public class ImgProvider extends JComponent {
     /** Last index for loop in pentatonic methods. */
     private static final int PENTATONIC_LAST_INDEX = 4;
 
-    /** Alpha value. */
-    private static final int ALPHA = 255;
-
-    /** Value used in operators >> and <<. */
-    private static final int SHIFT_8 = 8;
-
-    /** Value used to divide the sum of red+green+blue. */
-    private static final int DIVIDE_COLOR = 3;
     /** No-argument constructor.  Sets name to empty string. */
     public ImgProvider() {
         this("");
@@ -109,35 +95,50 @@ public class ImgProvider extends JComponent {
      * @param name The name of the file containing the image
      */
     public ImgProvider(final String name) {
-        imgName = name;
-        isLoaded = false;
-        id = ++count;
+        this(new ImageCore(name));
     } // constructor
 
+    /**
+     * Constructor that shows an existing headless image.
+     * @param ic the pixels of the image (shared, not copied)
+     */
+    public ImgProvider(final ImageCore ic) {
+        core = ic;
+        id = LAST_ID.incrementAndGet();
+    } // constructor
+
+    /**
+     * Retrieve the headless image holding this image's pixels.
+     * @return the image core (shared, not copied)
+     */
+    public ImageCore getCore() {
+        return core;
+    } //getCore
+
     /** Returns the pixels of the image.
      * @return pix
     */
     public int[] getPix() {
-        return pix;
+        return core.getPix();
     }
 
     /** Returns the pix height of the image.
      * @return pix height of the image
     */
     public int getPixHeight() {
-        return pixheight;
+        return core.getHeight();
     }
 
     /** Returns the pix width of the image.
      * @return pix width of the image
     */
     public int getPixWidth() {
-        return pixwidth;
+        return core.getWidth();
     }
 
     /**
      * Retrieve this ImgProvider's unique id.
-     * For ImageLab's internal use.
+     * Ids are unique within the JVM and given in order of creation.
      * @return ImgProvider's unique id
      */
     public int getid() {
@@ -146,30 +147,11 @@ public class ImgProvider extends JComponent {
 
     /**
      * Create a B&W image object based on the parameter.
-     * Uses the instance variable pix as destination.
      * @param localImg 2D array of black-and-white pixel values (0-255)
      */
     public void setBWImage(final short[][] localImg) {
-        int spot = 0;  //index into pix
-        int tmp;
-        int localAlpha = ALPHA;
-        pixheight = localImg.length;
-        pixwidth  = localImg[0].length;
-        pix = new int[pixheight * pixwidth];
-        for (int row = 0; row < pixheight; row++) {
-            for (int col = 0; col < pixwidth; col++) {
-                tmp = localAlpha;
-                tmp = tmp << SHIFT_8;
-                tmp += localImg[row][col];
-                tmp = tmp << SHIFT_8;
-                tmp += localImg[row][col];
-                tmp = tmp << SHIFT_8;
-                tmp += localImg[row][col];
-                pix[spot++] = tmp;
-            } //for col
-        } //for row
-        separateColors();
-        isLoaded = true;
+        core.setBWImage(localImg);
+        repaintWindow();
     } //setBWImage
 
     /**
@@ -178,96 +160,148 @@ public class ImgProvider extends JComponent {
      */
     public short[][] getBWImage() {
         //read in image into pix[]
-        if (!isLoaded) {
+        if (!core.isLoaded()) {
             readinImage();
         }
-        toBW();         //convert it to black and white
-
-        //copy from int []pix to short [][]b and filter outliers
-        short[][] b = new short[pixheight][pixwidth];
-        int spot = 0;
-        short tmp;
-        for (int r = 0; r < pixheight; r++) {
-            for (int c = 0; c < pixwidth; c++) {
-                tmp = (short) (pix[spot++] & ALPHA);
-                b[r][c] = tmp;
-            } //for c
-        } //for r
-        //showImage(b,"B & W with compressed range of values");
+        short[][] b = core.getBWImage();
+        if (all) {
+            ImgProvider gray = new ImgProvider();
+            gray.setBWImage(b);
+            gray.showPix("Black and White");
+        }
         return b;
     } //getBWImage
 
-    /** Read in the image. */
-    public void readinImage() {
-        img = getToolkit().getImage(imgName);
-        if (img == null) {
-             System.err.println(
-                 "\n\n**ImgProvider: getImage: img is null!!! ***\n\n");
+    /**
+     * Retrieve a read-only view of the image in black and white.
+     * The gray values are computed once and kept until the
+     * pixels change; the color data is not affected.
+     * @return a view of the gray plane (0 to 255)
+     */
+    public PlaneView getBWView() {
+        if (!core.isLoaded()) {
+            readinImage();
         }
-        int width   = img.getWidth(null)  - xinc;
-        int height  = img.getHeight(null) - yinc;
-        //forceRGB=true
-        grab        = new PixelGrabber(img, xinc, yinc, width, height, true);
+        return core.getBWView();
+    } //getBWView
+
+    /**
+     * Read in the image.
+     * @throws UncheckedIOException if the image file cannot be
+     *         read or decoded
+     */
+    public void readinImage() {
         try {
-            grab.grabPixels();
-        } catch (Exception e) {
-            System.err.println(
-                "ImgProvider:getBWImage: pixel grabbing failed!!");
-            return;
-            //System.exit(-1);
+            core.load();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(
+                "ImgProvider: cannot read " + core.getFileName(), ioe);
         }
-        pix = (int[]) grab.getPixels();
-        pixwidth = img.getWidth(null) - xinc;
-        pixheight = img.getHeight(null) - yinc;
-        isLoaded = true;
-        separateColors();
         //System.out.println(
         //"pix width and height are: " + pixwidth + ",  " + pixheight);
         if (all) {
             showPix("Original in Color");      //display original picture
         }
-        try {
-            Thread.sleep(SLEEP_300_MS);
-        } catch (Exception e) { }
     } //readinImage
 
+    /**
+     * Tell whether this image is held in a memory-mapped TiledImage.
+     * Tiled images have no pixel array; use {@link #getTiledImage()}.
+     * @return true if the image is tiled
+     */
+    public boolean isTiled() {
+        return core.isTiled();
+    }
+
+    /**
+     * Retrieve the tiles of an image too large to hold on the heap.
+     * @return the tiled image, or null if the image is held in pix
+     */
+    public TiledImage getTiledImage() {
+        return core.getTiledImage();
+    }
+
+    /**
+     * Set the number of pixels above which images are read into a
+     * memory-mapped TiledImage instead of a pixel array.
+     * @param pixels the largest number of pixels to hold on the heap
+     */
+    public static void setTiledThreshold(final long pixels) {
+        ImageCore.setTiledThreshold(pixels);
+    }
+
+    /**
+     * Use the given packed ARGB pixels as this image (no copy).
+     * @param argb the pixels, row by row
+     * @param w width in pixels
+     * @param h height in pixels
+     */
+    public void setPixels(final int[] argb, final int w, final int h) {
+        core.setPixels(argb, w, h);
+        repaintWindow();
+    } //setPixels
+
     /**
      * Cut out x columns and y rows from the NW corner of the image.
+     * Takes effect the next time the image is read in.
      * @param x the number of columns to remove
      * @param y the number of rows to remove
      */
     public void setTrim(final int x, final int y) {
-        xinc = x;
-        yinc = y;
+        core.setTrim(x, y);
     } //setTrim
 
-    /** Convert from color to gray scale (black and white). */
-    private void toBW() {
-        int  localAlpha, localRed, localGreen, localBlue, black;
-
-        for (int i = 0; i < pix.length; i++) {
-            int num = pix[i];
-            localBlue = num & ALPHA;
-            num = num >> SHIFT_8;
-            localGreen = num & ALPHA;
-            num = num >> SHIFT_8;
-            localRed = num & ALPHA;
-            num = num >> SHIFT_8;
-            localAlpha = num & ALPHA;
-            black = (localRed + localGreen + localBlue) / DIVIDE_COLOR;
-            num = localAlpha;
-            num = (num << SHIFT_8) + black;
-            num = (num << SHIFT_8) + black;
-            num = (num << SHIFT_8) + black;
-            pix[i] = num;
-        }
-        if (all) {
-            showPix("Black and White");
-        }
-        try {
-            Thread.sleep(SLEEP_300_MS);
-        } catch (Exception e) { }
-    } //toBW
+    /**
+     * Load only part of the image file.  Pixels outside the
+     * region are never decoded.
+     * Takes effect the next time the image is read in.
+     * @param r the part of the image to load, clipped to the
+     *        image's bounds; null to load all of it
+     */
+    public void setRegion(final Rectangle r) {
+        core.setRegion(r);
+    } //setRegion
+
+    /**
+     * Load only every n-th column and row of the image file.
+     * Takes effect the next time the image is read in.
+     * @param n subsampling factor, 1 to load every pixel
+     */
+    public void setSubsampling(final int n) {
+        core.setSubsampling(n);
+    } //setSubsampling
+
+    /**
+     * Load a reduced version of the image (or of its region) that
+     * fits in a max x max square, using the smallest subsampling
+     * factor that does so.
+     * Takes effect the next time the image is read in.
+     * @param max the largest width and height to load; 0 for no limit
+     */
+    public void setPreviewSize(final int max) {
+        core.setPreviewSize(max);
+    } //setPreviewSize
+
+    /**
+     * Turn display of images by the current thread on or off.
+     * While quiet, showPix loads the image but opens no window;
+     * FilterChain uses this to hide the results of intermediate stages.
+     * @param quiet true to stop showPix from displaying images
+     * @return the previous setting
+     */
+    public static boolean setQuiet(final boolean quiet) {
+        boolean was = QUIET.get();
+        QUIET.set(quiet);
+        return was;
+    } //setQuiet
+
+    /**
+     * Tell whether display of images by the current thread is off.
+     * @return true if showPix does not display images
+     */
+    public static boolean isQuiet() {
+        return QUIET.get();
+    }
 
     /** Alias for showPix. (Syntactic sugar)
      * @param name String alias for showPix
@@ -278,48 +312,72 @@ public class ImgProvider extends JComponent {
 
     /**
      * Display this image in a window.
+     * Does nothing when running headless or quiet.
      * @param name The title for the window.
      */
     public void showPix(final String name) {
         //System.out.println("ImgProvider:showPix:  before readIn");
-        if (!isLoaded) {
+        if (!core.isLoaded()) {
             readinImage();
         }
+        if (GraphicsEnvironment.isHeadless() || isQuiet()) {
+            return;
+        }
         //System.out.println("ImgProvider:showPix:  after readIn");
-        img = getToolkit().createImage(
-                new MemoryImageSource(pixwidth, pixheight, pix, 0, pixwidth));
-        //System.out.println("ImgProvider:showPix:  before displayImage");
-        DisplayImage dis = new DisplayImage(this, name, true);
-        //System.out.println("ImgProvider:showPix:  after displayImage");
-        try {
-            Thread.sleep(SLEEP_100_MS);
-        } catch (Exception e) { } //make sure image has time to display
+        if (core.isTiled()) {
+            int longest = Math.max(core.getWidth(), core.getHeight());
+            ImgProvider preview = core.getTiledImage().toImgProvider(
+                (longest + TILED_PREVIEW_SIZE - 1) / TILED_PREVIEW_SIZE);
+            preview.setLab(lab);
+            preview.showPix(name + " (preview)");
+            return;
+        }
+        window = new DisplayImage(this, name, true);
     } //showPix
 
+    /**
+     * Note that the pixels have been modified in place, and repaint
+     * the window showing them, if any.
+     */
+    public void pixelsChanged() {
+        core.pixelsChanged();
+        synchronized (this) {
+            pyramid = null;
+        }
+        repaintWindow();
+    } //pixelsChanged
+
+    /** Repaint the window showing this image, if any. */
+    private void repaintWindow() {
+        if (window != null) {
+            window.repaint();
+        }
+    } //repaintWindow
+
+    /**
+     * Retrieve the mipmap pyramid used to display this image, building
+     * it if need be.  Levels other than the image itself are made only
+     * when first drawn.
+     * @return the pyramid, or null if the image is tiled
+     */
+    public synchronized ImagePyramid getPyramid() {
+        if (!core.isLoaded()) {
+            readinImage();
+        }
+        if (core.isTiled()) {
+            return null;
+        }
+        if (pyramid == null || !pyramid.isCurrent()) {
+            pyramid = new ImagePyramid(core);
+        }
+        return pyramid;
+    } //getPyramid
+
     /**
      * Pull the image apart into its RGB and Alpha components.
      */
     void separateColors() {
-        if (pix == null) {
-            return;
-        }
-        alpha   = new short[pixheight][pixwidth];
-        red     = new short[pixheight][pixwidth];
-        green   = new short[pixheight][pixwidth];
-        blue    = new short[pixheight][pixwidth];
-        int spot = 0;       //index into pix
-        for (int r = 0; r < pixheight; r++) {
-            for (int c = 0; c < pixwidth; c++) {
-                int num = pix[spot++];
-                blue[r][c]   = (short) (num & ALPHA);
-                num = num >> SHIFT_8;
-                green[r][c]  = (short) (num & ALPHA);
-                num = num >> SHIFT_8;
-                red[r][c]    = (short) (num & ALPHA);
-                num = num >> SHIFT_8;
-                alpha[r][c] = (short) (num & ALPHA);
-            } //for c
-        } //for r
+        core.getPixelBuffer();
     } //separateColors
 
     /**
@@ -334,49 +392,37 @@ public class ImgProvider extends JComponent {
         final short[][]g,
         final short[][]b,
         final short[][]al) {
-
-        pixheight = rd.length;
-        pixwidth  = rd[0].length;
-        red     = new short[pixheight][pixwidth];
-        green   = new short[pixheight][pixwidth];
-        blue    = new short[pixheight][pixwidth];
-        alpha   = new short[pixheight][pixwidth];
-        pix     = new int[pixwidth * pixheight];
-        int tmp;
-        int spot = 0;
-        for (int r = 0; r < pixheight; r++) {
-            for (int c = 0; c < pixwidth; c++) {
-                red[r][c]   = rd[r][c];
-                green[r][c] = g[r][c];
-                blue[r][c]  = b[r][c];
-                alpha[r][c] = al[r][c];
-                tmp = alpha[r][c];
-                tmp = tmp << SHIFT_8;
-                tmp += red[r][c];
-                tmp = tmp << SHIFT_8;
-                tmp += green[r][c];
-                tmp = tmp << SHIFT_8;
-                tmp += blue[r][c];
-                pix[spot++] = tmp;
-            } //for c
-        } //for r
-        isLoaded = true;
+        core.setColors(rd, g, b, al);
+        repaintWindow();
     } //setColors
 
     /**
-     * Retrieve the image's green component.
+     * Retrieve the color and alpha planes of this image.
+     * The buffer is shared, not copied; after modifying it
+     * call {@link #setPixelBuffer(PixelBuffer)} so that the
+     * packed pixels are brought up to date.
+     * @return the image's pixel buffer
+     */
+    public PixelBuffer getPixelBuffer() {
+        return core.getPixelBuffer();
+    } //getPixelBuffer
+
+    /**
+     * Use the given buffer as the color and alpha planes of this image.
+     * The buffer is adopted without copying.
+     * @param pb the new pixel buffer
+     */
+    public void setPixelBuffer(final PixelBuffer pb) {
+        core.setPixelBuffer(pb);
+        repaintWindow();
+    } //setPixelBuffer
+
+    /**
+     * Retrieve the image's red component.
      * @return A 2D array of values from 0 to 255.
      */
     public short[][] getRed() {
-        int nrows = red.length;
-        int ncols = red[0].length;
-        short[][] redcp = new short[nrows][ncols];
-        for (int r = 0; r < nrows; r++) {
-            for (int c = 0; c < ncols; c++) {
-                redcp[r][c] = red[r][c];
-            }
-        }
-        return redcp;
+        return core.getPlane(PixelBuffer.RED);
     } //getRed
 
     /**
@@ -384,15 +430,7 @@ public class ImgProvider extends JComponent {
      * @return A 2D array of values from 0 to 255.
      */
     public short[][] getGreen() {
-        int nrows = green.length;
-        int ncols = green[0].length;
-        short[][] thecopy = new short[nrows][ncols];
-        for (int r = 0; r < nrows; r++) {
-            for (int c = 0; c < ncols; c++) {
-                thecopy[r][c] = green[r][c];
-            }
-        }
-        return thecopy;
+        return core.getPlane(PixelBuffer.GREEN);
     } //getGreen
 
     /**
@@ -400,15 +438,7 @@ public class ImgProvider extends JComponent {
      * @return A 2D array of values from 0 to 255.
      */
     public short[][] getBlue() {
-        int nrows = blue.length;
-        int ncols = blue[0].length;
-        short[][] thecopy = new short[nrows][ncols];
-        for (int r = 0; r < nrows; r++) {
-            for (int c = 0; c < ncols; c++) {
-                thecopy[r][c] = blue[r][c];
-            }
-        }
-        return thecopy;
+        return core.getPlane(PixelBuffer.BLUE);
     } //getBlue
 
     /**
@@ -416,15 +446,79 @@ public class ImgProvider extends JComponent {
      * @return A 2D array with values from 0 to 255.
      */
     public short[][] getAlpha() {
-        int nrows = alpha.length;
-        int ncols = alpha[0].length;
-        short[][] al = new short[nrows][ncols];
-        for (int r = 0; r < nrows; r++) {
-            for (int c = 0; c < ncols; c++) {
-                al[r][c] = alpha[r][c];
-            }
-        }
-        return al;
+        return core.getPlane(PixelBuffer.ALPHA);
+    }
+
+    /**
+     * Retrieve a read-only view of one of the image's planes.
+     * Unlike {@link #getRed()} and friends no copy is made.
+     * @param channel PixelBuffer.RED, GREEN, BLUE or ALPHA
+     * @return a view of the plane
+     */
+    public PlaneView getPlaneView(final int channel) {
+        return core.getPlaneView(channel);
+    } //getPlaneView
+
+    /**
+     * Retrieve a read-only view of the image's red component.
+     * @return a view of the red plane
+     */
+    public PlaneView getRedView() {
+        return getPlaneView(PixelBuffer.RED);
+    }
+
+    /**
+     * Retrieve a read-only view of the image's green component.
+     * @return a view of the green plane
+     */
+    public PlaneView getGreenView() {
+        return getPlaneView(PixelBuffer.GREEN);
+    }
+
+    /**
+     * Retrieve a read-only view of the image's blue component.
+     * @return a view of the blue plane
+     */
+    public PlaneView getBlueView() {
+        return getPlaneView(PixelBuffer.BLUE);
+    }
+
+    /**
+     * Retrieve a read-only view of the image's alpha component.
+     * @return a view of the alpha plane
+     */
+    public PlaneView getAlphaView() {
+        return getPlaneView(PixelBuffer.ALPHA);
+    }
+
+    /**
+     * Retrieve a writable copy-on-write view of one of the image's planes.
+     * The plane is copied only when it is first written to.
+     * @param channel PixelBuffer.RED, GREEN, BLUE or ALPHA
+     * @return a mutable plane
+     */
+    public MutablePlane getMutablePlane(final int channel) {
+        return core.getMutablePlane(channel);
+    } //getMutablePlane
+
+    /**
+     * Retrieve the histograms and statistics of the image,
+     * computed once and kept until the pixels change.
+     * @return the statistics
+     */
+    public ImageStatistics getStatistics() {
+        return core.getStatistics();
+    }
+
+    /**
+     * Resize the image.
+     * @param w width of the result
+     * @param h height of the result
+     * @param method Resampler.NEAREST, BILINEAR, BICUBIC or LANCZOS
+     * @return a new ImgProvider holding the result
+     */
+    public ImgProvider resize(final int w, final int h, final int method) {
+        return new ImgProvider(core.resize(w, h, method));
     }
 
     /**
@@ -432,7 +526,7 @@ public class ImgProvider extends JComponent {
      * @return image's width
      */
     public int getWidth() {
-        return pixwidth;
+        return core.getWidth();
      }
 
     /**
@@ -440,16 +534,23 @@ public class ImgProvider extends JComponent {
      * @return image's height
      */
     public int getHeight() {
-        return pixheight;
+        return core.getHeight();
      }
 
     /**
-     * Retrieve the image's raw image.
-     * Note that img is not always consistent with RGBA arrays.
-     * @return The image's raw image
+     * Retrieve the image for drawing.  It shares the pixel array, so
+     * it is always consistent with the pixels; repaint to show changes.
+     * @return a TYPE_INT_ARGB BufferedImage, or null if the image is
+     *         tiled
      */
     public Image getImage() {
-        return img;
+        if (!core.isLoaded()) {
+            readinImage();
+        }
+        if (core.isTiled()) {
+            return null;
+        }
+        return core.toBufferedImage();
     } //getImage
 
     /**
@@ -467,7 +568,6 @@ public class ImgProvider extends JComponent {
     public void setInactive() {
         if (lab != null) {
             lab.setInactive(this);
-            ImageLab.setImgProvider(null);
         } else {
             System.err.println("*** error ** ImgProvider:setInactive - no lab");
         }
@@ -481,6 +581,14 @@ public class ImgProvider extends JComponent {
         lab = iml;
     }
 
+    /**
+     * Retrieve the ImageLab registered with this ImgProvider.
+     * @return the ImageLab, or null
+     */
+    ImageLab getLab() {
+        return lab;
+    }
+
     /** Used by ImageLab to save an image to a file. */
     void save() {
         JFileChooser fd;
@@ -498,17 +606,11 @@ public class ImgProvider extends JComponent {
         fname = fd.getSelectedFile().getName();
         theFile = fd.getSelectedFile();
 
-        BufferedImage bufim = new BufferedImage(
-            pixwidth, pixheight, BufferedImage.TYPE_INT_RGB);
-        bufim.setRGB(0, 0, pixwidth, pixheight, pix, 0, pixwidth);
-
         try {
-            if (!ImageIO.write(bufim, "jpeg", theFile)) {
-                System.err.println("Couldn't write file - save failed");
-            }
-            //else System.out.println("File written");
+            core.save(theFile, "jpeg");
+            //System.out.println("File written");
         } catch (IOException ioe) {
-            System.err.println("Attempt to save file failed.");
+            System.err.println("Attempt to save file failed: " + ioe);
         } //catch
     } //save
 
@@ -522,17 +624,14 @@ public class ImgProvider extends JComponent {
      * of the Red, Green and Blue notes respectively.
      */
     public void play() {
-        short[][] localRed = getRed();     // Red plane
-        short[][] localGreen = getGreen(); // Green plane
-        short[][] localBlue = getBlue();   // Blue plane
-        short[][] bw = getBWImage();  // Black & white image
-        short[][] localAlpha = getAlpha(); // Alpha channel
-        short[][] hue;
-        short[][] saturation;
-        short[][] brightness;
-
-        int height = bw.length;
-        int width  = bw[0].length;
+        ImageStatistics stats = getStatistics();
+        int[] redSums = stats.getRowSums(PixelBuffer.RED);
+        int[] greenSums = stats.getRowSums(PixelBuffer.GREEN);
+        int[] blueSums = stats.getRowSums(PixelBuffer.BLUE);
+        int[] pixels = core.getPix();
+
+        int height = core.getHeight();
+        int width  = core.getWidth();
 
         //System.out.println("Playing image number " + getid());
 
@@ -555,25 +654,24 @@ public class ImgProvider extends JComponent {
         int[] velocity = {0, 0, 0};
         int velocityRange = Note.VRANGE;
         int tempo = Note.DE / 2;
-        int rowSum = 0;
-        int redSum = 0;
-        int greenSum = 0;
-        int blueSum = 0;
+        int redSum;
+        int greenSum;
+        int blueSum;
         float[] hsb = {0, 0, 0};
         float hueSum = 0;
         float satSum = 0;
         float brtSum = 0;
 
         for (int row = 0; row < height; row++) {
+            redSum = redSums[row];
+            greenSum = greenSums[row];
+            blueSum = blueSums[row];
             for (int column = 0; column < width; column++) {
-                rowSum += (bw[row][column]);
-                redSum += (localRed[row][column]);
-                greenSum += (localGreen[row][column]);
-                blueSum += (localBlue[row][column]);
+                int p = pixels[row * width + column];
                 java.awt.Color.RGBtoHSB(
-                    localRed[row][column],
-                    localGreen[row][column],
-                    localBlue[row][column], hsb);
+                    (p >> PixelBuffer.RED_SHIFT) & PixelBuffer.MASK,
+                    (p >> PixelBuffer.GREEN_SHIFT) & PixelBuffer.MASK,
+                    p & PixelBuffer.MASK, hsb);
                 hueSum += hsb[0];
                 satSum += hsb[1];
                 brtSum += hsb[2];
@@ -600,10 +698,6 @@ public class ImgProvider extends JComponent {
                  pitchRange *  blueSum / width / PITCH_DIV)), tempo,
                 velocity[2]));
             tune.addChord(chord);
-            rowSum = 0;
-            redSum = 0;
-            greenSum = 0;
-            blueSum = 0;
             hueSum = 0;
             satSum = 0;
             brtSum = 0;
@@ -614,28 +708,159 @@ public class ImgProvider extends JComponent {
     }
 
     /**
-     * Display this image a line at a time in a window.
+     * Display this image a band of rows at a time in a window.
+     * An image that has not been read in yet is shown as it is
+     * decoded, and then kept.
      * @param name The title for the window.
      */
     public void showPixNew(final String name) {
-        System.out.println("ImgProvider:showSlow: Before readinImage");
-        if (!isLoaded) {
+        showProgressive(name);
+    } //showPixNew
+
+    /**
+     * Filter this image a band of rows at a time, showing each band
+     * as soon as it is done.  An image that has not been read in yet
+     * is decoded a band at a time as well, so results start to appear
+     * at once even on a very large image.  The work is done on a
+     * background thread, unless running headless or quiet, in which
+     * case it is done before returning.  An image too large for the
+     * heap is instead filtered a band of tiles at a time before
+     * returning, and a preview of the result is shown.
+     * With no filters, an image that had not been read in keeps the
+     * decoded pixels.
+     * @param name the title for the window
+     * @param filters the filters to apply, in order; none just shows
+     *        the image
+     * @return the image being filled in with the result
+     */
+    public ImgProvider showProgressive(final String name,
+                                       final StreamingFilter... filters) {
+        final File file = new File(core.getFileName());
+        Dimension size;
+        int sub = 1;
+        if (core.isLoaded()) {
+            if (core.isTiled()) {
+                return showWhole(name, filters);
+            }
+            size = new Dimension(core.getWidth(), core.getHeight());
+        } else {
+            try {
+                Rectangle src = new Rectangle(ImageDecoder.size(file));
+                if (core.getRegion() != null) {
+                    src = src.intersection(core.getRegion());
+                }
+                sub = core.loadSubsampling(src.getSize());
+                if (ImageCore.isTooLarge(src.getSize(), sub)) {
+                    return showWhole(name, filters);
+                }
+                size = new Dimension((src.width + sub - 1) / sub,
+                                     (src.height + sub - 1) / sub);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(
+                    "ImgProvider: cannot read " + core.getFileName(), ioe);
+            }
+        }
+        final int factor = sub;
+        final int w = size.width;
+        final ImageCore out = new ImageCore();
+        out.setPixels(new int[w * size.height], w, size.height);
+        final ImgProvider result = new ImgProvider(out);
+        result.setLab(lab);
+        final DynaPanel panel;
+        if (GraphicsEnvironment.isHeadless() || isQuiet()) {
+            panel = null;
+        } else {
+            panel = new DynDisplayImage(result, name, true).getDynaPanel();
+        }
+        final BandPipeline pipeline = new BandPipeline(filters);
+        final BandConsumer sink = new BandConsumer() {
+            public void consume(final int firstRow, final int rows,
+                                final int width, final int[] pix) {
+                System.arraycopy(pix, 0, out.getPix(), firstRow * w,
+                                 rows * w);
+                if (panel != null) {
+                    panel.rowsChanged(firstRow, rows);
+                }
+            }
+        };
+        Runnable work = new Runnable() {
+            public void run() {
+                try {
+                    if (core.isLoaded()) {
+                        pipeline.run(core, sink);
+                    } else {
+                        pipeline.run(file, core.getRegion(), factor, sink);
+                        if (filters.length == 0) {
+                            keepDecoded(out, panel != null);
+                        }
+                    }
+                    result.pixelsChanged();
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("ImgProvider: cannot show "
+                        + core.getFileName() + ": " + e);
+                }
+            }
+        };
+        if (panel == null) {
+            work.run();
+        } else {
+            Thread t = new Thread(work, "ImageLab progressive display");
+            t.setDaemon(true);
+            t.start();
+        }
+        return result;
+    } //showProgressive
+
+    /**
+     * Filter the whole image, a band of tiles at a time if it is too
+     * large for the heap, and show the result.
+     * @param name the title for the window
+     * @param filters the filters to apply, in order
+     * @return the image holding the result
+     */
+    private ImgProvider showWhole(final String name,
+                                  final StreamingFilter... filters) {
+        if (!core.isLoaded()) {
             readinImage();
         }
-        System.out.println("ImgProvider:showSlow: After readinImage");
-        img = getToolkit().createImage(
-                new MemoryImageSource(pixwidth, pixheight, pix, 0, pixwidth));
-        DynDisplayImage dImage1 = new DynDisplayImage(this, name, true);
-        dImage1.setVisible(true);
-        dImage1.repaint();
-        System.out.println("ImgProvider:showSlow: Constructed DynaPanel");
-        System.out.println("ImgProvider:showSlow: size is ("
-        + pixwidth + ", " + pixheight + ")");
-        try {
-            Thread.sleep(SLEEP_1000_MS);  //give image time to display
-        } catch (Exception e) { }
-        dImage1.changeImage(this, "Second Pass");
-        System.out.println("ImgProvider:showSlow: Second Pass");
-    }
+        ImageCore c = core;
+        for (StreamingFilter f : filters) {
+            ImageCore next = c.apply(f);
+            if (c != core) {
+                c.dropTiles();
+            }
+            c = next;
+        }
+        ImgProvider result = this;
+        if (c != core) {
+            result = new ImgProvider(c);
+            result.setLab(lab);
+        }
+        result.showPix(name);
+        return result;
+    } //showWhole
+
+    /**
+     * Give this image the pixels decoded by showProgressive, unless it
+     * has been read in meanwhile.  From the background thread this is
+     * left to the event dispatch thread, which owns the image.
+     * @param decoded the decoded image
+     * @param later true to hand the pixels over on the event thread
+     */
+    private void keepDecoded(final ImageCore decoded, final boolean later) {
+        Runnable keep = new Runnable() {
+            public void run() {
+                if (!core.isLoaded()) {
+                    core.setPixels(decoded.getPix(), decoded.getWidth(),
+                                   decoded.getHeight());
+                }
+            }
+        };
+        if (later) {
+            SwingUtilities.invokeLater(keep);
+        } else {
+            keep.run();
+        }
+    } //keepDecoded
 
 }
@@ -0,0 +1,176 @@
+package imagelab;
+
+/**
+ * A summed-area table of one image plane.  Entry (x, y) holds the sum
+ * of every sample above and to the left of pixel (x, y), so the sum,
+ * mean or variance of any rectangle costs four lookups whatever its
+ * size.
+ * <p>
+ * Sums are kept in an int array with one extra row and column of
+ * zeros.  A table of a large image overflows, but rectangle sums are
+ * differences and come out right as long as the rectangle's own sum
+ * fits in an int, which holds for rectangles of up to 8,421,504
+ * pixels (over 2900 x 2900).  Sums of squares, which overflow much
+ * sooner, are kept in a long array and only when asked for.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class IntegralImage {
+    /** Mask giving the unsigned value of an int. */
+    private static final long UNSIGNED = 0xFFFFFFFFL;
+
+    /** Largest rectangle, in pixels, whose sum is exact. */
+    public static final int MAX_AREA = Integer.MAX_VALUE / PixelBuffer.MASK;
+
+    /** Width of the plane. */
+    private final int width;
+    /** Height of the plane. */
+    private final int height;
+    /** Number of entries per row of the tables (width + 1). */
+    private final int stride;
+    /** Sums of samples, modulo 2 to the 32. */
+    private final int[] sums;
+    /** Sums of squared samples, or null. */
+    private final long[] squares;
+
+    /**
+     * Compute the sums of a plane.
+     * @param plane the samples, for example ip.getBWView()
+     */
+    public IntegralImage(final PlaneView plane) {
+        this(plane, false);
+    }
+
+    /**
+     * Compute the sums, and optionally the sums of squares, of a plane
+     * in a single pass.
+     * @param plane the samples, for example ip.getBWView()
+     * @param withSquares true to allow {@link #sumOfSquares} and
+     *        {@link #variance}
+     */
+    public IntegralImage(final PlaneView plane, final boolean withSquares) {
+        width = plane.getWidth();
+        height = plane.getHeight();
+        stride = width + 1;
+        sums = new int[stride * (height + 1)];
+        squares = withSquares ? new long[sums.length] : null;
+        byte[] src = plane.array();
+        for (int y = 0; y < height; y++) {
+            int from = plane.rowOffset(y);
+            int above = y * stride + 1;
+            int here = above + stride;
+            int rowSum = 0;
+            long rowSquares = 0;
+            for (int x = 0; x < width; x++) {
+                int v = src[from + x] & PixelBuffer.MASK;
+                rowSum += v;
+                sums[here + x] = sums[above + x] + rowSum;
+                if (squares != null) {
+                    rowSquares += v * v;
+                    squares[here + x] = squares[above + x] + rowSquares;
+                }
+            }
+        }
+    } //IntegralImage
+
+    /**
+     * Retrieve the width of the plane.
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Retrieve the height of the plane.
+     * @return height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Sum of the samples in a rectangle.
+     * @param x0 left column
+     * @param y0 top row
+     * @param x1 one past the right column
+     * @param y1 one past the bottom row
+     * @return the sum (exact for up to MAX_AREA pixels)
+     */
+    public int sum(final int x0, final int y0, final int x1, final int y1) {
+        return sums[y1 * stride + x1] - sums[y0 * stride + x1]
+            - sums[y1 * stride + x0] + sums[y0 * stride + x0];
+    }
+
+    /**
+     * Sum of the squared samples in a rectangle.
+     * @param x0 left column
+     * @param y0 top row
+     * @param x1 one past the right column
+     * @param y1 one past the bottom row
+     * @return the sum of squares
+     * @throws IllegalStateException if squares were not computed
+     */
+    public long sumOfSquares(final int x0, final int y0,
+                             final int x1, final int y1) {
+        if (squares == null) {
+            throw new IllegalStateException(
+                "IntegralImage: sums of squares were not computed");
+        }
+        return squares[y1 * stride + x1] - squares[y0 * stride + x1]
+            - squares[y1 * stride + x0] + squares[y0 * stride + x0];
+    }
+
+    /**
+     * Mean of the samples within a square window, clipped to the plane.
+     * @param x column of the center
+     * @param y row of the center
+     * @param radius pixels on each side of the center
+     * @return the mean
+     */
+    public double mean(final int x, final int y, final int radius) {
+        int x0 = Math.max(x - radius, 0);
+        int y0 = Math.max(y - radius, 0);
+        int x1 = Math.min(x + radius + 1, width);
+        int y1 = Math.min(y + radius + 1, height);
+        return (double) sum(x0, y0, x1, y1) / ((x1 - x0) * (y1 - y0));
+    } //mean
+
+    /**
+     * Mean of the samples within a square window, clipped to the
+     * plane, rounded to the nearest integer.
+     * @param x column of the center
+     * @param y row of the center
+     * @param radius pixels on each side of the center
+     * @return the rounded mean (0 to 255)
+     */
+    public int roundedMean(final int x, final int y, final int radius) {
+        int x0 = Math.max(x - radius, 0);
+        int y0 = Math.max(y - radius, 0);
+        int x1 = Math.min(x + radius + 1, width);
+        int y1 = Math.min(y + radius + 1, height);
+        int n = (x1 - x0) * (y1 - y0);
+        return (sum(x0, y0, x1, y1) + n / 2) / n;
+    } //roundedMean
+
+    /**
+     * Variance of the samples within a square window, clipped to the
+     * plane.
+     * @param x column of the center
+     * @param y row of the center
+     * @param radius pixels on each side of the center
+     * @return the (population) variance
+     * @throws IllegalStateException if squares were not computed
+     */
+    public double variance(final int x, final int y, final int radius) {
+        int x0 = Math.max(x - radius, 0);
+        int y0 = Math.max(y - radius, 0);
+        int x1 = Math.min(x + radius + 1, width);
+        int y1 = Math.min(y + radius + 1, height);
+        long n = (long) (x1 - x0) * (y1 - y0);
+        long s = sum(x0, y0, x1, y1) & UNSIGNED;
+        long sq = sumOfSquares(x0, y0, x1, y1);
+        return Math.max(0.0, (double) (n * sq - s * s) / ((double) n * n));
+    } //variance
+} //IntegralImage
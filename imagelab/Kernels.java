@@ -0,0 +1,76 @@
+package imagelab;
+
+/**
+ * Chooses the implementation of the {@link PixelKernels} once, when
+ * ImageLab starts.  The Vector API version is used when the
+ * <CODE>jdk.incubator.vector</CODE> module has been added (run with
+ * <CODE>--add-modules jdk.incubator.vector</CODE>) and the processor
+ * has wide enough vectors; otherwise the plain Java loops are used.
+ * Setting the system property <CODE>imagelab.vector</CODE> to
+ * <CODE>false</CODE> forces the plain loops.
+ * The Vector API version, VectorKernels, is kept in the
+ * <CODE>vector</CODE> directory and compiled separately, since it needs
+ * the module to compile; the rest of ImageLab compiles and runs
+ * without it.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public final class Kernels {
+    /** Name of the Vector API module. */
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    /** Name of the class implementing the kernels with the Vector API. */
+    private static final String VECTOR_KERNELS = "imagelab.VectorKernels";
+
+    /** The plain Java kernels. */
+    private static final PixelKernels SCALAR = new ScalarKernels();
+    /** The kernels in use. */
+    private static final PixelKernels BEST = choose();
+
+    /** Private constructor to avoid instantiation. */
+    private Kernels() { }
+
+    /**
+     * Retrieve the fastest kernels available.
+     * @return the kernels
+     */
+    public static PixelKernels get() {
+        return BEST;
+    }
+
+    /**
+     * Retrieve the plain Java kernels.
+     * @return the kernels
+     */
+    public static PixelKernels scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * Tell whether the Vector API kernels are in use.
+     * @return true if get() returns vectorized kernels
+     */
+    public static boolean isVectorized() {
+        return BEST != SCALAR;
+    }
+
+    /**
+     * Load the Vector API kernels if they can be used.
+     * They are loaded by name so that this class (and the rest of
+     * ImageLab) runs on virtual machines without the module.
+     * @return the kernels to use
+     */
+    private static PixelKernels choose() {
+        if ("false".equals(System.getProperty("imagelab.vector"))
+            || !ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            return SCALAR;
+        }
+        try {
+            return (PixelKernels) Class.forName(VECTOR_KERNELS)
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError
+                 | RuntimeException e) {
+            return SCALAR;
+        }
+    } //choose
+} //Kernels
@@ -0,0 +1,96 @@
+package imagelab;
+
+/**
+ * Lets an {@link ImageFilter} be used as a {@link StatelessFilter}.
+ * The filter instance given runs a call at a time, so calls on
+ * different threads do not share its result field, and whatever the
+ * caller set up on it is kept.  A filter that {@link FilterLoader}
+ * made from its class has no such set-up, so each call runs a new
+ * instance instead and calls can overlap.
+ * The filter runs quietly, so windows it would open are not shown.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class LegacyFilter implements StatelessFilter {
+    /** The filter given, used for its label and unless copies are made. */
+    private final ImageFilter prototype;
+    /** True if each call runs a new instance of the filter's class. */
+    private final boolean copies;
+
+    /**
+     * Adapt a filter, running the instance given.
+     * @param f the filter
+     */
+    public LegacyFilter(final ImageFilter f) {
+        this(f, false);
+    }
+
+    /**
+     * Adapt a filter.
+     * @param f the filter
+     * @param fresh true to run a new instance of f's class, made by
+     *        {@link FilterLoader#instantiate(Class)}, on every call;
+     *        only for filters FilterLoader made the same way
+     */
+    LegacyFilter(final ImageFilter f, final boolean fresh) {
+        if (f == null) {
+            throw new IllegalArgumentException("LegacyFilter: null filter");
+        }
+        prototype = f;
+        copies = fresh;
+    }
+
+    /**
+     * Retrieve the filter given.
+     * @return the adapted filter
+     */
+    public ImageFilter getFilter() {
+        return prototype;
+    }
+
+    /**
+     * Run the filter, or a fresh instance of it, on an image.
+     * @param ip the image to be filtered
+     * @return the filtered image
+     * @throws IllegalStateException if the filter produces no image
+     */
+    public ImgProvider apply(final ImgProvider ip) {
+        if (copies) {
+            return run(FilterLoader.instantiate(prototype.getClass()), ip);
+        }
+        synchronized (prototype) {
+            return run(prototype, ip);
+        }
+    } //apply
+
+    /**
+     * Run a filter quietly and collect its result.
+     * @param f the filter
+     * @param ip the image to be filtered
+     * @return the filtered image
+     */
+    private static ImgProvider run(final ImageFilter f,
+                                   final ImgProvider ip) {
+        boolean wasQuiet = ImgProvider.setQuiet(true);
+        try {
+            f.filter(ip);
+        } finally {
+            ImgProvider.setQuiet(wasQuiet);
+        }
+        ImgProvider result = f.getImgProvider();
+        if (result == null) {
+            throw new IllegalStateException(
+                "LegacyFilter: " + f.getMenuLabel() + " produced no image");
+        }
+        return result;
+    } //run
+
+    /**
+     * Retrieve the filter's label.
+     * @return the filter's menu item label
+     */
+    public String getMenuLabel() {
+        return prototype.getMenuLabel();
+    }
+} //LegacyFilter
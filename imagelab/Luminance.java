@@ -0,0 +1,69 @@
+package imagelab;
+
+/**
+ * Converts packed ARGB pixels to gray (luminance) values.
+ * Uses the ITU-R BT.601 weights 0.299, 0.587 and 0.114 in
+ * 8-bit fixed point.  A single pixel is converted through per-channel
+ * lookup tables; runs of pixels are converted by the pixel kernels
+ * (see {@link Kernels}), which multiply by the weights a vector of
+ * pixels at a time where the Vector API is available.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public final class Luminance {
+    /** Fixed-point weight of red (0.299 * 256). */
+    public static final int RED_WEIGHT = 77;
+    /** Fixed-point weight of green (0.587 * 256). */
+    public static final int GREEN_WEIGHT = 150;
+    /** Fixed-point weight of blue (0.114 * 256). */
+    public static final int BLUE_WEIGHT = 29;
+    /** Rounding term added before the final shift. */
+    public static final int ROUND = 128;
+    /** Number of fraction bits in the weights. */
+    public static final int FRACTION_BITS = 8;
+
+    /** Number of distinct 8-bit channel values. */
+    private static final int LEVELS = 256;
+
+    /** Weighted red contributions. */
+    private static final int[] RED_LUT = new int[LEVELS];
+    /** Weighted green contributions. */
+    private static final int[] GREEN_LUT = new int[LEVELS];
+    /** Weighted blue contributions, including the rounding term. */
+    private static final int[] BLUE_LUT = new int[LEVELS];
+
+    static {
+        for (int v = 0; v < LEVELS; v++) {
+            RED_LUT[v] = RED_WEIGHT * v;
+            GREEN_LUT[v] = GREEN_WEIGHT * v;
+            BLUE_LUT[v] = BLUE_WEIGHT * v + ROUND;
+        }
+    }
+
+    /** Private constructor to avoid instantiation. */
+    private Luminance() { }
+
+    /**
+     * Gray value of a single pixel.
+     * @param argb packed ARGB pixel
+     * @return luminance (0 to 255)
+     */
+    public static int of(final int argb) {
+        return (RED_LUT[(argb >> PixelBuffer.RED_SHIFT) & PixelBuffer.MASK]
+            + GREEN_LUT[(argb >> PixelBuffer.GREEN_SHIFT) & PixelBuffer.MASK]
+            + BLUE_LUT[argb & PixelBuffer.MASK]) >> FRACTION_BITS;
+    }
+
+    /**
+     * Compute the gray values of a run of pixels.
+     * @param pix packed ARGB pixels
+     * @param from index of the first pixel
+     * @param to index one past the last pixel
+     * @param dst destination; dst[i] receives the gray value of pix[i]
+     */
+    public static void compute(
+        final int[] pix, final int from, final int to, final byte[] dst) {
+        Kernels.get().luma(pix, from, to, dst);
+    }
+} //Luminance
@@ -0,0 +1,69 @@
+package imagelab;
+
+/**
+ * A writable, copy-on-write view of one channel of a {@link PixelBuffer}.
+ * Until the first call to {@link #set(int, int, int)} the plane shares
+ * the samples of the buffer it was taken from; the first write makes a
+ * private copy, so the source image is never modified.
+ * Use {@link #writeTo(PixelBuffer, int)} to store the result in a buffer.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class MutablePlane extends PlaneView {
+    /** true once this plane holds its own copy of the samples. */
+    private boolean copied;
+
+    /**
+     * Create a copy-on-write view of one channel of a pixel buffer.
+     * @param pb the pixel buffer
+     * @param channel PixelBuffer.RED, GREEN, BLUE or ALPHA
+     */
+    public MutablePlane(final PixelBuffer pb, final int channel) {
+        super(pb, channel);
+        copied = false;
+    }
+
+    /**
+     * Store a single sample, copying the plane first if necessary.
+     * Only the low 8 bits are kept.
+     * @param row the row
+     * @param col the column
+     * @param value the sample value (0 to 255)
+     */
+    public void set(final int row, final int col, final int value) {
+        if (!copied) {
+            detach();
+        }
+        array()[rowOffset(row) + col] = (byte) value;
+    }
+
+    /**
+     * Tell whether this plane has made its private copy yet.
+     * @return true if writes no longer share storage with the source
+     */
+    public boolean isCopied() {
+        return copied;
+    }
+
+    /**
+     * Copy this plane into a channel of a pixel buffer.
+     * @param pb destination buffer, same width and height as this plane
+     * @param channel PixelBuffer.RED, GREEN, BLUE or ALPHA
+     */
+    public void writeTo(final PixelBuffer pb, final int channel) {
+        pb.setPlane(channel, this);
+    }
+
+    /** Take a private, tightly packed copy of the samples. */
+    private void detach() {
+        int width = getWidth();
+        int height = getHeight();
+        byte[] mine = new byte[width * height];
+        for (int row = 0; row < height; row++) {
+            getRow(row, mine, row * width);
+        }
+        rebind(mine, 0, width);
+        copied = true;
+    }
+} //MutablePlane
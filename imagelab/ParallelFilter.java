@@ -0,0 +1,41 @@
+package imagelab;
+
+/**
+ * A filter whose output can be computed a piece at a time, in any
+ * order and on any number of threads, by a {@link TileExecutor}.
+ * Each output pixel may depend on the input pixels up to
+ * {@link #getRadius()} columns and rows away.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public interface ParallelFilter {
+    /** Pieces are bands of whole rows. */
+    int ROW_PARALLEL = 0;
+    /** Pieces are rectangular tiles. */
+    int TILE_PARALLEL = 1;
+
+    /**
+     * How the image may be split.  Filters that work along whole
+     * rows (such as a horizontal flip) must be ROW_PARALLEL.
+     * @return ROW_PARALLEL or TILE_PARALLEL
+     */
+    int getParallelism();
+
+    /**
+     * Number of pixels around each output pixel, in every direction,
+     * that the filter reads (0 for point operations).
+     * @return the neighborhood radius
+     */
+    int getRadius();
+
+    /**
+     * Compute one piece of the output.
+     * Must not change anything shared with other pieces.
+     * @param in the input piece, readable up to getRadius() pixels
+     *        beyond each edge (edge pixels are repeated outside the
+     *        image)
+     * @param out the output pixels to fill, at the same place
+     */
+    void filterTile(HaloTile in, HaloTile out);
+}
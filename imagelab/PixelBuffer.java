@@ -0,0 +1,285 @@
+package imagelab;
+
+import java.util.Arrays;
+
+/**
+ * PixelBuffer holds the red, green, blue and alpha components
+ * of an image in one contiguous array, one byte per channel per pixel.
+ * The channels are stored as consecutive planes; within a plane
+ * pixels are stored row by row, each row occupying <CODE>stride</CODE>
+ * bytes (of which the first <CODE>width</CODE> are pixels).
+ * Filters may read and write the planes directly.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class PixelBuffer {
+    /** Channel number of the red plane. */
+    public static final int RED = 0;
+    /** Channel number of the green plane. */
+    public static final int GREEN = 1;
+    /** Channel number of the blue plane. */
+    public static final int BLUE = 2;
+    /** Channel number of the alpha plane. */
+    public static final int ALPHA = 3;
+    /** Number of channels held by a PixelBuffer. */
+    public static final int CHANNELS = 4;
+
+    /** Mask for a single 8-bit channel value. */
+    public static final int MASK = 255;
+    /** Shift of the red channel in a packed ARGB int. */
+    public static final int RED_SHIFT = 16;
+    /** Shift of the green channel in a packed ARGB int. */
+    public static final int GREEN_SHIFT = 8;
+    /** Shift of the alpha channel in a packed ARGB int. */
+    public static final int ALPHA_SHIFT = 24;
+    /** Mask of the red bits of a packed ARGB int. */
+    public static final int RED_MASK = 0x00FF0000;
+    /** Mask of the green bits of a packed ARGB int. */
+    public static final int GREEN_MASK = 0x0000FF00;
+    /** Mask of the blue bits of a packed ARGB int. */
+    public static final int BLUE_MASK = 0x000000FF;
+    /** Mask selecting the alpha and green bits of a packed ARGB int. */
+    public static final int ALPHA_GREEN = 0xFF00FF00;
+    /**
+     * Alpha bits of a fully opaque packed ARGB pixel, which are also
+     * the mask of the alpha bits.
+     */
+    public static final int OPAQUE = 0xFF000000;
+    /** Number of significant bits of an RGB pixel without alpha. */
+    public static final int RGB_BITS = 24;
+
+    /** Width of the image in pixels. */
+    private final int width;
+    /** Height of the image in pixels. */
+    private final int height;
+    /** Number of bytes between the starts of consecutive rows. */
+    private final int stride;
+    /** Number of bytes in a single plane. */
+    private final int planeSize;
+    /** The channel planes. */
+    private final byte[] data;
+
+    /**
+     * Create a buffer whose rows are exactly <CODE>w</CODE> pixels wide.
+     * @param w width in pixels
+     * @param h height in pixels
+     */
+    public PixelBuffer(final int w, final int h) {
+        this(w, h, w);
+    }
+
+    /**
+     * Create a buffer with an explicit row stride.
+     * @param w width in pixels
+     * @param h height in pixels
+     * @param rowStride bytes between the starts of consecutive rows
+     */
+    public PixelBuffer(final int w, final int h, final int rowStride) {
+        if (w < 0 || h < 0 || rowStride < w) {
+            throw new IllegalArgumentException(
+                "PixelBuffer: bad dimensions " + w + "x" + h
+                + " stride " + rowStride);
+        }
+        width = w;
+        height = h;
+        stride = rowStride;
+        planeSize = stride * height;
+        data = new byte[planeSize * CHANNELS];
+    }
+
+    /**
+     * Retrieve the width of the image.
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Retrieve the height of the image.
+     * @return height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Retrieve the row stride.
+     * @return bytes between the starts of consecutive rows
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Retrieve the backing array (not a copy).
+     * Use {@link #index(int, int, int)} to locate a sample.
+     * @return the channel planes
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Position of the first sample of a channel plane in the backing array.
+     * @param channel RED, GREEN, BLUE or ALPHA
+     * @return offset of the plane
+     */
+    public int planeOffset(final int channel) {
+        return channel * planeSize;
+    }
+
+    /**
+     * Position of a sample in the backing array.
+     * @param channel RED, GREEN, BLUE or ALPHA
+     * @param row the row
+     * @param col the column
+     * @return offset of the sample
+     */
+    public int index(final int channel, final int row, final int col) {
+        return channel * planeSize + row * stride + col;
+    }
+
+    /**
+     * Retrieve a single sample.
+     * @param channel RED, GREEN, BLUE or ALPHA
+     * @param row the row
+     * @param col the column
+     * @return the sample value (0 to 255)
+     */
+    public int get(final int channel, final int row, final int col) {
+        return data[index(channel, row, col)] & MASK;
+    }
+
+    /**
+     * Store a single sample.  Only the low 8 bits are kept.
+     * @param channel RED, GREEN, BLUE or ALPHA
+     * @param row the row
+     * @param col the column
+     * @param value the sample value (0 to 255)
+     */
+    public void set(
+        final int channel, final int row, final int col, final int value) {
+        data[index(channel, row, col)] = (byte) value;
+    }
+
+    /**
+     * Fill this buffer from packed ARGB pixels.
+     * @param pix packed pixels, <CODE>width</CODE> per row
+     */
+    public void unpack(final int[] pix) {
+        for (int c = 0; c < CHANNELS; c++) {
+            unpack(pix, c);
+        }
+    } //unpack
+
+    /**
+     * Fill a single channel of this buffer from packed ARGB pixels.
+     * @param pix packed pixels, <CODE>width</CODE> per row
+     * @param channel RED, GREEN, BLUE or ALPHA
+     */
+    public void unpack(final int[] pix, final int channel) {
+        PixelKernels k = Kernels.get();
+        int shift = shiftOf(channel);
+        int off = planeOffset(channel);
+        for (int row = 0; row < height; row++) {
+            k.unpack(pix, row * width, shift, data, off + row * stride,
+                     width);
+        }
+    } //unpack
+
+    /**
+     * Position of a channel within a packed ARGB int.
+     * @param channel RED, GREEN, BLUE or ALPHA
+     * @return the number of bits to shift right to reach the channel
+     */
+    public static int shiftOf(final int channel) {
+        switch (channel) {
+            case RED:
+                return RED_SHIFT;
+            case GREEN:
+                return GREEN_SHIFT;
+            case BLUE:
+                return 0;
+            case ALPHA:
+                return ALPHA_SHIFT;
+            default:
+                throw new IllegalArgumentException(
+                    "PixelBuffer: no such channel " + channel);
+        }
+    } //shiftOf
+
+    /**
+     * Pack this buffer into ARGB pixels.
+     * @param pix destination, at least <CODE>width * height</CODE> long
+     */
+    public void pack(final int[] pix) {
+        PixelKernels k = Kernels.get();
+        int r = planeOffset(RED);
+        int g = planeOffset(GREEN);
+        int b = planeOffset(BLUE);
+        int a = planeOffset(ALPHA);
+        for (int row = 0; row < height; row++) {
+            int base = row * stride;
+            k.pack(data, a + base, r + base, g + base, b + base,
+                   pix, row * width, width);
+        }
+    } //pack
+
+    /**
+     * Copy a channel out as a 2D array (the legacy plane format).
+     * @param channel RED, GREEN, BLUE or ALPHA
+     * @return a new 2D array of values from 0 to 255
+     */
+    public short[][] toPlane(final int channel) {
+        short[][] plane = new short[height][width];
+        int off = planeOffset(channel);
+        for (int row = 0; row < height; row++) {
+            short[] line = plane[row];
+            int base = off + row * stride;
+            for (int col = 0; col < width; col++) {
+                line[col] = (short) (data[base + col] & MASK);
+            }
+        }
+        return plane;
+    } //toPlane
+
+    /**
+     * Copy a 2D array (the legacy plane format) into a channel.
+     * @param channel RED, GREEN, BLUE or ALPHA
+     * @param plane values from 0 to 255, at least height x width
+     */
+    public void setPlane(final int channel, final short[][] plane) {
+        int off = planeOffset(channel);
+        for (int row = 0; row < height; row++) {
+            short[] line = plane[row];
+            int base = off + row * stride;
+            for (int col = 0; col < width; col++) {
+                data[base + col] = (byte) line[col];
+            }
+        }
+    } //setPlane
+
+    /**
+     * Copy a plane view (possibly of another buffer) into a channel.
+     * @param channel RED, GREEN, BLUE or ALPHA
+     * @param view the samples to copy, same width and height as this buffer
+     */
+    public void setPlane(final int channel, final PlaneView view) {
+        int off = planeOffset(channel);
+        for (int row = 0; row < height; row++) {
+            view.getRow(row, data, off + row * stride);
+        }
+    } //setPlane
+
+    /**
+     * Fill a channel with a single value.
+     * @param channel RED, GREEN, BLUE or ALPHA
+     * @param value the sample value (0 to 255)
+     */
+    public void fill(final int channel, final int value) {
+        int off = planeOffset(channel);
+        Arrays.fill(data, off, off + planeSize, (byte) value);
+    }
+} //PixelBuffer
@@ -0,0 +1,69 @@
+package imagelab;
+
+/**
+ * The innermost pixel loops of ImageLab: converting between packed
+ * ARGB pixels and planes, computing gray values and swapping channels.
+ * {@link Kernels#get()} returns the fastest implementation the running
+ * Java virtual machine supports.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public interface PixelKernels {
+    /**
+     * Compute the BT.601 gray values of a run of pixels
+     * (as {@link Luminance#of(int)} does).
+     * @param pix packed ARGB pixels
+     * @param from index of the first pixel
+     * @param to index one past the last pixel
+     * @param dst destination; dst[i] receives the gray value of pix[i]
+     */
+    void luma(int[] pix, int from, int to, byte[] dst);
+
+    /**
+     * Extract one channel of a run of pixels.
+     * @param pix packed ARGB pixels
+     * @param from index of the first pixel
+     * @param shift position of the channel (see PixelBuffer.shiftOf)
+     * @param dst destination plane
+     * @param to index in dst of the first value
+     * @param count number of pixels
+     */
+    void unpack(int[] pix, int from, int shift, byte[] dst, int to,
+                int count);
+
+    /**
+     * Pack four planes held in one array into a run of pixels.
+     * @param data the planes
+     * @param a index in data of the first alpha value
+     * @param r index in data of the first red value
+     * @param g index in data of the first green value
+     * @param b index in data of the first blue value
+     * @param pix destination pixels
+     * @param to index in pix of the first pixel
+     * @param count number of pixels
+     */
+    void pack(byte[] data, int a, int r, int g, int b, int[] pix, int to,
+              int count);
+
+    /**
+     * Turn a run of gray values into opaque gray pixels.
+     * @param gray gray values (only the low 8 bits are used)
+     * @param from index of the first value
+     * @param pix destination pixels
+     * @param to index in pix of the first pixel
+     * @param count number of pixels
+     */
+    void packGray(short[] gray, int from, int[] pix, int to, int count);
+
+    /**
+     * Exchange the red and blue channels of a run of pixels.
+     * The source and destination may be the same array.
+     * @param src packed ARGB pixels
+     * @param from index of the first pixel
+     * @param dst destination pixels
+     * @param to index in dst of the first pixel
+     * @param count number of pixels
+     */
+    void swapRedBlue(int[] src, int from, int[] dst, int to, int count);
+}
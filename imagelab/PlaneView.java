@@ -0,0 +1,149 @@
+package imagelab;
+
+/**
+ * A read-only view of one channel of a {@link PixelBuffer}.
+ * No pixels are copied when a view is created; reads go straight
+ * to the underlying buffer, so a view always reflects the current
+ * contents of the image it was taken from.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class PlaneView {
+
+    /** Width of the plane in pixels. */
+    private final int width;
+    /** Height of the plane in pixels. */
+    private final int height;
+    /** Array holding the samples. */
+    private byte[] data;
+    /** Position of the first sample of the plane in data. */
+    private int offset;
+    /** Number of bytes between the starts of consecutive rows. */
+    private int stride;
+
+    /**
+     * Create a view of one channel of a pixel buffer.
+     * @param pb the pixel buffer
+     * @param channel PixelBuffer.RED, GREEN, BLUE or ALPHA
+     */
+    public PlaneView(final PixelBuffer pb, final int channel) {
+        this(pb.getData(), pb.planeOffset(channel), pb.getStride(),
+            pb.getWidth(), pb.getHeight());
+    }
+
+    /**
+     * Create a view of a plane stored in an arbitrary byte array.
+     * @param d the array holding the samples
+     * @param off position of the first sample
+     * @param rowStride bytes between the starts of consecutive rows
+     * @param w width in pixels
+     * @param h height in pixels
+     */
+    PlaneView(final byte[] d, final int off, final int rowStride,
+              final int w, final int h) {
+        data = d;
+        offset = off;
+        stride = rowStride;
+        width = w;
+        height = h;
+    }
+
+    /**
+     * Retrieve the width of the plane.
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Retrieve the height of the plane.
+     * @return height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Retrieve a single sample.
+     * @param row the row
+     * @param col the column
+     * @return the sample value (0 to 255)
+     */
+    public int get(final int row, final int col) {
+        return data[offset + row * stride + col] & PixelBuffer.MASK;
+    }
+
+    /**
+     * Copy one row of the plane into a caller-supplied array.
+     * Reusing the same array for every row avoids all allocation.
+     * @param row the row
+     * @param dst destination, at least <CODE>width</CODE> long;
+     *        if null a new array is allocated
+     * @return the destination array
+     */
+    public short[] getRow(final int row, final short[] dst) {
+        short[] line = dst;
+        if (line == null) {
+            line = new short[width];
+        }
+        int base = offset + row * stride;
+        for (int col = 0; col < width; col++) {
+            line[col] = (short) (data[base + col] & PixelBuffer.MASK);
+        }
+        return line;
+    } //getRow
+
+    /**
+     * Copy one row of the plane into a byte array.
+     * @param row the row
+     * @param dst destination array
+     * @param dstOff position in dst of the first sample
+     */
+    public void getRow(final int row, final byte[] dst, final int dstOff) {
+        System.arraycopy(data, offset + row * stride, dst, dstOff, width);
+    }
+
+    /**
+     * Copy the whole plane out in the legacy 2D format.
+     * @return a new 2D array of values from 0 to 255
+     */
+    public short[][] toArray() {
+        short[][] plane = new short[height][];
+        for (int row = 0; row < height; row++) {
+            plane[row] = getRow(row, null);
+        }
+        return plane;
+    }
+
+    /**
+     * Point this view at different storage.
+     * Used by {@link MutablePlane} when it takes its private copy.
+     * @param d the array holding the samples
+     * @param off position of the first sample
+     * @param rowStride bytes between the starts of consecutive rows
+     */
+    void rebind(final byte[] d, final int off, final int rowStride) {
+        data = d;
+        offset = off;
+        stride = rowStride;
+    }
+
+    /**
+     * Retrieve the array currently holding the samples.
+     * @return the backing array
+     */
+    byte[] array() {
+        return data;
+    }
+
+    /**
+     * Retrieve the position of a row in the backing array.
+     * @param row the row
+     * @return offset of the first sample of the row
+     */
+    int rowOffset(final int row) {
+        return offset + row * stride;
+    }
+} //PlaneView
@@ -0,0 +1,68 @@
+package imagelab;
+
+import java.util.Collections;
+
+/**
+ * Base class for ImageFilters that are point operations.
+ * Subclasses supply {@link #apply(int)} (and may implement
+ * {@link ChannelOp} to have it turned into lookup tables) and a menu
+ * label; this class makes them work as ordinary ImageFilters, as
+ * StatelessFilters, as StreamingFilters and as fusable stages of a
+ * {@link FilterChain}.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public abstract class PointFilter
+    implements ImageFilter, StatelessFilter, StreamingFilter, PointOp {
+    /** The filtered image. */
+    private ImgProvider filteredImage;
+
+    /**
+     * Apply the operation to every pixel.
+     * @param ip the image to be filtered (not changed)
+     * @return the filtered image
+     */
+    public ImgProvider apply(final ImgProvider ip) {
+        return new ImgProvider(ip.getCore().map(this));
+    }
+
+    /**
+     * Apply the operation to every pixel and display the result.
+     * @param ip the image to be filtered
+     */
+    public void filter(final ImgProvider ip) {
+        filteredImage = apply(ip);
+        filteredImage.showPix(getMenuLabel());
+    } //filter
+
+    /**
+     * Each pixel depends only on itself.
+     * @return 0
+     */
+    public int getNeighborhood() {
+        return 0;
+    }
+
+    /**
+     * Apply the operation to one band of rows.
+     * @param in the rows to filter
+     * @param out the rows to fill
+     */
+    public void filterBand(final RowBand in, final RowBand out) {
+        PointOp op = PointOps.fuse(Collections.singletonList(this));
+        int last = in.getFirstRow() + in.getRows();
+        for (int row = in.getFirstRow(); row < last; row++) {
+            PointOps.apply(op, in.getData(), in.offsetOf(row),
+                out.getData(), out.offsetOf(row), in.getWidth());
+        }
+    } //filterBand
+
+    /**
+     * Retrieve the filtered image.
+     * @return the filtered image
+     */
+    public ImgProvider getImgProvider() {
+        return filteredImage;
+    }
+} //PointFilter
@@ -0,0 +1,18 @@
+package imagelab;
+
+/**
+ * A point operation: each output pixel depends only on the input
+ * pixel at the same place.  Consecutive point operations can be
+ * fused by {@link PointOps} into a single pass over the pixels.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public interface PointOp {
+    /**
+     * Compute one output pixel.
+     * @param argb the packed ARGB input pixel
+     * @return the packed ARGB output pixel
+     */
+    int apply(int argb);
+}
@@ -0,0 +1,291 @@
+package imagelab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fuses and applies point operations.
+ * A run of consecutive {@link ChannelOp}s is pre-computed into one
+ * lookup table per channel, and the fused operation makes a single
+ * pass over the pixels however many operations went into it, so
+ * memory is read and written once instead of once per operation.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public final class PointOps {
+    /** Number of distinct 8-bit channel values. */
+    private static final int LEVELS = 256;
+    /**
+     * Pixels a Sequence processes per step, small enough to stay in
+     * the processor's first-level cache between its operations.
+     */
+    private static final int BLOCK = 2048;
+
+    /** Private constructor to avoid instantiation. */
+    private PointOps() { }
+
+    /**
+     * Fuse point operations into one.
+     * @param ops the operations, in the order they are to be applied
+     * @return an operation equivalent to applying all of them
+     */
+    public static PointOp fuse(final PointOp... ops) {
+        return fuse(Arrays.asList(ops));
+    }
+
+    /**
+     * Fuse point operations into one.
+     * Each run of consecutive ChannelOps becomes a single table lookup
+     * per channel.
+     * @param ops the operations, in the order they are to be applied
+     * @return an operation equivalent to applying all of them
+     */
+    public static PointOp fuse(final List<? extends PointOp> ops) {
+        List<PointOp> fused = new ArrayList<PointOp>();
+        Table table = null;     //the run of ChannelOps being built
+        for (PointOp op : ops) {
+            if (op instanceof ChannelOp) {
+                if (table == null) {
+                    table = new Table();
+                    fused.add(table);
+                }
+                table.then((ChannelOp) op);
+            } else {
+                table = null;
+                fused.add(op);
+            }
+        }
+        if (fused.isEmpty()) {
+            return new Table();
+        }
+        if (fused.size() == 1) {
+            return fused.get(0);
+        }
+        return new Sequence(fused.toArray(new PointOp[fused.size()]));
+    } //fuse
+
+    /**
+     * Create a channel operation from lookup tables.
+     * @param values values[c][v] is the output for input value v of
+     *        channel c (PixelBuffer.RED, GREEN, BLUE or ALPHA); only
+     *        the low 8 bits are used
+     * @return the operation
+     */
+    public static ChannelOp table(final int[][] values) {
+        return new Table(values);
+    } //table
+
+    /**
+     * Apply a point operation to a run of pixels.
+     * The source and destination may be the same array.
+     * @param op the operation (fuse it first for speed)
+     * @param src the input pixels
+     * @param from index of the first input pixel
+     * @param dst the output pixels
+     * @param to index of the first output pixel
+     * @param count number of pixels
+     */
+    public static void apply(final PointOp op, final int[] src,
+                             final int from, final int[] dst,
+                             final int to, final int count) {
+        if (op instanceof Table) {
+            ((Table) op).apply(src, from, dst, to, count);
+            return;
+        }
+        if (op instanceof Sequence) {
+            ((Sequence) op).apply(src, from, dst, to, count);
+            return;
+        }
+        if (op instanceof BulkPointOp) {
+            ((BulkPointOp) op).apply(src, from, dst, to, count);
+            return;
+        }
+        for (int k = 0; k < count; k++) {
+            dst[to + k] = op.apply(src[from + k]);
+        }
+    } //apply
+
+    /**
+     * Apply a point operation to every pixel on all processors.
+     * The source and destination may be the same array.
+     * @param op the operation
+     * @param src the input pixels
+     * @param dst the output pixels
+     * @param w width of the image
+     * @param h height of the image
+     */
+    public static void applyParallel(final PointOp op, final int[] src,
+                                     final int[] dst, final int w,
+                                     final int h) {
+        TileExecutor.getDefault().run(new Kernel(fuse(op)), src, dst, w, h);
+    } //applyParallel
+
+    /** Runs a fused point operation as a ParallelFilter. */
+    private static final class Kernel implements ParallelFilter {
+        /** The fused operation. */
+        private final PointOp op;
+
+        /**
+         * Create a kernel.
+         * @param fused the fused operation
+         */
+        Kernel(final PointOp fused) {
+            op = fused;
+        }
+
+        @Override
+        public int getParallelism() {
+            return ROW_PARALLEL;
+        }
+
+        @Override
+        public int getRadius() {
+            return 0;
+        }
+
+        @Override
+        public void filterTile(final HaloTile in, final HaloTile out) {
+            int x = in.getX();
+            int last = in.getY() + in.getHeight();
+            for (int row = in.getY(); row < last; row++) {
+                apply(op, in.getData(), in.index(x, row),
+                      out.getData(), out.index(x, row), in.getWidth());
+            }
+        }
+    } //Kernel
+
+    /**
+     * Per-channel lookup tables.  Entries are already shifted into
+     * place, so a pixel is four lookups OR'd together.
+     */
+    static final class Table implements ChannelOp {
+
+        /** Shifted output values, indexed by channel and input value. */
+        private final int[][] lut = new int[PixelBuffer.CHANNELS][LEVELS];
+
+        /** Create the identity table. */
+        Table() {
+            for (int c = 0; c < PixelBuffer.CHANNELS; c++) {
+                int shift = PixelBuffer.shiftOf(c);
+                for (int v = 0; v < LEVELS; v++) {
+                    lut[c][v] = v << shift;
+                }
+            }
+        }
+
+        /**
+         * Create a table from unshifted output values.
+         * @param values values[c][v] is the output for input v of
+         *        channel c
+         */
+        Table(final int[][] values) {
+            for (int c = 0; c < PixelBuffer.CHANNELS; c++) {
+                int shift = PixelBuffer.shiftOf(c);
+                for (int v = 0; v < LEVELS; v++) {
+                    lut[c][v] = (values[c][v] & PixelBuffer.MASK) << shift;
+                }
+            }
+        }
+
+        /**
+         * Follow this table by a channel operation.
+         * @param op the operation
+         */
+        void then(final ChannelOp op) {
+            for (int c = 0; c < PixelBuffer.CHANNELS; c++) {
+                int shift = PixelBuffer.shiftOf(c);
+                int[] t = lut[c];
+                for (int v = 0; v < LEVELS; v++) {
+                    int out = op.applyChannel(
+                        c, (t[v] >>> shift) & PixelBuffer.MASK);
+                    t[v] = (out & PixelBuffer.MASK) << shift;
+                }
+            }
+        } //then
+
+        @Override
+        public int applyChannel(final int channel, final int value) {
+            int shift = PixelBuffer.shiftOf(channel);
+            return (lut[channel][value & PixelBuffer.MASK] >>> shift)
+                & PixelBuffer.MASK;
+        }
+
+        @Override
+        public int apply(final int p) {
+            int r = (p >> PixelBuffer.RED_SHIFT) & PixelBuffer.MASK;
+            int g = (p >> PixelBuffer.GREEN_SHIFT) & PixelBuffer.MASK;
+            return lut[PixelBuffer.ALPHA][p >>> PixelBuffer.ALPHA_SHIFT]
+                | lut[PixelBuffer.RED][r] | lut[PixelBuffer.GREEN][g]
+                | lut[PixelBuffer.BLUE][p & PixelBuffer.MASK];
+        }
+
+        /**
+         * Apply the table to a run of pixels.
+         * @param src the input pixels
+         * @param from index of the first input pixel
+         * @param dst the output pixels
+         * @param to index of the first output pixel
+         * @param count number of pixels
+         */
+        void apply(final int[] src, final int from, final int[] dst,
+                   final int to, final int count) {
+            int[] a = lut[PixelBuffer.ALPHA];
+            int[] r = lut[PixelBuffer.RED];
+            int[] g = lut[PixelBuffer.GREEN];
+            int[] b = lut[PixelBuffer.BLUE];
+            for (int k = 0; k < count; k++) {
+                int p = src[from + k];
+                dst[to + k] = a[p >>> PixelBuffer.ALPHA_SHIFT]
+                    | r[(p >> PixelBuffer.RED_SHIFT) & PixelBuffer.MASK]
+                    | g[(p >> PixelBuffer.GREEN_SHIFT) & PixelBuffer.MASK]
+                    | b[p & PixelBuffer.MASK];
+            }
+        } //apply
+    } //Table
+
+    /** Point operations applied one after another to each pixel. */
+    static final class Sequence implements PointOp {
+        /** The operations, in order. */
+        private final PointOp[] ops;
+
+        /**
+         * Create a sequence.
+         * @param all the operations, in order
+         */
+        Sequence(final PointOp[] all) {
+            ops = all;
+        }
+
+        @Override
+        public int apply(final int argb) {
+            int p = argb;
+            for (PointOp op : ops) {
+                p = op.apply(p);
+            }
+            return p;
+        }
+
+        /**
+         * Apply the operations a cache-sized block at a time: the first
+         * operation copies a block to dst and the rest work on it there,
+         * so each pixel is read from and written to memory only once.
+         * @param src the input pixels
+         * @param from index of the first input pixel
+         * @param dst the output pixels
+         * @param to index of the first output pixel
+         * @param count number of pixels
+         */
+        void apply(final int[] src, final int from, final int[] dst,
+                   final int to, final int count) {
+            for (int done = 0; done < count; done += BLOCK) {
+                int n = Math.min(BLOCK, count - done);
+                PointOps.apply(ops[0], src, from + done, dst, to + done, n);
+                for (int k = 1; k < ops.length; k++) {
+                    PointOps.apply(ops[k], dst, to + done, dst, to + done, n);
+                }
+            }
+        } //apply
+    } //Sequence
+} //PointOps
@@ -0,0 +1,132 @@
+package imagelab;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and cancellation of a piece of work, such as one run of a
+ * filter.  The work's thread makes the Progress current with
+ * {@link #setCurrent(Progress)}; the executors that split images into
+ * tiles or bands ({@link TileExecutor}, {@link Resampler} and
+ * {@link BandPipeline}) pick it up, add the pixels they will process
+ * to the total, count them as done tile by tile, and check for
+ * cancellation before each tile.  Cancellation is cooperative: it
+ * stops the work at the next check by throwing a
+ * CancellationException.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public final class Progress {
+    /** The Progress of the work on each thread, if any. */
+    private static final ThreadLocal<Progress> CURRENT =
+        new ThreadLocal<Progress>();
+
+    /** Units of work expected so far. */
+    private final AtomicLong total = new AtomicLong();
+    /** Units of work done. */
+    private final AtomicLong done = new AtomicLong();
+    /** Set once cancellation has been asked for. */
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    /**
+     * Retrieve the Progress of the current thread's work.
+     * @return the Progress, or null if the work is not being tracked
+     */
+    public static Progress current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Track the current thread's work.
+     * @param p the Progress, or null to stop tracking
+     * @return the previous Progress of the thread, or null
+     */
+    public static Progress setCurrent(final Progress p) {
+        Progress was = CURRENT.get();
+        if (p == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(p);
+        }
+        return was;
+    }
+
+    /**
+     * Stop the current thread's work if it has been cancelled.
+     * Does nothing if the work is not being tracked.
+     * @throws CancellationException if it has been cancelled
+     */
+    public static void checkCurrent() {
+        Progress p = CURRENT.get();
+        if (p != null) {
+            p.check();
+        }
+    }
+
+    /** Ask for the work to stop. */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * Tell whether the work has been asked to stop.
+     * @return true once cancel has been called
+     */
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Stop if the work has been cancelled.
+     * @throws CancellationException if it has been cancelled
+     */
+    public void check() {
+        if (cancelled.get()) {
+            throw new CancellationException("cancelled");
+        }
+    }
+
+    /**
+     * Add to the work expected.
+     * @param units units of work (usually pixels)
+     */
+    public void addTotal(final long units) {
+        total.addAndGet(units);
+    }
+
+    /**
+     * Record work done.
+     * @param units units of work (usually pixels)
+     */
+    public void addDone(final long units) {
+        done.addAndGet(units);
+    }
+
+    /**
+     * Retrieve the work done.
+     * @return units of work done
+     */
+    public long getDone() {
+        return done.get();
+    }
+
+    /**
+     * Retrieve the work expected so far.  It grows as each stage of
+     * the work starts.
+     * @return units of work expected
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Retrieve the fraction of the work expected so far that is done.
+     * @return from 0 to 1, or 0 if nothing has started
+     */
+    public double getFraction() {
+        long t = total.get();
+        return t == 0 ? 0 : Math.min(1.0, (double) done.get() / t);
+    }
+} //Progress
@@ -0,0 +1,196 @@
+package imagelab;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import javax.swing.JComponent;
+
+/**
+ * A panel that shows an image at any zoom, drawing only the tiles of
+ * its {@link ImagePyramid} that are visible, from the level closest
+ * to the zoom.  Repainting costs about the same whatever the size of
+ * the image.
+ * Drag to pan, turn the mouse wheel to zoom about the pointer, and
+ * double-click to switch between fitting the window and 1:1.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class PyramidPanel extends JComponent {
+    /** Serialization version. */
+    private static final long serialVersionUID = 11L;
+    /** Zoom factor of one step of the mouse wheel. */
+    private static final double WHEEL_STEP = 1.25;
+    /** Largest zoom, in screen pixels per image pixel. */
+    private static final double MAX_ZOOM = 32.0;
+    /** Value used to create the background color. */
+    private static final int BACKGROUND = 128;
+
+    /** The image. */
+    private final ImgProvider imp;
+    /** Screen pixels per image pixel. */
+    private double zoom = 1.0;
+    /** Image column at the left edge of the panel. */
+    private double originX;
+    /** Image row at the top edge of the panel. */
+    private double originY;
+    /** Where the last drag event was, or null. */
+    private Point dragFrom;
+
+    /**
+     * Create a panel showing an image at 1:1.
+     * @param ip the image
+     */
+    public PyramidPanel(final ImgProvider ip) {
+        imp = ip;
+        setOpaque(true);
+        setBackground(new Color(BACKGROUND, BACKGROUND, BACKGROUND));
+        setPreferredSize(new Dimension(ip.getPixWidth(), ip.getPixHeight()));
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(final MouseEvent e) {
+                dragFrom = e.getPoint();
+            }
+
+            @Override
+            public void mouseReleased(final MouseEvent e) {
+                dragFrom = null;
+            }
+
+            @Override
+            public void mouseDragged(final MouseEvent e) {
+                if (dragFrom != null) {
+                    pan(dragFrom.x - e.getX(), dragFrom.y - e.getY());
+                    dragFrom = e.getPoint();
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(final MouseWheelEvent e) {
+                double factor =
+                    Math.pow(WHEEL_STEP, -e.getPreciseWheelRotation());
+                zoomAbout(zoom * factor, e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseClicked(final MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    if (zoom == 1.0) {
+                        fit();
+                    } else {
+                        zoomAbout(1.0, e.getX(), e.getY());
+                    }
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    } //PyramidPanel
+
+    /**
+     * Retrieve the zoom.
+     * @return screen pixels per image pixel
+     */
+    public double getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Zoom so that the whole image fits the panel (never beyond 1:1),
+     * and center it.
+     */
+    public void fit() {
+        int w = getWidth() > 0 ? getWidth() : getPreferredSize().width;
+        int h = getHeight() > 0 ? getHeight() : getPreferredSize().height;
+        zoom = Math.min(1.0, Math.min((double) w / imp.getPixWidth(),
+                                      (double) h / imp.getPixHeight()));
+        originX = (imp.getPixWidth() - w / zoom) / 2;
+        originY = (imp.getPixHeight() - h / zoom) / 2;
+        repaint();
+    } //fit
+
+    /**
+     * Change the zoom, keeping the image point under a panel point
+     * where it is.
+     * @param z the new zoom, limited to between fitting the image in
+     *        a pixel and MAX_ZOOM
+     * @param px column of the fixed point, in the panel
+     * @param py row of the fixed point, in the panel
+     */
+    public void zoomAbout(final double z, final int px, final int py) {
+        double least = 1.0 / Math.max(imp.getPixWidth(), imp.getPixHeight());
+        double nz = Math.max(least, Math.min(MAX_ZOOM, z));
+        originX += px / zoom - px / nz;
+        originY += py / zoom - py / nz;
+        zoom = nz;
+        repaint();
+    } //zoomAbout
+
+    /**
+     * Move the view.
+     * @param dx screen pixels to move right
+     * @param dy screen pixels to move down
+     */
+    public void pan(final int dx, final int dy) {
+        originX += dx / zoom;
+        originY += dy / zoom;
+        repaint();
+    }
+
+    /**
+     * Draw the visible tiles.
+     * @param g the graphics context
+     */
+    @Override
+    protected void paintComponent(final Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        ImagePyramid pyramid = imp.getPyramid();
+        if (pyramid == null) {
+            return;
+        }
+        int level = pyramid.levelFor(zoom);
+        int lw = pyramid.getLevelWidth(level);
+        int lh = pyramid.getLevelHeight(level);
+        // screen pixels per level pixel, per axis
+        double sx = zoom * imp.getPixWidth() / lw;
+        double sy = zoom * imp.getPixHeight() / lh;
+        double left = originX * lw / imp.getPixWidth();
+        double top = originY * lh / imp.getPixHeight();
+        int size = ImagePyramid.TILE_SIZE;
+        int tx0 = Math.max(0, (int) Math.floor((left + clip.x / sx) / size));
+        int ty0 = Math.max(0, (int) Math.floor((top + clip.y / sy) / size));
+        int tx1 = Math.min((lw - 1) / size,
+            (int) Math.floor((left + (clip.x + clip.width) / sx) / size));
+        int ty1 = Math.min((lh - 1) / size,
+            (int) Math.floor((top + (clip.y + clip.height) / sy) / size));
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, sx > 1
+            ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR
+            : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        for (int ty = ty0; ty <= ty1; ty++) {
+            int y0 = (int) Math.round((ty * size - top) * sy);
+            int y1 = (int) Math.round((Math.min(lh, (ty + 1) * size) - top)
+                                      * sy);
+            for (int tx = tx0; tx <= tx1; tx++) {
+                int x0 = (int) Math.round((tx * size - left) * sx);
+                int x1 = (int) Math.round(
+                    (Math.min(lw, (tx + 1) * size) - left) * sx);
+                g2.drawImage(pyramid.getTile(level, tx, ty),
+                             x0, y0, x1 - x0, y1 - y0, null);
+            }
+        }
+    } //paintComponent
+} //PyramidPanel
@@ -0,0 +1,699 @@
+package imagelab;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Resizes images.
+ * Resampling is done in two passes, one along rows and one along
+ * columns (in whichever order is cheaper), each driven by a table of
+ * integer weights computed once per output column or row.  When
+ * shrinking, the filter is widened to cover the whole footprint of
+ * each output pixel, so fine detail does not alias.  Large
+ * reductions first average whole blocks of pixels down to two to
+ * three times the final size, so the filter's cost depends on the
+ * size of the result rather than the original.
+ * Both passes split the output rows over the common ForkJoinPool.
+ * Tiled images are resized a band of output rows at a time from just
+ * the source rows the band needs, with the same arithmetic, so the
+ * result is the same as for an image held in memory; it is tiled
+ * too if it is too large for the heap.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public final class Resampler {
+    /** Take the nearest pixel. */
+    public static final int NEAREST = 0;
+    /** Interpolate linearly between the nearest 2x2 pixels. */
+    public static final int BILINEAR = 1;
+    /** Interpolate with a cubic (Catmull-Rom) through 4x4 pixels. */
+    public static final int BICUBIC = 2;
+    /** Interpolate with a three-lobed Lanczos window over 6x6 pixels. */
+    public static final int LANCZOS = 3;
+
+    /** Fraction bits of the weights. */
+    private static final int WEIGHT_BITS = 14;
+    /** One in fixed point. */
+    private static final int ONE = 1 << WEIGHT_BITS;
+    /** Rounding term of a weighted sum. */
+    private static final int HALF = ONE / 2;
+    /** Reduce by whole blocks down to this many times the result. */
+    private static final int BOX_MARGIN = 2;
+    /** Fewest pixels of output worth giving a task of their own. */
+    private static final int MIN_PIXELS = 1 << 14;
+    /** Pixels to read from tiles for a band of output rows. */
+    private static final int BAND_PIXELS = 1 << 22;
+    /** Value of a channel at full intensity. */
+    private static final int MAX_VALUE = 255;
+    /** Catmull-Rom cubic parameter. */
+    private static final double CUBIC_A = -0.5;
+    /** Lobes of the Lanczos window. */
+    private static final int LANCZOS_LOBES = 3;
+    /** Cubic coefficient for the Catmull-Rom inner piece. */
+    private static final double C3 = 3.0;
+    /** Cubic coefficient for the Catmull-Rom outer piece. */
+    private static final double C4 = 4.0;
+    /** Cubic coefficient for the Catmull-Rom outer piece. */
+    private static final double C5 = 5.0;
+    /** Cubic coefficient for the Catmull-Rom outer piece. */
+    private static final double C8 = 8.0;
+
+    /** Private constructor to avoid instantiation. */
+    private Resampler() { }
+
+    /**
+     * Resize an image.
+     * @param in the image (not changed)
+     * @param w width of the result
+     * @param h height of the result
+     * @param method NEAREST, BILINEAR, BICUBIC or LANCZOS
+     * @return a new ImageCore holding the result
+     * @throws UncheckedIOException if the result is too large for the
+     *         heap and its tiles cannot be created
+     */
+    public static ImageCore resize(final ImageCore in, final int w,
+                                   final int h, final int method) {
+        if (w < 1 || h < 1) {
+            throw new IllegalArgumentException(
+                "Resampler: bad size " + w + "x" + h);
+        }
+        if (method < NEAREST || method > LANCZOS) {
+            throw new IllegalArgumentException(
+                "Resampler: no such method " + method);
+        }
+        in.ensureLoaded();
+        if (in.isTiled()) {
+            return resizeTiled(in.getTiledImage(), w, h, method);
+        }
+        int[] src = in.getPix();
+        int sw = in.getWidth();
+        int sh = in.getHeight();
+        int[] out;
+        if (method == NEAREST) {
+            out = nearest(src, sw, sh, w, h);
+        } else {
+            int kx = Math.max(1, sw / (w * BOX_MARGIN));
+            int ky = Math.max(1, sh / (h * BOX_MARGIN));
+            if (kx > 1 || ky > 1) {
+                int bw = (sw + kx - 1) / kx;
+                int bh = (sh + ky - 1) / ky;
+                src = boxReduce(src, sw, sh, kx, ky, bw, bh);
+                sw = bw;
+                sh = bh;
+            }
+            out = resample(src, sw, sh, w, h, method);
+        }
+        ImageCore result = new ImageCore();
+        result.setPixels(out, w, h);
+        return result;
+    } //resize
+
+    /**
+     * Resize a tiled image a band of output rows at a time.  Each band
+     * reads the source rows it needs, reduces them by blocks if the
+     * whole image would be, and resamples them just as
+     * {@link #resample(int[], int, int, int, int, int)} would.
+     * @param in the image
+     * @param w width of the result
+     * @param h height of the result
+     * @param method NEAREST, BILINEAR, BICUBIC or LANCZOS
+     * @return a new ImageCore holding the result
+     */
+    private static ImageCore resizeTiled(final TiledImage in, final int w,
+                                         final int h, final int method) {
+        int sw = in.getWidth();
+        int sh = in.getHeight();
+        int kx = 1;
+        int ky = 1;
+        if (method != NEAREST) {
+            kx = Math.max(1, sw / (w * BOX_MARGIN));
+            ky = Math.max(1, sh / (h * BOX_MARGIN));
+        }
+        int bw = (sw + kx - 1) / kx;
+        int bh = (sh + ky - 1) / ky;
+        Weights wx = null;
+        Weights wy = null;
+        boolean rowsFirst = true;
+        if (method != NEAREST) {
+            wx = new Weights(bw, w, method);
+            wy = new Weights(bh, h, method);
+            rowsFirst = (long) bh * w * wx.taps + (long) h * w * wy.taps
+                <= (long) h * bw * wy.taps + (long) h * w * wx.taps;
+        }
+        long perRow = Math.max((long) sw * ((sh + h - 1) / h), w);
+        int band = (int) Math.max(1, Math.min(h, BAND_PIXELS / perRow));
+        ImageCore result = new ImageCore();
+        TiledImage tiles = null;
+        int[] pix = null;
+        try {
+            if (ImageCore.isTooLarge(new Dimension(w, h), 1)) {
+                tiles = new TiledImage(w, h);
+            } else {
+                pix = new int[w * h];
+            }
+            for (int top = 0; top < h; top += band) {
+                int end = Math.min(h, top + band);
+                int n = end - top;
+                int[] part;
+                if (method == NEAREST) {
+                    int[] src = new int[n * sw];
+                    for (int y = top; y < end; y++) {
+                        int sy = Math.min(sh - 1, (int) ((y + 0.5) * sh / h));
+                        in.getRow(sy, 0, sw, src, (y - top) * sw);
+                    }
+                    part = nearest(src, sw, n, w, n);
+                } else {
+                    int first = wy.start[top];
+                    int last = first;
+                    for (int y = top; y < end; y++) {
+                        last = Math.max(last, wy.start[y] + wy.count[y]);
+                    }
+                    int[] src = reducedRows(in, kx, ky, bw, first, last);
+                    if (rowsFirst) {
+                        int[] tmp = horizontal(src, bw, last - first, w, wx);
+                        part = vertical(tmp, w, top, end, first, wy);
+                    } else {
+                        int[] tmp = vertical(src, bw, top, end, first, wy);
+                        part = horizontal(tmp, bw, n, w, wx);
+                    }
+                }
+                if (tiles == null) {
+                    System.arraycopy(part, 0, pix, top * w, n * w);
+                } else {
+                    for (int r = 0; r < n; r++) {
+                        tiles.setRow(top + r, 0, w, part, r * w);
+                    }
+                }
+            } //for top
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(
+                "Resampler: cannot create tiles for the result", ioe);
+        } catch (RuntimeException | Error e) {
+            closeQuietly(tiles);
+            throw e;
+        }
+        if (tiles == null) {
+            result.setPixels(pix, w, h);
+        } else {
+            result.setTiledImage(tiles);
+        }
+        return result;
+    } //resizeTiled
+
+    /**
+     * Read rows of a tiled image, reduced by blocks.
+     * @param in the image
+     * @param kx block width
+     * @param ky block height
+     * @param bw width of the reduced image
+     * @param from first reduced row
+     * @param to one past the last reduced row
+     * @return the reduced rows, or the rows themselves if the blocks
+     *         are single pixels
+     */
+    private static int[] reducedRows(final TiledImage in, final int kx,
+                                     final int ky, final int bw,
+                                     final int from, final int to) {
+        int sw = in.getWidth();
+        int top = from * ky;
+        int bottom = Math.min(to * ky, in.getHeight());
+        int[] src = new int[(bottom - top) * sw];
+        for (int y = top; y < bottom; y++) {
+            in.getRow(y, 0, sw, src, (y - top) * sw);
+        }
+        if (kx == 1 && ky == 1) {
+            return src;
+        }
+        return boxReduce(src, sw, bottom - top, kx, ky, bw, to - from);
+    } //reducedRows
+
+    /**
+     * Close a partly written result.
+     * @param tiles the result, or null
+     */
+    private static void closeQuietly(final TiledImage tiles) {
+        if (tiles == null) {
+            return;
+        }
+        try {
+            tiles.close();
+        } catch (IOException ioe) {
+            System.err.println("Resampler: could not release tiles: " + ioe);
+        }
+    } //closeQuietly
+
+    /**
+     * Resize by taking the nearest pixel.
+     * @param src the pixels
+     * @param sw width of the source
+     * @param sh height of the source
+     * @param w width of the result
+     * @param h height of the result
+     * @return the result pixels
+     */
+    private static int[] nearest(final int[] src, final int sw,
+                                 final int sh, final int w, final int h) {
+        final int[] out = new int[w * h];
+        final int[] cols = new int[w];
+        for (int x = 0; x < w; x++) {
+            cols[x] = Math.min(sw - 1, (int) ((x + 0.5) * sw / w));
+        }
+        run(h, w, new Rows() {
+            void rows(final int from, final int to) {
+                for (int y = from; y < to; y++) {
+                    int base = Math.min(sh - 1, (int) ((y + 0.5) * sh / h))
+                        * sw;
+                    int at = y * w;
+                    for (int x = 0; x < w; x++) {
+                        out[at + x] = src[base + cols[x]];
+                    }
+                }
+            }
+        });
+        return out;
+    } //nearest
+
+    /**
+     * Shrink by averaging blocks of pixels.  Blocks at the right and
+     * bottom edges may be smaller.  The sums are longs, since a block
+     * of more than 2^31 / 255 pixels would overflow an int.
+     * @param src the pixels
+     * @param sw width of the source
+     * @param sh height of the source
+     * @param kx block width
+     * @param ky block height
+     * @param w width of the result
+     * @param h height of the result
+     * @return the result pixels
+     */
+    private static int[] boxReduce(final int[] src, final int sw,
+                                   final int sh, final int kx, final int ky,
+                                   final int w, final int h) {
+        final int[] out = new int[w * h];
+        run(h, w * kx * ky, new Rows() {
+            void rows(final int from, final int to) {
+                long[] sa = new long[w];
+                long[] sr = new long[w];
+                long[] sg = new long[w];
+                long[] sb = new long[w];
+                for (int y = from; y < to; y++) {
+                    Arrays.fill(sa, 0);
+                    Arrays.fill(sr, 0);
+                    Arrays.fill(sg, 0);
+                    Arrays.fill(sb, 0);
+                    int top = y * ky;
+                    int bottom = Math.min(top + ky, sh);
+                    for (int row = top; row < bottom; row++) {
+                        int base = row * sw;
+                        int col = base;
+                        for (int x = 0; x < w; x++) {
+                            int stop = base + Math.min((x + 1) * kx, sw);
+                            long a = 0;
+                            long r = 0;
+                            long g = 0;
+                            long b = 0;
+                            for (; col < stop; col++) {
+                                int p = src[col];
+                                a += p >>> PixelBuffer.ALPHA_SHIFT;
+                                r += (p >> PixelBuffer.RED_SHIFT)
+                                    & PixelBuffer.MASK;
+                                g += (p >> PixelBuffer.GREEN_SHIFT)
+                                    & PixelBuffer.MASK;
+                                b += p & PixelBuffer.MASK;
+                            }
+                            sa[x] += a;
+                            sr[x] += r;
+                            sg[x] += g;
+                            sb[x] += b;
+                        }
+                    }
+                    int rows = bottom - top;
+                    int at = y * w;
+                    for (int x = 0; x < w; x++) {
+                        int n = rows * (Math.min((x + 1) * kx, sw) - x * kx);
+                        int half = n / 2;
+                        int a = (int) ((sa[x] + half) / n);
+                        int r = (int) ((sr[x] + half) / n);
+                        int g = (int) ((sg[x] + half) / n);
+                        int b = (int) ((sb[x] + half) / n);
+                        out[at + x] = a << PixelBuffer.ALPHA_SHIFT
+                            | r << PixelBuffer.RED_SHIFT
+                            | g << PixelBuffer.GREEN_SHIFT | b;
+                    }
+                }
+            }
+        });
+        return out;
+    } //boxReduce
+
+    /**
+     * Resize with a filter in two passes.  The pass order is chosen to
+     * do the fewer multiplications.
+     * @param src the pixels
+     * @param sw width of the source
+     * @param sh height of the source
+     * @param w width of the result
+     * @param h height of the result
+     * @param method BILINEAR, BICUBIC or LANCZOS
+     * @return the result pixels
+     */
+    private static int[] resample(final int[] src, final int sw,
+                                  final int sh, final int w, final int h,
+                                  final int method) {
+        final Weights wx = new Weights(sw, w, method);
+        final Weights wy = new Weights(sh, h, method);
+        long rowsFirst = (long) sh * w * wx.taps + (long) h * w * wy.taps;
+        long colsFirst = (long) h * sw * wy.taps + (long) h * w * wx.taps;
+        if (rowsFirst <= colsFirst) {
+            int[] tmp = horizontal(src, sw, sh, w, wx);
+            return vertical(tmp, w, 0, h, 0, wy);
+        }
+        int[] tmp = vertical(src, sw, 0, h, 0, wy);
+        return horizontal(tmp, sw, h, w, wx);
+    } //resample
+
+    /**
+     * Resample every row to a new width.
+     * @param src the pixels
+     * @param sw width of the source
+     * @param rows number of rows
+     * @param w width of the result
+     * @param wt weights for each output column
+     * @return the result pixels
+     */
+    private static int[] horizontal(final int[] src, final int sw,
+                                    final int rows, final int w,
+                                    final Weights wt) {
+        final int[] out = new int[w * rows];
+        run(rows, w * wt.taps, new Rows() {
+            void rows(final int from, final int to) {
+                for (int y = from; y < to; y++) {
+                    int base = y * sw;
+                    int at = y * w;
+                    for (int x = 0; x < w; x++) {
+                        int sa = HALF;
+                        int sr = HALF;
+                        int sg = HALF;
+                        int sb = HALF;
+                        int first = base + wt.start[x];
+                        int k = x * wt.taps;
+                        for (int t = 0; t < wt.count[x]; t++) {
+                            int p = src[first + t];
+                            int c = wt.weight[k + t];
+                            sa += c * (p >>> PixelBuffer.ALPHA_SHIFT);
+                            sr += c * ((p >> PixelBuffer.RED_SHIFT)
+                                       & PixelBuffer.MASK);
+                            sg += c * ((p >> PixelBuffer.GREEN_SHIFT)
+                                       & PixelBuffer.MASK);
+                            sb += c * (p & PixelBuffer.MASK);
+                        }
+                        out[at + x] = pack(sa, sr, sg, sb);
+                    }
+                }
+            }
+        });
+        return out;
+    } //horizontal
+
+    /**
+     * Resample every column to a new height, for a range of output
+     * rows.
+     * @param src the pixels, starting at source row srcTop
+     * @param w width of the image
+     * @param first first output row
+     * @param end one past the last output row
+     * @param srcTop source row of the first row of src
+     * @param wt weights for each output row
+     * @return the result pixels, starting at output row first
+     */
+    private static int[] vertical(final int[] src, final int w,
+                                  final int first, final int end,
+                                  final int srcTop, final Weights wt) {
+        final int[] out = new int[w * (end - first)];
+        run(end - first, w * wt.taps, new Rows() {
+            void rows(final int from, final int to) {
+                int[] sa = new int[w];
+                int[] sr = new int[w];
+                int[] sg = new int[w];
+                int[] sb = new int[w];
+                for (int y = from; y < to; y++) {
+                    Arrays.fill(sa, HALF);
+                    Arrays.fill(sr, HALF);
+                    Arrays.fill(sg, HALF);
+                    Arrays.fill(sb, HALF);
+                    int oy = first + y;
+                    int k = oy * wt.taps;
+                    for (int t = 0; t < wt.count[oy]; t++) {
+                        int base = (wt.start[oy] - srcTop + t) * w;
+                        int c = wt.weight[k + t];
+                        for (int x = 0; x < w; x++) {
+                            int p = src[base + x];
+                            sa[x] += c * (p >>> PixelBuffer.ALPHA_SHIFT);
+                            sr[x] += c * ((p >> PixelBuffer.RED_SHIFT)
+                                          & PixelBuffer.MASK);
+                            sg[x] += c * ((p >> PixelBuffer.GREEN_SHIFT)
+                                          & PixelBuffer.MASK);
+                            sb[x] += c * (p & PixelBuffer.MASK);
+                        }
+                    }
+                    int at = y * w;
+                    for (int x = 0; x < w; x++) {
+                        out[at + x] = pack(sa[x], sr[x], sg[x], sb[x]);
+                    }
+                }
+            }
+        });
+        return out;
+    } //vertical
+
+    /**
+     * Scale down, clamp and pack four weighted sums.
+     * @param a alpha sum
+     * @param r red sum
+     * @param g green sum
+     * @param b blue sum
+     * @return the packed ARGB pixel
+     */
+    private static int pack(final int a, final int r, final int g,
+                            final int b) {
+        return (clamp(a >> WEIGHT_BITS) << PixelBuffer.ALPHA_SHIFT)
+            | (clamp(r >> WEIGHT_BITS) << PixelBuffer.RED_SHIFT)
+            | (clamp(g >> WEIGHT_BITS) << PixelBuffer.GREEN_SHIFT)
+            | clamp(b >> WEIGHT_BITS);
+    }
+
+    /**
+     * Limit a channel value to 0 to 255.
+     * @param v the value
+     * @return the nearest value from 0 to 255
+     */
+    private static int clamp(final int v) {
+        return Math.max(0, Math.min(MAX_VALUE, v));
+    }
+
+    /**
+     * Value of a filter.
+     * @param method BILINEAR, BICUBIC or LANCZOS
+     * @param x distance from the center, in source pixels
+     * @return the weight
+     */
+    private static double kernel(final int method, final double x) {
+        double d = Math.abs(x);
+        switch (method) {
+            case BILINEAR:
+                return d < 1 ? 1 - d : 0;
+            case BICUBIC:
+                if (d < 1) {
+                    return ((CUBIC_A + 2) * d - (CUBIC_A + C3)) * d * d + 1;
+                }
+                if (d < 2) {
+                    return ((CUBIC_A * d - C5 * CUBIC_A) * d + C8 * CUBIC_A)
+                        * d - C4 * CUBIC_A;
+                }
+                return 0;
+            default:
+                if (d == 0) {
+                    return 1;
+                }
+                if (d >= LANCZOS_LOBES) {
+                    return 0;
+                }
+                double px = Math.PI * d;
+                return LANCZOS_LOBES * Math.sin(px)
+                    * Math.sin(px / LANCZOS_LOBES) / (px * px);
+        }
+    } //kernel
+
+    /**
+     * Half width of a filter.
+     * @param method BILINEAR, BICUBIC or LANCZOS
+     * @return the distance beyond which the filter is 0
+     */
+    private static double support(final int method) {
+        switch (method) {
+            case BILINEAR:
+                return 1;
+            case BICUBIC:
+                return 2;
+            default:
+                return LANCZOS_LOBES;
+        }
+    }
+
+    /** Fixed-point weights of a one-dimensional resampling. */
+    private static final class Weights {
+        /** Largest number of weights of any output pixel. */
+        private final int taps;
+        /** First source pixel of each output pixel. */
+        private final int[] start;
+        /** Number of source pixels of each output pixel. */
+        private final int[] count;
+        /** The weights, taps per output pixel. */
+        private final int[] weight;
+
+        /**
+         * Compute the weights.  Each output pixel's weights add up to
+         * exactly one; taps that would fall outside the source are
+         * dropped.
+         * @param in number of source pixels
+         * @param out number of output pixels
+         * @param method BILINEAR, BICUBIC or LANCZOS
+         */
+        Weights(final int in, final int out, final int method) {
+            double scale = (double) in / out;
+            double stretch = Math.max(scale, 1.0);
+            double reach = support(method) * stretch;
+            taps = (int) Math.ceil(reach) * 2 + 1;
+            start = new int[out];
+            count = new int[out];
+            weight = new int[out * taps];
+            double[] real = new double[taps];
+            for (int x = 0; x < out; x++) {
+                double center = (x + 0.5) * scale - 0.5;
+                int first =
+                    Math.max(0, (int) Math.floor(center - reach) + 1);
+                int last =
+                    Math.min(in - 1, (int) Math.ceil(center + reach) - 1);
+                if (last < first) {
+                    first = Math.min(in - 1, Math.max(0, (int) center));
+                    last = first;
+                }
+                int n = Math.min(taps, last - first + 1);
+                double sum = 0;
+                for (int t = 0; t < n; t++) {
+                    real[t] = kernel(method, (first + t - center) / stretch);
+                    sum += real[t];
+                }
+                if (sum == 0) {
+                    real[0] = 1;
+                    sum = 1;
+                    n = 1;
+                }
+                int fixedSum = 0;
+                int big = 0;
+                for (int t = 0; t < n; t++) {
+                    int c = (int) Math.round(real[t] / sum * ONE);
+                    weight[x * taps + t] = c;
+                    fixedSum += c;
+                    if (c > weight[x * taps + big]) {
+                        big = t;
+                    }
+                }
+                weight[x * taps + big] += ONE - fixedSum;
+                start[x] = first;
+                count[x] = n;
+            }
+        } //Weights
+    } //Weights
+
+    /**
+     * Run a task over a range of output rows, split over the
+     * common ForkJoinPool.  The work is counted as done on the calling
+     * thread's Progress, if any, and the run stops between bands once
+     * it is cancelled.
+     * @param rows number of rows
+     * @param work cost of one row, in multiplications or pixels
+     * @param task the task
+     */
+    private static void run(final int rows, final long work,
+                            final Rows task) {
+        long perBand = MIN_PIXELS / Math.max(1, work);
+        int band = (int) Math.max(1, Math.min(rows, perBand));
+        Progress progress = Progress.current();
+        if (progress != null) {
+            progress.check();
+            progress.addTotal(rows * work);
+        }
+        ForkJoinPool.commonPool().invoke(
+            new Band(task, 0, rows, band, work, progress));
+    }
+
+    /** Work on a range of output rows. */
+    private abstract static class Rows {
+        /**
+         * Process some rows.
+         * @param from first row
+         * @param to one past the last row
+         */
+        abstract void rows(int from, int to);
+    }
+
+    /** A range of rows, split in two until small. */
+    private static final class Band extends RecursiveAction {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+        /** The work to do. */
+        private final transient Rows task;
+        /** First row. */
+        private final int from;
+        /** One past the last row. */
+        private final int to;
+        /** Largest number of rows to process without splitting. */
+        private final int band;
+        /** Cost of one row. */
+        private final long rowWork;
+        /** Progress of the run, or null. */
+        private final transient Progress progress;
+
+        /**
+         * Create a range.
+         * @param t the work to do
+         * @param first first row
+         * @param end one past the last row
+         * @param size largest number of rows to process without splitting
+         * @param work cost of one row
+         * @param p progress of the run, or null
+         */
+        Band(final Rows t, final int first, final int end, final int size,
+             final long work, final Progress p) {
+            task = t;
+            from = first;
+            to = end;
+            band = size;
+            rowWork = work;
+            progress = p;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= band) {
+                if (progress != null) {
+                    progress.check();
+                }
+                task.rows(from, to);
+                if (progress != null) {
+                    progress.addDone((to - from) * rowWork);
+                }
+                return;
+            }
+            int mid = from + (to - from) / 2;
+            invokeAll(new Band(task, from, mid, band, rowWork, progress),
+                      new Band(task, mid, to, band, rowWork, progress));
+        }
+    } //Band
+} //Resampler
@@ -0,0 +1,139 @@
+package imagelab;
+
+/**
+ * A band of consecutive image rows of packed ARGB pixels, as seen by a
+ * {@link StreamingFilter}.  Rows are addressed by their row number in
+ * the whole image.  An input band also holds the neighborhood rows
+ * above and below it; asking for a row above the top or below the
+ * bottom of the image returns the nearest edge row.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class RowBand {
+    /** The pixels. */
+    private final int[] data;
+    /** Width of the image in pixels. */
+    private final int width;
+    /** Height of the whole image in pixels. */
+    private final int imageHeight;
+    /** Image row of the first row of the band proper. */
+    private final int firstRow;
+    /** Number of rows in the band proper. */
+    private final int rows;
+    /**
+     * Number of rows in the ring buffer holding an input band,
+     * or 0 if row firstRow is stored at the start of data.
+     */
+    private final int ringRows;
+
+    /**
+     * Create a band.
+     * @param pix the pixels
+     * @param w width of the image
+     * @param imgHeight height of the whole image
+     * @param first image row of the first row of the band
+     * @param count number of rows in the band
+     * @param ring rows in the ring buffer holding the band
+     *        (row y stored at (y % ring) * w), or 0 if row
+     *        <CODE>first</CODE> is stored at the start of pix
+     */
+    RowBand(final int[] pix, final int w, final int imgHeight,
+            final int first, final int count, final int ring) {
+        data = pix;
+        width = w;
+        imageHeight = imgHeight;
+        firstRow = first;
+        rows = count;
+        ringRows = ring;
+    }
+
+    /**
+     * Create a band stored row by row from the start of an array.
+     * @param pix the pixels
+     * @param w width of the image
+     * @param imgHeight height of the whole image
+     * @param first image row of the first row of the band
+     * @param count number of rows in the band
+     */
+    public RowBand(final int[] pix, final int w, final int imgHeight,
+                   final int first, final int count) {
+        this(pix, w, imgHeight, first, count, 0);
+    }
+
+    /**
+     * Retrieve the width of the image.
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Retrieve the height of the whole image.
+     * @return height in pixels
+     */
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    /**
+     * Retrieve the image row of the first row of the band.
+     * @return the row
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * Retrieve the number of rows in the band (not counting
+     * neighborhood rows).
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Retrieve the array holding the pixels (not a copy).
+     * Use {@link #offsetOf(int)} to find a row in it.
+     * @return the pixels
+     */
+    public int[] getData() {
+        return data;
+    }
+
+    /**
+     * Position in {@link #getData()} of the first pixel of an image row.
+     * Rows outside the image are clamped to the nearest edge row.
+     * @param row image row
+     * @return offset of the row
+     */
+    public int offsetOf(final int row) {
+        int y = Math.max(0, Math.min(imageHeight - 1, row));
+        if (ringRows > 0) {
+            return (y % ringRows) * width;
+        }
+        return (y - firstRow) * width;
+    } //offsetOf
+
+    /**
+     * Retrieve a pixel.
+     * @param col image column
+     * @param row image row
+     * @return the packed ARGB pixel
+     */
+    public int get(final int col, final int row) {
+        return data[offsetOf(row) + col];
+    }
+
+    /**
+     * Store a pixel.
+     * @param col image column
+     * @param row image row
+     * @param argb the packed ARGB pixel
+     */
+    public void set(final int col, final int row, final int argb) {
+        data[offsetOf(row) + col] = argb;
+    }
+} //RowBand
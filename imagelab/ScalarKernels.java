@@ -0,0 +1,61 @@
+package imagelab;
+
+/**
+ * Plain Java implementation of the pixel loops, used when the
+ * Vector API is not available.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+final class ScalarKernels implements PixelKernels {
+
+    @Override
+    public void luma(final int[] pix, final int from, final int to,
+                     final byte[] dst) {
+        for (int i = from; i < to; i++) {
+            dst[i] = (byte) Luminance.of(pix[i]);
+        }
+    }
+
+    @Override
+    public void unpack(final int[] pix, final int from, final int shift,
+                       final byte[] dst, final int to, final int count) {
+        for (int k = 0; k < count; k++) {
+            dst[to + k] = (byte) (pix[from + k] >> shift);
+        }
+    }
+
+    @Override
+    public void pack(final byte[] data, final int a, final int r,
+                     final int g, final int b, final int[] pix,
+                     final int to, final int count) {
+        for (int k = 0; k < count; k++) {
+            pix[to + k] =
+                ((data[a + k] & PixelBuffer.MASK) << PixelBuffer.ALPHA_SHIFT)
+                | ((data[r + k] & PixelBuffer.MASK) << PixelBuffer.RED_SHIFT)
+                | ((data[g + k] & PixelBuffer.MASK) << PixelBuffer.GREEN_SHIFT)
+                | (data[b + k] & PixelBuffer.MASK);
+        }
+    }
+
+    @Override
+    public void packGray(final short[] gray, final int from,
+                         final int[] pix, final int to, final int count) {
+        for (int k = 0; k < count; k++) {
+            int v = gray[from + k] & PixelBuffer.MASK;
+            pix[to + k] = PixelBuffer.OPAQUE | (v << PixelBuffer.RED_SHIFT)
+                | (v << PixelBuffer.GREEN_SHIFT) | v;
+        }
+    }
+
+    @Override
+    public void swapRedBlue(final int[] src, final int from,
+                            final int[] dst, final int to, final int count) {
+        for (int k = 0; k < count; k++) {
+            int p = src[from + k];
+            dst[to + k] = (p & PixelBuffer.ALPHA_GREEN)
+                | ((p >> PixelBuffer.RED_SHIFT) & PixelBuffer.MASK)
+                | ((p & PixelBuffer.MASK) << PixelBuffer.RED_SHIFT);
+        }
+    }
+} //ScalarKernels
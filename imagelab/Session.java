@@ -0,0 +1,149 @@
+package imagelab;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The state of one user's work: the open images, the one selected
+ * for the next command, and the filters on offer.
+ * Every part may be read and changed by any thread, so several
+ * sessions, or several workers within one, can run in the same JVM.
+ * Images are kept by their id ({@link ImgProvider#getid()}), which
+ * is unique within the JVM and grows in the order images are made.
+ * ImageLab shows one Session; a program without a user interface can
+ * make as many as it needs.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class Session {
+    /** The open images by id. */
+    private final ConcurrentNavigableMap<Integer, ImgProvider> images =
+        new ConcurrentSkipListMap<Integer, ImgProvider>();
+    /** The selected image, or null. */
+    private final AtomicReference<ImgProvider> active =
+        new AtomicReference<ImgProvider>();
+    /** The filters on offer, in menu order. */
+    private final List<StatelessFilter> filters =
+        new CopyOnWriteArrayList<StatelessFilter>();
+
+    /**
+     * Add an image to the open images.  Adding an image already open
+     * does nothing.
+     * @param ip the image
+     * @return ip
+     */
+    public ImgProvider add(final ImgProvider ip) {
+        if (ip == null) {
+            throw new IllegalArgumentException("Session: null image");
+        }
+        images.putIfAbsent(ip.getid(), ip);
+        return ip;
+    } //add
+
+    /**
+     * Close an image, deselecting it if it is selected.
+     * @param ip the image
+     * @return true if the image was open
+     */
+    public boolean remove(final ImgProvider ip) {
+        deselect(ip);
+        return images.remove(ip.getid(), ip);
+    } //remove
+
+    /**
+     * Find an open image.
+     * @param id the image's id
+     * @return the image, or null if no open image has that id
+     */
+    public ImgProvider get(final int id) {
+        return images.get(id);
+    }
+
+    /**
+     * Retrieve the open images.
+     * @return a snapshot of the open images, oldest first
+     */
+    public List<ImgProvider> getImages() {
+        return Collections.unmodifiableList(
+            new ArrayList<ImgProvider>(images.values()));
+    }
+
+    /**
+     * Retrieve the number of open images.
+     * @return the number of open images
+     */
+    public int size() {
+        return images.size();
+    }
+
+    /**
+     * Select an image, adding it to the open images if need be.
+     * @param ip the image, or null to select none
+     */
+    public void setActive(final ImgProvider ip) {
+        if (ip != null) {
+            add(ip);
+        }
+        active.set(ip);
+    } //setActive
+
+    /**
+     * Deselect an image if it is still the one selected.  Another
+     * image selected in the meantime stays selected.
+     * @param ip the image
+     * @return true if ip was selected
+     */
+    public boolean deselect(final ImgProvider ip) {
+        return ip != null && active.compareAndSet(ip, null);
+    }
+
+    /**
+     * Retrieve the selected image.
+     * @return the image, or null if none is selected
+     */
+    public ImgProvider getActive() {
+        return active.get();
+    }
+
+    /**
+     * Offer a filter.
+     * @param f the filter
+     */
+    public void addFilter(final StatelessFilter f) {
+        if (f == null) {
+            throw new IllegalArgumentException("Session: null filter");
+        }
+        filters.add(f);
+    } //addFilter
+
+    /**
+     * Retrieve the filters on offer.
+     * @return the filters, in the order they were added (read only)
+     */
+    public List<StatelessFilter> getFilters() {
+        return Collections.unmodifiableList(filters);
+    }
+
+    /**
+     * Filter the selected image; the result is opened and selected.
+     * Runs on the calling thread without displaying anything.
+     * @param f the filter
+     * @return the filtered image
+     * @throws IllegalStateException if no image is selected
+     */
+    public ImgProvider apply(final StatelessFilter f) {
+        ImgProvider source = getActive();
+        if (source == null) {
+            throw new IllegalStateException("Session: no image selected");
+        }
+        ImgProvider result = f.apply(source);
+        setActive(result);
+        return result;
+    } //apply
+} //Session
@@ -0,0 +1,30 @@
+package imagelab;
+
+/**
+ * A filter that returns its result instead of keeping it.
+ * Unlike an {@link ImageFilter}, which stores the image it made for
+ * {@link ImageFilter#getImgProvider()} to return, a StatelessFilter
+ * keeps nothing from one call to the next, so one instance may filter
+ * many images at once on different threads.  apply neither changes
+ * its input nor displays its result.
+ * Filters written as ImageFilters can be used through a
+ * {@link LegacyFilter}; {@link FilterLoader#toStateless(ImageFilter)}
+ * picks whichever applies.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public interface StatelessFilter {
+    /**
+     * Filter an image.  May be called by several threads at once.
+     * @param ip the image to be filtered (not changed)
+     * @return the filtered image
+     */
+    ImgProvider apply(ImgProvider ip);
+
+    /**
+     * Returns the label to be used in the Filter menu.
+     * @return the name of this filter
+     */
+    String getMenuLabel();
+}
@@ -0,0 +1,29 @@
+package imagelab;
+
+/**
+ * A filter that works on an image a band of rows at a time, so that
+ * it can process images of any height with memory proportional to
+ * the image width.  Each output row may depend on the input rows up to
+ * {@link #getNeighborhood()} rows above and below it.
+ * Streaming filters are run by a {@link BandPipeline}.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public interface StreamingFilter {
+    /**
+     * Number of input rows above and below each output row that
+     * the filter needs (0 for point and row-local operations).
+     * @return the vertical neighborhood radius
+     */
+    int getNeighborhood();
+
+    /**
+     * Compute one band of output rows.
+     * @param in the input rows from in.getFirstRow() - neighborhood
+     *        to in.getFirstRow() + in.getRows() - 1 + neighborhood
+     * @param out the rows to fill, with the same first row and
+     *        number of rows as in
+     */
+    void filterBand(RowBand in, RowBand out);
+}
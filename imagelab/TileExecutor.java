@@ -0,0 +1,231 @@
+package imagelab;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a {@link ParallelFilter} over an image on a ForkJoinPool.
+ * The image is split in halves, recursively, until the pieces are
+ * cache-sized tiles (or bands of rows), which are then filtered on
+ * whichever threads of the pool are free.  Filters with a non-zero
+ * radius are given a private copy of each tile with its halo, so that
+ * their inner loops need no border tests.
+ * If the calling thread's work is tracked by a {@link Progress}, the
+ * pixels of each tile are counted as done, and the run stops with a
+ * CancellationException at the next tile once it is cancelled.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class TileExecutor {
+    /** Default width and height of a tile, in pixels. */
+    public static final int DEFAULT_TILE_SIZE = 128;
+
+    /** Executor that uses the common ForkJoinPool. */
+    private static final TileExecutor COMMON =
+        new TileExecutor(ForkJoinPool.commonPool());
+
+    /** Per-thread buffer for copies of tiles with their halos. */
+    private static final ThreadLocal<int[]> SCRATCH =
+        new ThreadLocal<int[]>();
+
+    /** The threads to run pieces on. */
+    private final ForkJoinPool pool;
+    /** Width and height of a tile, in pixels. */
+    private int tileSize = DEFAULT_TILE_SIZE;
+
+    /**
+     * Create an executor.
+     * @param fjp the threads to run pieces on
+     */
+    public TileExecutor(final ForkJoinPool fjp) {
+        pool = fjp;
+    }
+
+    /**
+     * Retrieve the executor that uses the common ForkJoinPool,
+     * which has one thread per processor.
+     * @return the shared executor
+     */
+    public static TileExecutor getDefault() {
+        return COMMON;
+    }
+
+    /**
+     * Set the size of the tiles.  A band of rows holds about as many
+     * pixels as a tile.
+     * @param size width and height of a tile, in pixels
+     */
+    public void setTileSize(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException(
+                "TileExecutor: tile size must be positive");
+        }
+        tileSize = size;
+    }
+
+    /**
+     * Retrieve the size of the tiles.
+     * @return width and height of a tile, in pixels
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Filter an image.  A tiled image is filtered a band of rows at a
+     * time, each band read with getRadius() rows above and below it.
+     * @param filter the filter
+     * @param in the image to filter (not changed)
+     * @return a new ImageCore holding the result
+     */
+    public ImageCore apply(final ParallelFilter filter, final ImageCore in) {
+        return in.mapBands(filter.getRadius(), new BandMapper() {
+            public void map(final int[] src, final int[] dst,
+                            final int width, final int rows) {
+                run(filter, src, dst, width, rows);
+            }
+        });
+    } //apply
+
+    /**
+     * Filter an array of pixels.
+     * @param filter the filter
+     * @param src the input pixels, row by row
+     * @param dst the output pixels; may be src only if the filter's
+     *        radius is 0
+     * @param w width of the image
+     * @param h height of the image
+     * @throws java.util.concurrent.CancellationException if the
+     *         calling thread's Progress is cancelled
+     */
+    public void run(final ParallelFilter filter, final int[] src,
+                    final int[] dst, final int w, final int h) {
+        if (w == 0 || h == 0) {
+            return;
+        }
+        Progress progress = Progress.current();
+        if (progress != null) {
+            progress.check();
+            progress.addTotal((long) w * h);
+        }
+        pool.invoke(new Piece(filter, src, dst, w, h, 0, 0, w, h,
+                              progress));
+    } //run
+
+    /** A rectangle of the image to filter, split until it is small. */
+    private final class Piece extends RecursiveAction {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+        /** The filter. */
+        private final ParallelFilter filter;
+        /** The input pixels. */
+        private final int[] src;
+        /** The output pixels. */
+        private final int[] dst;
+        /** Width of the image. */
+        private final int imgWidth;
+        /** Height of the image. */
+        private final int imgHeight;
+        /** Image column of the piece's left edge. */
+        private final int x;
+        /** Image row of the piece's top edge. */
+        private final int y;
+        /** Width of the piece. */
+        private final int width;
+        /** Height of the piece. */
+        private final int height;
+        /** Progress of the run, or null. */
+        private final transient Progress progress;
+
+        /**
+         * Create a piece.
+         * @param f the filter
+         * @param s the input pixels
+         * @param d the output pixels
+         * @param iw width of the image
+         * @param ih height of the image
+         * @param left image column of the piece's left edge
+         * @param top image row of the piece's top edge
+         * @param pw width of the piece
+         * @param ph height of the piece
+         * @param p progress of the run, or null
+         */
+        Piece(final ParallelFilter f, final int[] s, final int[] d,
+              final int iw, final int ih, final int left, final int top,
+              final int pw, final int ph, final Progress p) {
+            filter = f;
+            src = s;
+            dst = d;
+            imgWidth = iw;
+            imgHeight = ih;
+            x = left;
+            y = top;
+            width = pw;
+            height = ph;
+            progress = p;
+        }
+
+        @Override
+        protected void compute() {
+            if (filter.getParallelism() == ParallelFilter.ROW_PARALLEL) {
+                int bandRows = Math.max(1, tileSize * tileSize / width);
+                if (height > bandRows) {
+                    int half = height / 2;
+                    invokeAll(piece(x, y, width, half),
+                              piece(x, y + half, width, height - half));
+                    return;
+                }
+            } else if (width > tileSize || height > tileSize) {
+                if (width >= height) {
+                    int half = width / 2;
+                    invokeAll(piece(x, y, half, height),
+                              piece(x + half, y, width - half, height));
+                } else {
+                    int half = height / 2;
+                    invokeAll(piece(x, y, width, half),
+                              piece(x, y + half, width, height - half));
+                }
+                return;
+            }
+            if (progress != null) {
+                progress.check();
+            }
+            int start = y * imgWidth + x;
+            int r = filter.getRadius();
+            HaloTile in;
+            if (r == 0) {
+                in = new HaloTile(src, start, imgWidth, x, y,
+                                  width, height, 0);
+            } else {
+                int need = (width + 2 * r) * (height + 2 * r);
+                int[] buf = SCRATCH.get();
+                if (buf == null || buf.length < need) {
+                    buf = new int[need];
+                    SCRATCH.set(buf);
+                }
+                in = HaloTile.copyOf(src, imgWidth, imgHeight, x, y,
+                                     width, height, r, buf);
+            }
+            filter.filterTile(in, new HaloTile(dst, start, imgWidth, x, y,
+                                               width, height, 0));
+            if (progress != null) {
+                progress.addDone((long) width * height);
+            }
+        } //compute
+
+        /**
+         * Create a smaller piece of the same image.
+         * @param left image column of the piece's left edge
+         * @param top image row of the piece's top edge
+         * @param pw width of the piece
+         * @param ph height of the piece
+         * @return the piece
+         */
+        private Piece piece(final int left, final int top,
+                            final int pw, final int ph) {
+            return new Piece(filter, src, dst, imgWidth, imgHeight,
+                             left, top, pw, ph, progress);
+        }
+    } //Piece
+} //TileExecutor
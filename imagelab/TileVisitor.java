@@ -0,0 +1,16 @@
+package imagelab;
+
+/**
+ * Processes a {@link TiledImage} one tile at a time.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public interface TileVisitor {
+    /**
+     * Process one tile.  Changes made through the tile are
+     * written to the image.
+     * @param tile the tile
+     */
+    void visit(ImageTile tile);
+}
@@ -0,0 +1,565 @@
+package imagelab;
+
+import java.awt.Rectangle;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An image whose packed ARGB pixels live in a memory-mapped file
+ * rather than on the heap, so images larger than the heap can be
+ * processed.  The file is divided into fixed-size square tiles; tiles
+ * are mapped when first used and a bounded number of recently used
+ * mappings are cached.  Filters can work through the image with
+ * {@link #forEachTile(TileVisitor)}.
+ * <p>
+ * A tile dropped from the cache is unmapped at once, or as soon as
+ * the row copy or visit using it ends, so the cache bounds the address
+ * space and memory the mappings use.  Tiles obtained from
+ * {@link #getTile(int, int)} may be kept by the caller, so they are
+ * never unmapped explicitly; the garbage collector releases them once
+ * the caller drops them, even after the image is closed.  Unmapping
+ * uses the JDK's unsupported buffer cleaner; where it is missing,
+ * dropped mappings are released by the garbage collector too.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class TiledImage implements BandConsumer, Closeable {
+    /** Default width and height of a tile in pixels. */
+    public static final int DEFAULT_TILE_SIZE = 256;
+    /** Default number of tile mappings kept in the cache. */
+    public static final int DEFAULT_CACHE_TILES = 256;
+    /** Bytes per packed ARGB pixel. */
+    private static final int BYTES_PER_PIXEL = 4;
+    /** Most pixels in one band of rows copied to the heap. */
+    private static final int MAX_BAND_PIXELS = 1 << 22;
+    /** The JDK's Unsafe, or null if it cannot be reached. */
+    private static final Object UNSAFE;
+    /** Unsafe.invokeCleaner(ByteBuffer), or null. */
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method cleaner = null;
+        try {
+            Class<?> c = Class.forName("sun.misc.Unsafe");
+            Field f = c.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            unsafe = f.get(null);
+            cleaner = c.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            cleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = cleaner;
+    }
+
+    /** Width of the image in pixels. */
+    private final int width;
+    /** Height of the image in pixels. */
+    private final int height;
+    /** Width and height of a tile in pixels. */
+    private final int tileSize;
+    /** Number of tile columns. */
+    private final int tilesAcross;
+    /** Number of tile rows. */
+    private final int tilesDown;
+    /** The backing file. */
+    private final File file;
+    /** true if the backing file is deleted on close. */
+    private final boolean temporary;
+    /** Channel used to map tiles of the backing file. */
+    private final FileChannel channel;
+    /** Recently used tiles, least recently used first. */
+    private final Map<Integer, Mapping> cache;
+
+    /**
+     * Create a tiled image backed by a temporary file that is
+     * deleted when the image is closed.
+     * @param w width in pixels
+     * @param h height in pixels
+     * @throws IOException if the backing file cannot be created
+     */
+    public TiledImage(final int w, final int h) throws IOException {
+        this(w, h, DEFAULT_TILE_SIZE, DEFAULT_CACHE_TILES, null);
+    }
+
+    /**
+     * Create a tiled image.
+     * @param w width in pixels
+     * @param h height in pixels
+     * @param size width and height of a tile in pixels
+     * @param cacheTiles number of tile mappings to keep
+     * @param backing the backing file, or null for a temporary file
+     * @throws IOException if the backing file cannot be created
+     */
+    public TiledImage(final int w, final int h, final int size,
+                      final int cacheTiles, final File backing)
+        throws IOException {
+        if (w <= 0 || h <= 0 || size <= 0 || cacheTiles <= 0) {
+            throw new IllegalArgumentException("TiledImage: bad dimensions "
+                + w + "x" + h + " tile " + size + " cache " + cacheTiles);
+        }
+        width = w;
+        height = h;
+        tileSize = size;
+        tilesAcross = (w + size - 1) / size;
+        tilesDown = (h + size - 1) / size;
+        temporary = backing == null;
+        if (temporary) {
+            file = File.createTempFile("imagelab", ".tiles");
+            file.deleteOnExit();
+        } else {
+            file = backing;
+        }
+        channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        final int maxTiles = cacheTiles;
+        cache = new LinkedHashMap<Integer, Mapping>(maxTiles, 1f, true) {
+            private static final long serialVersionUID = 11L;
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<Integer, Mapping> eldest) {
+                if (size() <= maxTiles) {
+                    return false;
+                }
+                Mapping m = eldest.getValue();
+                m.evicted = true;
+                if (m.pins == 0 && !m.shared) {
+                    m.unmap();
+                }
+                return true;
+            }
+        };
+    } //constructor
+
+    /**
+     * Decode an image file into a new tiled image a band of tiles
+     * at a time, so the heap never holds more than one band of pixels.
+     * @param imageFile the image file
+     * @param region the part of the image to load; null for all of it
+     * @param subsample keep one pixel in every subsample columns and rows
+     * @return the tiled image
+     * @throws IOException if the file cannot be read or decoded
+     */
+    public static TiledImage load(
+        final File imageFile, final Rectangle region, final int subsample)
+        throws IOException {
+        Rectangle src = new Rectangle(ImageDecoder.size(imageFile));
+        if (region != null) {
+            src = src.intersection(region);
+        }
+        int w = (src.width + subsample - 1) / subsample;
+        int h = (src.height + subsample - 1) / subsample;
+        final TiledImage tiled = new TiledImage(w, h);
+        try {
+            ImageDecoder.decodeBands(imageFile, src, subsample,
+                tiled.getTileSize(), tiled);
+        } catch (IOException | RuntimeException e) {
+            tiled.close();
+            throw e;
+        }
+        return tiled;
+    } //load
+
+    /**
+     * Retrieve the width of the image.
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Retrieve the height of the image.
+     * @return height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Retrieve the width and height of a tile.
+     * @return tile size in pixels
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Retrieve the number of tile columns.
+     * @return tiles across the image
+     */
+    public int getTilesAcross() {
+        return tilesAcross;
+    }
+
+    /**
+     * Retrieve the number of tile rows.
+     * @return tiles down the image
+     */
+    public int getTilesDown() {
+        return tilesDown;
+    }
+
+    /**
+     * Retrieve a tile, mapping it if it is not in the cache.
+     * The tile stays mapped for as long as the caller keeps it.
+     * @param tx tile column
+     * @param ty tile row
+     * @return the tile
+     */
+    public synchronized ImageTile getTile(final int tx, final int ty) {
+        Mapping m = map(tx, ty);
+        m.shared = true;
+        return m.tile;
+    } //getTile
+
+    /**
+     * Retrieve a tile and keep it mapped until {@link #unpin(Mapping)}.
+     * @param tx tile column
+     * @param ty tile row
+     * @return the tile's mapping
+     */
+    private synchronized Mapping pin(final int tx, final int ty) {
+        Mapping m = map(tx, ty);
+        m.pins++;
+        return m;
+    } //pin
+
+    /**
+     * Release a tile obtained from {@link #pin(int, int)}, unmapping it
+     * if it has left the cache meanwhile.
+     * @param m the tile's mapping
+     */
+    private synchronized void unpin(final Mapping m) {
+        m.pins--;
+        if (m.pins == 0 && m.evicted && !m.shared) {
+            m.unmap();
+        }
+    } //unpin
+
+    /**
+     * Find a tile in the cache, mapping it if it is not there.
+     * @param tx tile column
+     * @param ty tile row
+     * @return the tile's mapping
+     */
+    private Mapping map(final int tx, final int ty) {
+        if (tx < 0 || ty < 0 || tx >= tilesAcross || ty >= tilesDown) {
+            throw new IndexOutOfBoundsException(
+                "TiledImage: no tile (" + tx + ", " + ty + ")");
+        }
+        if (!channel.isOpen()) {
+            throw new IllegalStateException("TiledImage: closed");
+        }
+        Integer key = ty * tilesAcross + tx;
+        Mapping m = cache.get(key);
+        if (m == null) {
+            long tileBytes = (long) tileSize * tileSize * BYTES_PER_PIXEL;
+            MappedByteBuffer mapped;
+            try {
+                mapped = channel.map(FileChannel.MapMode.READ_WRITE,
+                    key * tileBytes, tileBytes);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(
+                    "TiledImage: cannot map tile " + key, ioe);
+            }
+            mapped.order(ByteOrder.nativeOrder());
+            int left = tx * tileSize;
+            int top = ty * tileSize;
+            m = new Mapping(mapped, new ImageTile(left, top,
+                Math.min(tileSize, width - left),
+                Math.min(tileSize, height - top),
+                tileSize, mapped.asIntBuffer()));
+            cache.put(key, m);
+        }
+        return m;
+    } //map
+
+    /**
+     * Retrieve the tile holding a pixel.
+     * @param x image column
+     * @param y image row
+     * @return the tile
+     */
+    public ImageTile tileAt(final int x, final int y) {
+        return getTile(x / tileSize, y / tileSize);
+    }
+
+    /**
+     * Retrieve a pixel.
+     * @param x image column
+     * @param y image row
+     * @return the packed ARGB pixel
+     */
+    public int getPixel(final int x, final int y) {
+        Mapping m = pin(x / tileSize, y / tileSize);
+        try {
+            return m.tile.get(x % tileSize, y % tileSize);
+        } finally {
+            unpin(m);
+        }
+    } //getPixel
+
+    /**
+     * Store a pixel.
+     * @param x image column
+     * @param y image row
+     * @param argb the packed ARGB pixel
+     */
+    public void setPixel(final int x, final int y, final int argb) {
+        Mapping m = pin(x / tileSize, y / tileSize);
+        try {
+            m.tile.set(x % tileSize, y % tileSize, argb);
+        } finally {
+            unpin(m);
+        }
+    } //setPixel
+
+    /**
+     * Copy part of an image row into an array.
+     * @param y image row
+     * @param x first image column
+     * @param count number of pixels
+     * @param dst destination
+     * @param off position in dst of the first pixel
+     */
+    public void getRow(final int y, final int x, final int count,
+                       final int[] dst, final int off) {
+        int done = 0;
+        while (done < count) {
+            int col = x + done;
+            int inTile = Math.min(count - done, tileSize - col % tileSize);
+            Mapping m = pin(col / tileSize, y / tileSize);
+            try {
+                m.tile.getRow(y % tileSize, col % tileSize, inTile,
+                    dst, off + done);
+            } finally {
+                unpin(m);
+            }
+            done += inTile;
+        }
+    } //getRow
+
+    /**
+     * Copy pixels from an array into part of an image row.
+     * @param y image row
+     * @param x first image column
+     * @param count number of pixels
+     * @param src source
+     * @param off position in src of the first pixel
+     */
+    public void setRow(final int y, final int x, final int count,
+                       final int[] src, final int off) {
+        int done = 0;
+        while (done < count) {
+            int col = x + done;
+            int inTile = Math.min(count - done, tileSize - col % tileSize);
+            Mapping m = pin(col / tileSize, y / tileSize);
+            try {
+                m.tile.setRow(y % tileSize, col % tileSize, inTile,
+                    src, off + done);
+            } finally {
+                unpin(m);
+            }
+            done += inTile;
+        }
+    } //setRow
+
+    /**
+     * Store a band of full-width rows, so that a TiledImage can be
+     * the sink of a decoder or a {@link BandPipeline}.
+     * @param firstRow image row of the first row in the band
+     * @param rows number of rows in the band
+     * @param bandWidth number of pixels in each row
+     * @param pix the pixels
+     */
+    public void consume(final int firstRow, final int rows,
+                        final int bandWidth, final int[] pix) {
+        for (int r = 0; r < rows; r++) {
+            setRow(firstRow + r, 0, bandWidth, pix, r * bandWidth);
+        }
+    } //consume
+
+    /**
+     * Visit every tile, row by row from the top left.
+     * @param visitor processes each tile
+     */
+    public void forEachTile(final TileVisitor visitor) {
+        for (int ty = 0; ty < tilesDown; ty++) {
+            for (int tx = 0; tx < tilesAcross; tx++) {
+                Mapping m = pin(tx, ty);
+                try {
+                    visitor.visit(m.tile);
+                } finally {
+                    unpin(m);
+                }
+            }
+        }
+    } //forEachTile
+
+    /**
+     * Retrieve the number of full-width rows to work on at a time:
+     * a row of tiles, or fewer rows if the image is very wide.
+     * @return rows per band, at least 1
+     */
+    public int getBandHeight() {
+        return Math.max(1, Math.min(tileSize, MAX_BAND_PIXELS / width));
+    }
+
+    /**
+     * Compute a new tiled image a band of full-width rows at a time.
+     * Each band is copied to the heap together with margin rows above
+     * and below it, passed to the mapper, and the result for the band
+     * stored in the new image.  The heap holds only two bands.
+     * @param margin rows of context the mapper needs on each side
+     * @param mapper computes each band
+     * @return the new image, with the same size and tile size; the
+     *         caller closes it
+     * @throws IOException if the new image's file cannot be created
+     */
+    public TiledImage mapBands(final int margin, final BandMapper mapper)
+        throws IOException {
+        int band = getBandHeight();
+        int span = (int) Math.min(height, band + 2L * margin);
+        int[] src = new int[width * span];
+        int[] dst = new int[width * span];
+        TiledImage out = new TiledImage(width, height, tileSize,
+                                        DEFAULT_CACHE_TILES, null);
+        boolean done = false;
+        try {
+            for (int top = 0; top < height; top += band) {
+                Progress.checkCurrent();
+                int count = Math.min(band, height - top);
+                int first = Math.max(0, top - margin);
+                int rows = Math.min(height, top + count + margin) - first;
+                for (int r = 0; r < rows; r++) {
+                    getRow(first + r, 0, width, src, r * width);
+                }
+                mapper.map(src, dst, width, rows);
+                for (int r = 0; r < count; r++) {
+                    out.setRow(top + r, 0, width, dst,
+                               (top - first + r) * width);
+                }
+            }
+            done = true;
+        } finally {
+            if (!done) {
+                out.close();
+            }
+        }
+        return out;
+    } //mapBands
+
+    /**
+     * Copy a rectangle of the image into a new in-memory ImgProvider.
+     * @param r the rectangle, clipped to the image's bounds
+     * @return an ImgProvider holding the pixels
+     */
+    public ImgProvider toImgProvider(final Rectangle r) {
+        Rectangle src = r.intersection(new Rectangle(width, height));
+        int[] pix = new int[src.width * src.height];
+        for (int row = 0; row < src.height; row++) {
+            getRow(src.y + row, src.x, src.width, pix, row * src.width);
+        }
+        ImgProvider ip = new ImgProvider();
+        ip.setPixels(pix, src.width, src.height);
+        return ip;
+    } //toImgProvider
+
+    /**
+     * Copy one pixel in every factor columns and rows into a new
+     * in-memory ImgProvider, such as a preview of the image.
+     * @param factor the subsampling factor, at least 1
+     * @return an ImgProvider holding the pixels
+     */
+    public ImgProvider toImgProvider(final int factor) {
+        int w = (width + factor - 1) / factor;
+        int h = (height + factor - 1) / factor;
+        int[] row = new int[width];
+        int[] pix = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            getRow(y * factor, 0, width, row, 0);
+            for (int x = 0; x < w; x++) {
+                pix[y * w + x] = row[x * factor];
+            }
+        }
+        ImgProvider ip = new ImgProvider();
+        ip.setPixels(pix, w, h);
+        return ip;
+    } //toImgProvider
+
+    /**
+     * Unmap the tiles and close the backing file.
+     * A temporary backing file is deleted.  Tiles still in use by
+     * another thread or handed out by getTile are left for the
+     * garbage collector.
+     * @throws IOException if the file cannot be closed
+     */
+    public synchronized void close() throws IOException {
+        for (Mapping m : cache.values()) {
+            if (m.pins == 0 && !m.shared) {
+                m.unmap();
+            }
+        }
+        cache.clear();
+        channel.close();
+        if (temporary) {
+            Files.deleteIfExists(file.toPath());
+        }
+    } //close
+
+    /** A mapped tile and what is using it. */
+    private static final class Mapping {
+        /** The mapped region of the file. */
+        private final MappedByteBuffer buffer;
+        /** The tile over the region. */
+        private final ImageTile tile;
+        /** Number of copies and visits using the tile. */
+        private int pins;
+        /** true once the tile has been handed out by getTile. */
+        private boolean shared;
+        /** true once the tile has left the cache. */
+        private boolean evicted;
+        /** true once the region has been unmapped. */
+        private boolean unmapped;
+
+        /**
+         * Record a new mapping.
+         * @param b the mapped region
+         * @param t the tile over it
+         */
+        Mapping(final MappedByteBuffer b, final ImageTile t) {
+            buffer = b;
+            tile = t;
+        }
+
+        /** Unmap the region, if the JDK allows it. */
+        void unmap() {
+            if (unmapped || INVOKE_CLEANER == null) {
+                return;
+            }
+            unmapped = true;
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                System.err.println("TiledImage: cannot unmap: " + e);
+            }
+        } //unmap
+    } //Mapping
+} //TiledImage
@@ -0,0 +1,252 @@
+package imagelab;
+
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Vector;
+
+/**
+ * Shows a {@link TiledImage} to ImageIO as a RenderedImage, so that an
+ * image larger than the heap can be written in any format.  Its tiles
+ * are full-width bands of rows, copied from the TiledImage when asked
+ * for.  Writers that ask for rows (PNG, BMP, TIFF) get copies of just
+ * those rows; writers that ask for the whole image (JPEG, GIF) get a
+ * raster whose pixels are read from the tiles a row at a time as they
+ * are used.  Either way memory use does not depend on the image
+ * height.  A view is meant for one writer at a time.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+final class TiledRenderedImage implements RenderedImage {
+    /** The image. */
+    private final TiledImage tiles;
+    /** Packed ARGB, or packed RGB if alpha is dropped. */
+    private final DirectColorModel model;
+    /** Layout of a band. */
+    private final SampleModel layout;
+
+    /**
+     * Create a view of a tiled image.
+     * @param t the image
+     * @param alpha true to keep alpha, false to write opaque RGB
+     */
+    TiledRenderedImage(final TiledImage t, final boolean alpha) {
+        tiles = t;
+        if (alpha) {
+            model = (DirectColorModel) ColorModel.getRGBdefault();
+        } else {
+            model = new DirectColorModel(PixelBuffer.RGB_BITS,
+                PixelBuffer.RED_MASK, PixelBuffer.GREEN_MASK,
+                PixelBuffer.BLUE_MASK);
+        }
+        layout = new SinglePixelPackedSampleModel(DataBuffer.TYPE_INT,
+            t.getWidth(), t.getTileSize(), model.getMasks());
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(final String name) {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return model;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return layout;
+    }
+
+    @Override
+    public int getWidth() {
+        return tiles.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return tiles.getHeight();
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return (getHeight() + getTileHeight() - 1) / getTileHeight();
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return getWidth();
+    }
+
+    @Override
+    public int getTileHeight() {
+        return tiles.getTileSize();
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+
+    /**
+     * Copy a band of rows.
+     * @param tx must be 0
+     * @param ty number of the band
+     * @return a raster holding the band
+     */
+    @Override
+    public Raster getTile(final int tx, final int ty) {
+        if (tx != 0 || ty < 0 || ty >= getNumYTiles()) {
+            throw new IllegalArgumentException(
+                "TiledRenderedImage: no tile " + tx + "," + ty);
+        }
+        int top = ty * getTileHeight();
+        return getData(new Rectangle(0, top, getWidth(),
+            Math.min(getTileHeight(), getHeight() - top)));
+    }
+
+    /**
+     * Retrieve the whole image as a raster whose pixels are read from
+     * the tiles a row at a time, as they are used.
+     * @return a raster over the whole image
+     */
+    @Override
+    public Raster getData() {
+        return Raster.createRaster(
+            layout.createCompatibleSampleModel(getWidth(), getHeight()),
+            new Rows(), new Point(0, 0));
+    }
+
+    /**
+     * Copy part of the image into a raster of its own.
+     * @param r the part to copy
+     * @return a raster holding just that part
+     */
+    @Override
+    public Raster getData(final Rectangle r) {
+        WritableRaster wr = model.createCompatibleWritableRaster(
+            r.width, r.height);
+        return copyData(wr.createWritableTranslatedChild(r.x, r.y));
+    }
+
+    /**
+     * Copy the part of the image a raster covers into it.
+     * @param raster the raster to fill, or null for a new one covering
+     *        the whole image
+     * @return the filled raster
+     */
+    @Override
+    public WritableRaster copyData(final WritableRaster raster) {
+        WritableRaster wr = raster;
+        if (wr == null) {
+            wr = model.createCompatibleWritableRaster(getWidth(),
+                                                      getHeight());
+        }
+        Rectangle r = wr.getBounds().intersection(
+            new Rectangle(0, 0, getWidth(), getHeight()));
+        if (r.isEmpty()) {
+            return wr;
+        }
+        int[] row = new int[r.width];
+        int[] samples = new int[r.width * model.getNumComponents()];
+        int[] masks = model.getMasks();
+        int[] shifts = {PixelBuffer.RED_SHIFT, PixelBuffer.GREEN_SHIFT,
+                        0, PixelBuffer.ALPHA_SHIFT};
+        for (int y = r.y; y < r.y + r.height; y++) {
+            tiles.getRow(y, r.x, r.width, row, 0);
+            int s = 0;
+            for (int x = 0; x < r.width; x++) {
+                for (int c = 0; c < masks.length; c++) {
+                    samples[s++] = (row[x] & masks[c]) >>> shifts[c];
+                }
+            }
+            wr.setPixels(r.x, y, r.width, 1, samples);
+        }
+        return wr;
+    } //copyData
+
+    /** Pixels of the whole image, fetched from the tiles a row at a time. */
+    private final class Rows extends DataBuffer {
+        /** The row most recently fetched. */
+        private final int[] row = new int[getWidth()];
+        /** Number of the row in row, or -1. */
+        private int current = -1;
+
+        /** Create a buffer over the whole image. */
+        Rows() {
+            super(DataBuffer.TYPE_INT, getWidth() * getHeight());
+        }
+
+        @Override
+        public int getElem(final int bank, final int i) {
+            int width = row.length;
+            int y = i / width;
+            if (y != current) {
+                tiles.getRow(y, 0, width, row, 0);
+                current = y;
+            }
+            return row[i - y * width];
+        }
+
+        /**
+         * The view is read only.
+         * @param bank ignored
+         * @param i ignored
+         * @param val ignored
+         */
+        @Override
+        public void setElem(final int bank, final int i, final int val) {
+            throw new UnsupportedOperationException(
+                "TiledRenderedImage: the pixels are read only");
+        }
+    } //Rows
+} //TiledRenderedImage
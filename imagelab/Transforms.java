@@ -0,0 +1,351 @@
+package imagelab;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Flips, rotations by multiples of 90 degrees and transposition of
+ * packed ARGB images.  Every channel, alpha included, is kept.
+ * <p>
+ * Flips and the half turn keep the shape of the image and are done
+ * in place by swapping pixels.  Quarter turns and transposition
+ * read rows of the source while writing columns of the result; done
+ * naively, each write lands on a different cache line.  They are
+ * therefore done in square blocks small enough that a block of the
+ * source and of the result both stay in cache.  Square images are
+ * transposed in place, block pair by block pair, and turned in place
+ * by a transposition followed by a flip.  Tiled images are
+ * transformed a tile-sized block at a time into a new tiled image.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public final class Transforms {
+    /** Mirror left to right. */
+    public static final int FLIP_HORIZONTAL = 0;
+    /** Mirror top to bottom. */
+    public static final int FLIP_VERTICAL = 1;
+    /** Turn a quarter turn clockwise. */
+    public static final int ROTATE_90 = 2;
+    /** Turn a half turn. */
+    public static final int ROTATE_180 = 3;
+    /** Turn a quarter turn counterclockwise. */
+    public static final int ROTATE_270 = 4;
+    /** Swap rows and columns (mirror about the main diagonal). */
+    public static final int TRANSPOSE = 5;
+
+    /** Side of the square blocks, in pixels (a block is 16 KB). */
+    private static final int BLOCK = 64;
+
+    /** Private constructor to avoid instantiation. */
+    private Transforms() { }
+
+    /**
+     * Tell whether a transform swaps the width and height.
+     * @param op FLIP_HORIZONTAL, FLIP_VERTICAL, ROTATE_90, ROTATE_180,
+     *        ROTATE_270 or TRANSPOSE
+     * @return true for the quarter turns and transposition
+     */
+    public static boolean swapsAxes(final int op) {
+        check(op);
+        return op == ROTATE_90 || op == ROTATE_270 || op == TRANSPOSE;
+    }
+
+    /**
+     * Transform an image into a new one.
+     * @param in the image (not changed)
+     * @param op FLIP_HORIZONTAL, FLIP_VERTICAL, ROTATE_90, ROTATE_180,
+     *        ROTATE_270 or TRANSPOSE
+     * @return a new ImageCore holding the result
+     */
+    public static ImageCore transform(final ImageCore in, final int op) {
+        check(op);
+        in.ensureLoaded();
+        if (in.isTiled()) {
+            ImageCore result = new ImageCore();
+            result.setTiledImage(transformTiled(in.getTiledImage(), op));
+            return result;
+        }
+        int w = in.getWidth();
+        int h = in.getHeight();
+        int[] src = in.getPix();
+        int[] out = new int[w * h];
+        switch (op) {
+            case FLIP_HORIZONTAL:
+                for (int row = 0; row < h; row++) {
+                    int from = row * w;
+                    int to = from + w - 1;
+                    for (int col = 0; col < w; col++) {
+                        out[to - col] = src[from + col];
+                    }
+                }
+                break;
+            case FLIP_VERTICAL:
+                for (int row = 0; row < h; row++) {
+                    System.arraycopy(src, row * w, out, (h - 1 - row) * w, w);
+                }
+                break;
+            case ROTATE_180:
+                int last = w * h - 1;
+                for (int k = 0; k <= last; k++) {
+                    out[last - k] = src[k];
+                }
+                break;
+            default:
+                blocked(src, w, h, out, op);
+                break;
+        }
+        ImageCore result = new ImageCore();
+        if (swapsAxes(op)) {
+            result.setPixels(out, h, w);
+        } else {
+            result.setPixels(out, w, h);
+        }
+        return result;
+    } //transform
+
+    /**
+     * Transform an image, in place when the shape allows.  Quarter
+     * turns and transposition of an image that is not square fill a
+     * new array, which then replaces the old one.
+     * @param core the image
+     * @param op FLIP_HORIZONTAL, FLIP_VERTICAL, ROTATE_90, ROTATE_180,
+     *        ROTATE_270 or TRANSPOSE
+     */
+    public static void transformInPlace(final ImageCore core, final int op) {
+        check(op);
+        core.ensureLoaded();
+        if (core.isTiled()) {
+            core.setTiledImage(transformTiled(core.getTiledImage(), op));
+            return;
+        }
+        int w = core.getWidth();
+        int h = core.getHeight();
+        int[] pix = core.getPix();
+        if (swapsAxes(op) && w != h) {
+            int[] out = new int[w * h];
+            blocked(pix, w, h, out, op);
+            core.setPixels(out, h, w);
+            return;
+        }
+        switch (op) {
+            case FLIP_HORIZONTAL:
+                flipHorizontal(pix, w, h);
+                break;
+            case FLIP_VERTICAL:
+                flipVertical(pix, w, h);
+                break;
+            case ROTATE_180:
+                rotate180(pix, w, h);
+                break;
+            case TRANSPOSE:
+                transposeSquare(pix, w);
+                break;
+            case ROTATE_90:
+                transposeSquare(pix, w);
+                flipHorizontal(pix, w, h);
+                break;
+            default:
+                transposeSquare(pix, w);
+                flipVertical(pix, w, h);
+                break;
+        }
+        core.pixelsChanged();
+    } //transformInPlace
+
+    /**
+     * Mirror packed pixels left to right, in place.
+     * @param pix the pixels, row by row
+     * @param w width of the image
+     * @param h height of the image
+     */
+    public static void flipHorizontal(final int[] pix, final int w,
+                                      final int h) {
+        for (int row = 0; row < h; row++) {
+            int left = row * w;
+            int right = left + w - 1;
+            while (left < right) {
+                int t = pix[left];
+                pix[left++] = pix[right];
+                pix[right--] = t;
+            }
+        }
+    } //flipHorizontal
+
+    /**
+     * Mirror packed pixels top to bottom, in place.
+     * @param pix the pixels, row by row
+     * @param w width of the image
+     * @param h height of the image
+     */
+    public static void flipVertical(final int[] pix, final int w,
+                                    final int h) {
+        int[] row = new int[w];
+        for (int top = 0, bottom = h - 1; top < bottom; top++, bottom--) {
+            System.arraycopy(pix, top * w, row, 0, w);
+            System.arraycopy(pix, bottom * w, pix, top * w, w);
+            System.arraycopy(row, 0, pix, bottom * w, w);
+        }
+    } //flipVertical
+
+    /**
+     * Turn packed pixels a half turn, in place.
+     * @param pix the pixels, row by row
+     * @param w width of the image
+     * @param h height of the image
+     */
+    public static void rotate180(final int[] pix, final int w, final int h) {
+        int left = 0;
+        int right = w * h - 1;
+        while (left < right) {
+            int t = pix[left];
+            pix[left++] = pix[right];
+            pix[right--] = t;
+        }
+    } //rotate180
+
+    /**
+     * Transpose a square image in place, swapping each block above the
+     * diagonal with its mirror below it.
+     * @param pix the pixels, row by row
+     * @param n width and height of the image
+     */
+    public static void transposeSquare(final int[] pix, final int n) {
+        for (int by = 0; by < n; by += BLOCK) {
+            int yEnd = Math.min(by + BLOCK, n);
+            for (int bx = by; bx < n; bx += BLOCK) {
+                int xEnd = Math.min(bx + BLOCK, n);
+                for (int y = by; y < yEnd; y++) {
+                    int x = bx == by ? y + 1 : bx;
+                    for (; x < xEnd; x++) {
+                        int a = y * n + x;
+                        int b = x * n + y;
+                        int t = pix[a];
+                        pix[a] = pix[b];
+                        pix[b] = t;
+                    }
+                }
+            } //for bx
+        } //for by
+    } //transposeSquare
+
+    /**
+     * Quarter-turn or transpose packed pixels into another array, one
+     * block at a time.  Source pixel (x, y) goes to
+     * base + x * dx + y * dy of the result.
+     * @param src the pixels, row by row
+     * @param w width of the source
+     * @param h height of the source
+     * @param dst where to put the result, h pixels wide and w high
+     * @param op ROTATE_90, ROTATE_270 or TRANSPOSE
+     */
+    private static void blocked(final int[] src, final int w, final int h,
+                                final int[] dst, final int op) {
+        int base;
+        int dx;
+        int dy;
+        if (op == ROTATE_90) {
+            base = h - 1;
+            dx = h;
+            dy = -1;
+        } else if (op == ROTATE_270) {
+            base = (w - 1) * h;
+            dx = -h;
+            dy = 1;
+        } else {
+            base = 0;
+            dx = h;
+            dy = 1;
+        }
+        for (int by = 0; by < h; by += BLOCK) {
+            int yEnd = Math.min(by + BLOCK, h);
+            for (int bx = 0; bx < w; bx += BLOCK) {
+                int xEnd = Math.min(bx + BLOCK, w);
+                for (int y = by; y < yEnd; y++) {
+                    int from = y * w;
+                    int to = base + y * dy;
+                    for (int x = bx; x < xEnd; x++) {
+                        dst[to + x * dx] = src[from + x];
+                    }
+                }
+            } //for bx
+        } //for by
+    } //blocked
+
+    /**
+     * Transform a tiled image into a new one, a tile-sized block at a
+     * time: each block of the source is read to the heap, transformed
+     * there and written to its place in the result.
+     * @param in the image (not changed)
+     * @param op the transform
+     * @return the new image; the caller closes it
+     * @throws java.io.UncheckedIOException if the result's tiles
+     *         cannot be created
+     */
+    private static TiledImage transformTiled(final TiledImage in,
+                                             final int op) {
+        int w = in.getWidth();
+        int h = in.getHeight();
+        int size = in.getTileSize();
+        boolean swap = swapsAxes(op);
+        TiledImage out;
+        try {
+            out = new TiledImage(swap ? h : w, swap ? w : h, size,
+                                 TiledImage.DEFAULT_CACHE_TILES, null);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(
+                "Transforms: cannot create tiles for the result", ioe);
+        }
+        int[] block = new int[size * size];
+        int[] turned = new int[size * size];
+        for (int y0 = 0; y0 < h; y0 += size) {
+            int bh = Math.min(size, h - y0);
+            for (int x0 = 0; x0 < w; x0 += size) {
+                int bw = Math.min(size, w - x0);
+                for (int r = 0; r < bh; r++) {
+                    in.getRow(y0 + r, x0, bw, block, r * bw);
+                }
+                int[] result = block;
+                int ox = x0;
+                int oy = y0;
+                switch (op) {
+                    case FLIP_HORIZONTAL:
+                        flipHorizontal(block, bw, bh);
+                        ox = w - x0 - bw;
+                        break;
+                    case FLIP_VERTICAL:
+                        flipVertical(block, bw, bh);
+                        oy = h - y0 - bh;
+                        break;
+                    case ROTATE_180:
+                        rotate180(block, bw, bh);
+                        ox = w - x0 - bw;
+                        oy = h - y0 - bh;
+                        break;
+                    default:
+                        blocked(block, bw, bh, turned, op);
+                        result = turned;
+                        ox = op == ROTATE_90 ? h - y0 - bh : y0;
+                        oy = op == ROTATE_270 ? w - x0 - bw : x0;
+                        break;
+                }
+                int ow = swap ? bh : bw;
+                for (int r = 0; r < (swap ? bw : bh); r++) {
+                    out.setRow(oy + r, ox, ow, result, r * ow);
+                }
+            } //for x0
+        } //for y0
+        return out;
+    } //transformTiled
+
+    /**
+     * Fail unless op names a transform.
+     * @param op the transform
+     */
+    private static void check(final int op) {
+        if (op < FLIP_HORIZONTAL || op > TRANSPOSE) {
+            throw new IllegalArgumentException(
+                "Transforms: no such transform " + op);
+        }
+    }
+} //Transforms
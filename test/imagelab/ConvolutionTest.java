@@ -0,0 +1,121 @@
+package imagelab;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import org.junit.Test;
+
+/**
+ * Checks the convolution engine against a plain floating-point
+ * convolution with the edge pixels repeated.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class ConvolutionTest {
+    /** Width of the test image. */
+    private static final int W = 61;
+    /** Height of the test image. */
+    private static final int H = 47;
+    /** Largest difference allowed from the reference, in levels. */
+    private static final int TOLERANCE = 1;
+
+    /** A Gaussian is applied in two passes and matches the reference. */
+    @Test
+    public void separableMatchesReference() {
+        checkAgainstReference(ConvolutionKernel.gaussian(1.5));
+    }
+
+    /** A lopsided separable kernel is not mirrored by either pass. */
+    @Test
+    public void asymmetricSeparableMatchesReference() {
+        checkAgainstReference(ConvolutionKernel.separable(
+            new double[] {0.5, 0.3, 0.2},
+            new double[] {0.1, 0.2, 0.3, 0.25, 0.15}));
+    }
+
+    /** A kernel that cannot be factored uses the full grid. */
+    @Test
+    public void directMatchesReference() {
+        ConvolutionKernel k = new ConvolutionKernel(3, 3, new double[] {
+            0, -1, 0.5,
+            -1, 4.5, -1,
+            0.25, -1, 0});
+        assertTrue("kernel should not be separable", !k.isSeparable());
+        checkAgainstReference(k);
+    }
+
+    /**
+     * A tiled image, filtered a band at a time, gives exactly the
+     * result of the same image in memory.
+     * @throws IOException if the tiles cannot be created
+     */
+    @Test
+    public void tiledMatchesInMemory() throws IOException {
+        int[] pix = TestImages.random(W, H, 2);
+        Convolution[] filters = {
+            new Convolution(ConvolutionKernel.gaussian(2.0), "gaussian"),
+            new Convolution(new ConvolutionKernel(3, 1,
+                new double[] {-1, 3, -1}), "row")};
+        ImageCore in = TestImages.tiled(pix, W, H);
+        for (Convolution c : filters) {
+            ImageCore mem = TileExecutor.getDefault().apply(
+                c, TestImages.inMemory(pix, W, H));
+            ImageCore tiled = TileExecutor.getDefault().apply(c, in);
+            assertTrue(c.getMenuLabel() + " result should be tiled",
+                       tiled.isTiled());
+            assertArrayEquals(c.getMenuLabel(), TestImages.pixels(mem),
+                              TestImages.pixels(tiled));
+            tiled.dropTiles();
+        }
+        in.dropTiles();
+    } //tiledMatchesInMemory
+
+    /**
+     * Convolve a random image and compare every channel of every
+     * pixel with the reference.
+     * @param k the kernel
+     */
+    private static void checkAgainstReference(final ConvolutionKernel k) {
+        int[] pix = TestImages.random(W, H, 1);
+        int[] got = TileExecutor.getDefault().apply(new Convolution(k, "k"),
+            TestImages.inMemory(pix, W, H)).getPix();
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                for (int c = 0; c < PixelBuffer.CHANNELS; c++) {
+                    int want = reference(pix, k, x, y, c);
+                    int have = TestImages.channel(got[y * W + x], c);
+                    assertTrue("channel " + c + " at " + x + "," + y
+                        + ": " + have + " instead of " + want,
+                        Math.abs(have - want) <= TOLERANCE);
+                }
+            }
+        }
+    } //checkAgainstReference
+
+    /**
+     * Convolve one channel of one pixel in floating point.
+     * @param pix the image
+     * @param k the kernel, applied without mirroring
+     * @param x column
+     * @param y row
+     * @param c channel
+     * @return the rounded result, clamped to 0 to 255
+     */
+    private static int reference(final int[] pix, final ConvolutionKernel k,
+                                 final int x, final int y, final int c) {
+        int rx = k.getWidth() / 2;
+        int ry = k.getHeight() / 2;
+        double sum = 0;
+        for (int j = 0; j < k.getHeight(); j++) {
+            int sy = Math.min(H - 1, Math.max(0, y + j - ry));
+            for (int i = 0; i < k.getWidth(); i++) {
+                int sx = Math.min(W - 1, Math.max(0, x + i - rx));
+                sum += k.get(i, j) * TestImages.channel(pix[sy * W + sx], c);
+            }
+        }
+        return (int) Math.max(0, Math.min(PixelBuffer.MASK,
+                                          Math.round(sum)));
+    } //reference
+} //ConvolutionTest
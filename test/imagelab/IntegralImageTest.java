@@ -0,0 +1,94 @@
+package imagelab;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks summed-area tables against sums taken pixel by pixel.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class IntegralImageTest {
+    /** Width of the test image. */
+    private static final int W = 37;
+    /** Height of the test image. */
+    private static final int H = 29;
+    /** Allowed error of means and variances. */
+    private static final double EPSILON = 1e-9;
+
+    /** Every rectangle's sum and sum of squares is exact. */
+    @Test
+    public void sumsMatchBruteForce() {
+        PlaneView plane = plane();
+        IntegralImage ii = new IntegralImage(plane, true);
+        assertEquals(W, ii.getWidth());
+        assertEquals(H, ii.getHeight());
+        for (int y0 = 0; y0 <= H; y0 += 2) {
+            for (int y1 = y0; y1 <= H; y1 += 3) {
+                for (int x0 = 0; x0 <= W; x0 += 2) {
+                    for (int x1 = x0; x1 <= W; x1 += 3) {
+                        long s = 0;
+                        long sq = 0;
+                        for (int y = y0; y < y1; y++) {
+                            for (int x = x0; x < x1; x++) {
+                                int v = plane.get(y, x);
+                                s += v;
+                                sq += v * v;
+                            }
+                        }
+                        String at = x0 + "," + y0 + "-" + x1 + "," + y1;
+                        assertEquals("sum " + at, s, ii.sum(x0, y0, x1, y1));
+                        assertEquals("squares " + at, sq,
+                                     ii.sumOfSquares(x0, y0, x1, y1));
+                    }
+                }
+            }
+        }
+    } //sumsMatchBruteForce
+
+    /** Windows are clipped at the edges of the plane. */
+    @Test
+    public void windowStatisticsMatchBruteForce() {
+        PlaneView plane = plane();
+        IntegralImage ii = new IntegralImage(plane, true);
+        int[] radii = {0, 1, 4, W};
+        for (int r : radii) {
+            for (int y = 0; y < H; y++) {
+                for (int x = 0; x < W; x++) {
+                    long n = 0;
+                    double s = 0;
+                    double sq = 0;
+                    for (int j = Math.max(0, y - r);
+                         j <= Math.min(H - 1, y + r); j++) {
+                        for (int i = Math.max(0, x - r);
+                             i <= Math.min(W - 1, x + r); i++) {
+                            int v = plane.get(j, i);
+                            n++;
+                            s += v;
+                            sq += (double) v * v;
+                        }
+                    }
+                    double mean = s / n;
+                    String at = "radius " + r + " at " + x + "," + y;
+                    assertEquals("mean " + at, mean, ii.mean(x, y, r),
+                                 EPSILON);
+                    assertEquals("rounded mean " + at, Math.round(mean),
+                                 ii.roundedMean(x, y, r));
+                    assertEquals("variance " + at, sq / n - mean * mean,
+                                 ii.variance(x, y, r), EPSILON * sq);
+                }
+            }
+        }
+    } //windowStatisticsMatchBruteForce
+
+    /**
+     * Retrieve the green plane of a random image.
+     * @return the plane
+     */
+    private static PlaneView plane() {
+        return TestImages.inMemory(TestImages.random(W, H, 3), W, H)
+            .getPlaneView(PixelBuffer.GREEN);
+    }
+} //IntegralImageTest
@@ -0,0 +1,88 @@
+package imagelab;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Checks resizing with each method on images whose result is known,
+ * and tiled images against the same images in memory.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class ResamplerTest {
+    /** Width of the test image. */
+    private static final int W = 53;
+    /** Height of the test image. */
+    private static final int H = 41;
+    /** Color of the flat image. */
+    private static final int FLAT = 0xC0336699;
+    /** Sizes to resize to, as width and height pairs. */
+    private static final int[][] SIZES = {
+        {W, H}, {W / 2, H / 2}, {W / 5, H / 7}, {1, 1}, {W * 2, H * 3},
+        {W * 3 / 2, H / 3}, {W / 9, H * 2}};
+    /** All the methods. */
+    private static final int[] METHODS = {
+        Resampler.NEAREST, Resampler.BILINEAR, Resampler.BICUBIC,
+        Resampler.LANCZOS};
+
+    /** Every method leaves an image alone at its own size. */
+    @Test
+    public void sameSizeIsIdentity() {
+        int[] pix = TestImages.random(W, H, 4);
+        for (int m : METHODS) {
+            ImageCore out = Resampler.resize(
+                TestImages.inMemory(pix, W, H), W, H, m);
+            assertEquals(W, out.getWidth());
+            assertEquals(H, out.getHeight());
+            assertArrayEquals("method " + m, pix, TestImages.pixels(out));
+        }
+    }
+
+    /** An image of one color keeps it at every size. */
+    @Test
+    public void flatStaysFlat() {
+        int[] pix = new int[W * H];
+        Arrays.fill(pix, FLAT);
+        for (int m : METHODS) {
+            for (int[] size : SIZES) {
+                int[] out = TestImages.pixels(Resampler.resize(
+                    TestImages.inMemory(pix, W, H), size[0], size[1], m));
+                assertEquals(size[0] * size[1], out.length);
+                for (int i = 0; i < out.length; i++) {
+                    assertEquals("method " + m + " at " + size[0] + "x"
+                        + size[1], FLAT, out[i]);
+                }
+            }
+        }
+    } //flatStaysFlat
+
+    /**
+     * A tiled image resizes to exactly the result of the same image in
+     * memory.
+     * @throws IOException if the tiles cannot be created
+     */
+    @Test
+    public void tiledMatchesInMemory() throws IOException {
+        int[] pix = TestImages.random(W, H, 5);
+        ImageCore in = TestImages.tiled(pix, W, H);
+        for (int m : METHODS) {
+            for (int[] size : SIZES) {
+                ImageCore mem = Resampler.resize(
+                    TestImages.inMemory(pix, W, H), size[0], size[1], m);
+                ImageCore tiled = Resampler.resize(in, size[0], size[1], m);
+                assertArrayEquals("method " + m + " at " + size[0] + "x"
+                    + size[1], TestImages.pixels(mem),
+                    TestImages.pixels(tiled));
+                tiled.dropTiles();
+            }
+        }
+        assertTrue(in.isTiled());
+        in.dropTiles();
+    } //tiledMatchesInMemory
+} //ResamplerTest
@@ -0,0 +1,105 @@
+package imagelab;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Images for the unit tests.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+final class TestImages {
+    /** Side of the tiles of tiled test images, so they have several. */
+    static final int TILE_SIZE = 16;
+    /** Tiles kept mapped by tiled test images. */
+    static final int CACHE_TILES = 8;
+
+    /** Private constructor to avoid instantiation. */
+    private TestImages() { }
+
+    /**
+     * Make pixels with random colors and alpha.
+     * @param w width
+     * @param h height
+     * @param seed seed of the random numbers
+     * @return packed ARGB pixels, row by row
+     */
+    static int[] random(final int w, final int h, final long seed) {
+        Random rnd = new Random(seed);
+        int[] pix = new int[w * h];
+        for (int i = 0; i < pix.length; i++) {
+            pix[i] = rnd.nextInt();
+        }
+        return pix;
+    }
+
+    /**
+     * Hold pixels in memory.
+     * @param pix packed ARGB pixels, row by row (not copied)
+     * @param w width
+     * @param h height
+     * @return the image
+     */
+    static ImageCore inMemory(final int[] pix, final int w, final int h) {
+        ImageCore core = new ImageCore();
+        core.setPixels(pix, w, h);
+        return core;
+    }
+
+    /**
+     * Copy pixels into a tiled image with small tiles.
+     * @param pix packed ARGB pixels, row by row
+     * @param w width
+     * @param h height
+     * @return the image
+     * @throws IOException if the tiles cannot be created
+     */
+    static ImageCore tiled(final int[] pix, final int w, final int h)
+        throws IOException {
+        TiledImage t = new TiledImage(w, h, TILE_SIZE, CACHE_TILES, null);
+        for (int y = 0; y < h; y++) {
+            t.setRow(y, 0, w, pix, y * w);
+        }
+        ImageCore core = new ImageCore();
+        core.setTiledImage(t);
+        return core;
+    }
+
+    /**
+     * Read all the pixels of an image, tiled or not.
+     * @param core the image
+     * @return a copy of its packed ARGB pixels, row by row
+     */
+    static int[] pixels(final ImageCore core) {
+        int w = core.getWidth();
+        int h = core.getHeight();
+        if (!core.isTiled()) {
+            return core.getPix().clone();
+        }
+        int[] pix = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            core.getTiledImage().getRow(y, 0, w, pix, y * w);
+        }
+        return pix;
+    }
+
+    /**
+     * Extract a channel of a packed pixel.
+     * @param p the pixel
+     * @param c PixelBuffer.RED, GREEN, BLUE or ALPHA
+     * @return the channel's value, 0 to 255
+     */
+    static int channel(final int p, final int c) {
+        switch (c) {
+            case PixelBuffer.RED:
+                return (p >> PixelBuffer.RED_SHIFT) & PixelBuffer.MASK;
+            case PixelBuffer.GREEN:
+                return (p >> PixelBuffer.GREEN_SHIFT) & PixelBuffer.MASK;
+            case PixelBuffer.BLUE:
+                return p & PixelBuffer.MASK;
+            default:
+                return p >>> PixelBuffer.ALPHA_SHIFT;
+        }
+    } //channel
+} //TestImages
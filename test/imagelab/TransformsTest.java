@@ -0,0 +1,130 @@
+package imagelab;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import org.junit.Test;
+
+/**
+ * Checks every transform, into a new image and in place, on square
+ * and oblong images, tiled or not, against where each pixel should go.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+public class TransformsTest {
+    /** Sizes of the test images, as width and height pairs. */
+    private static final int[][] SIZES = {
+        {1, 1}, {7, 7}, {40, 40}, {13, 5}, {5, 13}, {70, 37}};
+    /** All the transforms. */
+    private static final int[] OPS = {
+        Transforms.FLIP_HORIZONTAL, Transforms.FLIP_VERTICAL,
+        Transforms.ROTATE_90, Transforms.ROTATE_180,
+        Transforms.ROTATE_270, Transforms.TRANSPOSE};
+
+    /** Transforming into a new image leaves the source alone. */
+    @Test
+    public void transformMatchesMapping() {
+        for (int[] size : SIZES) {
+            int w = size[0];
+            int h = size[1];
+            int[] pix = TestImages.random(w, h, 6);
+            for (int op : OPS) {
+                ImageCore in = TestImages.inMemory(pix.clone(), w, h);
+                ImageCore out = Transforms.transform(in, op);
+                check(pix, w, h, op, out);
+                assertArrayEquals("source changed", pix, in.getPix());
+            }
+        }
+    }
+
+    /** Transforming in place gives the same result. */
+    @Test
+    public void transformInPlaceMatchesMapping() {
+        for (int[] size : SIZES) {
+            int w = size[0];
+            int h = size[1];
+            int[] pix = TestImages.random(w, h, 7);
+            for (int op : OPS) {
+                ImageCore core = TestImages.inMemory(pix.clone(), w, h);
+                Transforms.transformInPlace(core, op);
+                check(pix, w, h, op, core);
+            }
+        }
+    }
+
+    /**
+     * Tiled images, whose edges fall inside tiles, transform both ways.
+     * @throws IOException if the tiles cannot be created
+     */
+    @Test
+    public void tiledMatchesMapping() throws IOException {
+        for (int[] size : SIZES) {
+            int w = size[0];
+            int h = size[1];
+            int[] pix = TestImages.random(w, h, 8);
+            for (int op : OPS) {
+                ImageCore in = TestImages.tiled(pix, w, h);
+                ImageCore out = Transforms.transform(in, op);
+                check(pix, w, h, op, out);
+                out.dropTiles();
+                Transforms.transformInPlace(in, op);
+                check(pix, w, h, op, in);
+                in.dropTiles();
+            }
+        }
+    } //tiledMatchesMapping
+
+    /**
+     * Compare a result with where each source pixel should go.
+     * @param pix the source pixels
+     * @param w width of the source
+     * @param h height of the source
+     * @param op the transform
+     * @param out the result
+     */
+    private static void check(final int[] pix, final int w, final int h,
+                              final int op, final ImageCore out) {
+        boolean swap = Transforms.swapsAxes(op);
+        int ow = swap ? h : w;
+        String what = "op " + op + " on " + w + "x" + h;
+        assertEquals(what + " width", ow, out.getWidth());
+        assertEquals(what + " height", swap ? w : h, out.getHeight());
+        int[] want = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int tx;
+                int ty;
+                switch (op) {
+                    case Transforms.FLIP_HORIZONTAL:
+                        tx = w - 1 - x;
+                        ty = y;
+                        break;
+                    case Transforms.FLIP_VERTICAL:
+                        tx = x;
+                        ty = h - 1 - y;
+                        break;
+                    case Transforms.ROTATE_90:
+                        tx = h - 1 - y;
+                        ty = x;
+                        break;
+                    case Transforms.ROTATE_180:
+                        tx = w - 1 - x;
+                        ty = h - 1 - y;
+                        break;
+                    case Transforms.ROTATE_270:
+                        tx = y;
+                        ty = w - 1 - x;
+                        break;
+                    default:
+                        tx = y;
+                        ty = x;
+                        break;
+                }
+                want[ty * ow + tx] = pix[y * w + x];
+            }
+        }
+        assertArrayEquals(what, want, TestImages.pixels(out));
+    } //check
+} //TransformsTest
@@ -0,0 +1,162 @@
+package imagelab;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementation of the pixel loops with the (incubating) Java Vector
+ * API, which compiles them to AVX2, AVX-512 or NEON instructions.
+ * Each loop works on as many pixels at once as the widest int vector
+ * the processor supports and finishes the last few pixels with the
+ * scalar code.
+ * This class is only loaded, by {@link Kernels}, when the
+ * <CODE>jdk.incubator.vector</CODE> module is present.
+ * @author Dr. Aaron Gordon
+ * @author Dr. Jody Paul
+ * @version 1.0
+ */
+final class VectorKernels implements PixelKernels {
+    /** Fewest int lanes for which vectors beat the scalar loops. */
+    private static final int MIN_LANES = 8;
+    /** Bits in a byte. */
+    private static final int BYTE_BITS = 8;
+    /** Bits in a short. */
+    private static final int SHORT_BITS = 16;
+
+    /** Widest int vectors the processor supports. */
+    private static final VectorSpecies<Integer> INTS =
+        IntVector.SPECIES_PREFERRED;
+    /** Byte vectors with as many lanes as INTS. */
+    private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(
+        byte.class, VectorShape.forBitSize(INTS.length() * BYTE_BITS));
+    /** Short vectors with as many lanes as INTS. */
+    private static final VectorSpecies<Short> SHORTS = VectorSpecies.of(
+        short.class, VectorShape.forBitSize(INTS.length() * SHORT_BITS));
+
+    /** Finishes the pixels left over after the last whole vector. */
+    private final ScalarKernels tail = new ScalarKernels();
+
+    /**
+     * Create the vector kernels.
+     * @throws UnsupportedOperationException if the processor's vectors
+     *         are too narrow to be worth using
+     */
+    VectorKernels() {
+        if (INTS.length() < MIN_LANES) {
+            throw new UnsupportedOperationException(
+                "VectorKernels: only " + INTS.length() + " int lanes");
+        }
+    }
+
+    @Override
+    public void luma(final int[] pix, final int from, final int to,
+                     final byte[] dst) {
+        int i = from;
+        int end = from + INTS.loopBound(to - from);
+        for (; i < end; i += INTS.length()) {
+            IntVector p = IntVector.fromArray(INTS, pix, i);
+            IntVector r = p
+                .lanewise(VectorOperators.LSHR, PixelBuffer.RED_SHIFT)
+                .and(PixelBuffer.MASK);
+            IntVector g = p
+                .lanewise(VectorOperators.LSHR, PixelBuffer.GREEN_SHIFT)
+                .and(PixelBuffer.MASK);
+            IntVector b = p.and(PixelBuffer.MASK);
+            IntVector y = r.mul(Luminance.RED_WEIGHT)
+                .add(g.mul(Luminance.GREEN_WEIGHT))
+                .add(b.mul(Luminance.BLUE_WEIGHT))
+                .add(Luminance.ROUND)
+                .lanewise(VectorOperators.LSHR, Luminance.FRACTION_BITS);
+            y.convertShape(VectorOperators.I2B, BYTES, 0)
+                .reinterpretAsBytes().intoArray(dst, i);
+        }
+        tail.luma(pix, i, to, dst);
+    } //luma
+
+    @Override
+    public void unpack(final int[] pix, final int from, final int shift,
+                       final byte[] dst, final int to, final int count) {
+        int k = 0;
+        int end = INTS.loopBound(count);
+        for (; k < end; k += INTS.length()) {
+            IntVector p = IntVector.fromArray(INTS, pix, from + k);
+            p.lanewise(VectorOperators.LSHR, shift).and(PixelBuffer.MASK)
+                .convertShape(VectorOperators.I2B, BYTES, 0)
+                .reinterpretAsBytes().intoArray(dst, to + k);
+        }
+        tail.unpack(pix, from + k, shift, dst, to + k, count - k);
+    } //unpack
+
+    @Override
+    public void pack(final byte[] data, final int a, final int r,
+                     final int g, final int b, final int[] pix,
+                     final int to, final int count) {
+        int k = 0;
+        int end = INTS.loopBound(count);
+        for (; k < end; k += INTS.length()) {
+            IntVector av = widen(data, a + k);
+            IntVector rv = widen(data, r + k);
+            IntVector gv = widen(data, g + k);
+            IntVector bv = widen(data, b + k);
+            av.lanewise(VectorOperators.LSHL, PixelBuffer.ALPHA_SHIFT)
+                .or(rv.lanewise(VectorOperators.LSHL, PixelBuffer.RED_SHIFT))
+                .or(gv.lanewise(VectorOperators.LSHL, PixelBuffer.GREEN_SHIFT))
+                .or(bv)
+                .intoArray(pix, to + k);
+        }
+        tail.pack(data, a + k, r + k, g + k, b + k, pix, to + k,
+                  count - k);
+    } //pack
+
+    /**
+     * Load bytes and widen them to ints from 0 to 255.
+     * @param data the bytes
+     * @param off index of the first byte
+     * @return one int lane per byte
+     */
+    private static IntVector widen(final byte[] data, final int off) {
+        return ((IntVector) ByteVector.fromArray(BYTES, data, off)
+            .convertShape(VectorOperators.B2I, INTS, 0))
+            .and(PixelBuffer.MASK);
+    }
+
+    @Override
+    public void packGray(final short[] gray, final int from,
+                         final int[] pix, final int to, final int count) {
+        int k = 0;
+        int end = INTS.loopBound(count);
+        for (; k < end; k += INTS.length()) {
+            IntVector v = ((IntVector) ShortVector
+                .fromArray(SHORTS, gray, from + k)
+                .convertShape(VectorOperators.S2I, INTS, 0))
+                .and(PixelBuffer.MASK);
+            v.lanewise(VectorOperators.LSHL, PixelBuffer.RED_SHIFT)
+                .or(v.lanewise(VectorOperators.LSHL, PixelBuffer.GREEN_SHIFT))
+                .or(v)
+                .or(PixelBuffer.OPAQUE)
+                .intoArray(pix, to + k);
+        }
+        tail.packGray(gray, from + k, pix, to + k, count - k);
+    } //packGray
+
+    @Override
+    public void swapRedBlue(final int[] src, final int from,
+                            final int[] dst, final int to, final int count) {
+        int k = 0;
+        int end = INTS.loopBound(count);
+        for (; k < end; k += INTS.length()) {
+            IntVector p = IntVector.fromArray(INTS, src, from + k);
+            p.and(PixelBuffer.ALPHA_GREEN)
+                .or(p.lanewise(VectorOperators.LSHR, PixelBuffer.RED_SHIFT)
+                    .and(PixelBuffer.MASK))
+                .or(p.and(PixelBuffer.MASK)
+                    .lanewise(VectorOperators.LSHL, PixelBuffer.RED_SHIFT))
+                .intoArray(dst, to + k);
+        }
+        tail.swapRedBlue(src, from + k, dst, to + k, count - k);
+    } //swapRedBlue
+} //VectorKernels